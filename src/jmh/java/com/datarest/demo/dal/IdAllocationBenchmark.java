@@ -0,0 +1,111 @@
+package com.datarest.demo.dal;
+
+import com.datarest.demo.DemoApplication;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Benchmarks the insert throughput of one sequence round trip per identifier (block size 1, as with the former
+ * {@code GenerationType.AUTO} mapping) against pooled allocation. The in-memory database hides network latency, so the
+ * {@code statements} counter, the number of JDBC statements prepared to save the orders of one invocation, is the
+ * figure that carries over to a remote database.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdAllocationBenchmark {
+
+    private static final int ORDERS = 1_000;
+
+    @Param({"1", "50"})
+    int blockSize;
+
+    ConfigurableApplicationContext context;
+    OrderRepository repository;
+    Statistics statistics;
+    List<Order> orders;
+
+    @Setup(Level.Trial)
+    public void start() {
+
+        context = new SpringApplicationBuilder(DemoApplication.class) //
+                .web(WebApplicationType.NONE) //
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark" + blockSize, //
+                        "--spring.jpa.properties.demo.id.block_size=" + blockSize, //
+                        "--spring.jpa.properties.hibernate.generate_statistics=true", //
+                        "--spring.main.banner-mode=off", //
+                        "--logging.level.root=warn");
+
+        repository = context.getBean(OrderRepository.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareOrders() {
+
+        orders = IntStream.range(0, ORDERS) //
+                .mapToObj(it -> Order.builder().deliverDate(LocalDate.now()).orderStatus(OrderStatus.DRAFT).build()) //
+                .collect(Collectors.toList());
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public Iterable<Order> saveAll(Statements statements) {
+
+        long prepared = statistics.getPrepareStatementCount();
+
+        Iterable<Order> saved = repository.saveAll(orders);
+
+        statements.statements = statistics.getPrepareStatementCount() - prepared;
+
+        return saved;
+    }
+
+    /**
+     * Holds the number of JDBC statements prepared by the last invocation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Statements {
+
+        public long statements;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            statements = 0;
+        }
+    }
+}
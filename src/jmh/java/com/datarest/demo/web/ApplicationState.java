@@ -0,0 +1,43 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.DemoApplication;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * The application context the benchmarks run against, started once per trial on an in-memory H2 database and a random
+ * port, so benchmarks measure the request pipeline rather than its bootstrap.
+ */
+@State(Scope.Benchmark)
+public class ApplicationState {
+
+    ConfigurableApplicationContext context;
+
+    @Setup
+    public void start() {
+
+        // Passed as arguments, as default properties would not override application.properties
+        context = new SpringApplicationBuilder(DemoApplication.class) //
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark", //
+                        "--server.port=0", //
+                        "--spring.main.banner-mode=off", //
+                        "--logging.level.root=warn");
+    }
+
+    @TearDown
+    public void stop() {
+        context.close();
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    <T> T getBean(String name, Class<T> type) {
+        return context.getBean(name, type);
+    }
+}
@@ -0,0 +1,66 @@
+package com.datarest.demo.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.rest.webmvc.config.DelegatingHandlerMapping;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.util.ServletRequestPathUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks routing a request for a repository resource: the lookup of the handler method by
+ * {@link CustomRepositoryRestHandlerMapping} and the selection of the mapping by {@link DelegatingHandlerMapping}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HandlerMappingBenchmark {
+
+    @Param({"/api/orders", "/api/orders/1", "/api/products/1"})
+    String uri;
+
+    CustomRepositoryRestHandlerMapping repositoryMapping;
+    DelegatingHandlerMapping delegatingMapping;
+    MockHttpServletRequest request;
+
+    @Setup
+    public void setUp(ApplicationState application) {
+
+        delegatingMapping = application.getBean(DelegatingHandlerMapping.class);
+        repositoryMapping = delegatingMapping.getDelegates().stream() //
+                .filter(CustomRepositoryRestHandlerMapping.class::isInstance) //
+                .map(CustomRepositoryRestHandlerMapping.class::cast) //
+                .findFirst() //
+                .orElseThrow(IllegalStateException::new);
+
+        request = new MockHttpServletRequest("GET", uri);
+        request.addHeader("Accept", "application/json");
+
+        ServletRequestPathUtils.parseAndCache(request);
+    }
+
+    @Benchmark
+    public HandlerMethod lookupHandlerMethod() throws Exception {
+        return repositoryMapping.lookupHandlerMethod(uri, request);
+    }
+
+    @Benchmark
+    public HandlerExecutionChain delegatingGetHandler() throws Exception {
+        return delegatingMapping.getHandler(request);
+    }
+}
@@ -0,0 +1,120 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Author;
+import com.datarest.demo.dal.AuthorRepository;
+import com.datarest.demo.dal.Customer;
+import com.datarest.demo.dal.CustomerRepository;
+import com.datarest.demo.dal.Order;
+import com.datarest.demo.dal.OrderRepository;
+import com.datarest.demo.dal.OrderStatus;
+import com.datarest.demo.dal.Orderline;
+import com.datarest.demo.dal.Product;
+import com.datarest.demo.dal.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.support.RepositoryInvokerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks reading a large page of {@link Order} aggregates with the default {@link FetchPlan} in a read-write
+ * transaction, as it used to be read within the persistence context kept open for the view, against the read-only
+ * transaction {@link CustomRepositoryRestController} uses now. Run with {@code -prof gc} to compare the allocation
+ * caused by the snapshots kept for dirty checking, the time includes the dirty check performed on commit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadOnlyTransactionBenchmark {
+
+    private static final int ORDERLINES = 3;
+
+    @Param({"100", "1000"})
+    int orders;
+
+    JpaRepositoryInvoker invoker;
+    FetchPlan fetchPlan;
+    PageRequest page;
+    TransactionTemplate readWrite;
+    TransactionTemplate readOnly;
+
+    @Setup
+    public void setUp(ApplicationState application) {
+
+        OrderRepository orderRepository = application.getBean(OrderRepository.class);
+        CustomerRepository customerRepository = application.getBean(CustomerRepository.class);
+        AuthorRepository authorRepository = application.getBean(AuthorRepository.class);
+        ProductRepository productRepository = application.getBean(ProductRepository.class);
+
+        List<Order> aggregates = new ArrayList<>();
+
+        for (int i = 0; i < orders; i++) {
+
+            Customer customer = customerRepository.save(Customer.builder().name("Customer " + i).build());
+            Author author = authorRepository.save(Author.builder().firstName("First " + i).lastName("Last " + i)
+                    .build());
+            Product product = productRepository.save(Product.builder().title("Product " + i)
+                    .price(BigDecimal.valueOf(i)).author(author).build());
+            Order order = Order.builder().customer(customer).deliverDate(LocalDate.now().plusDays(i))
+                    .orderStatus(OrderStatus.DRAFT).build();
+
+            for (int j = 0; j < ORDERLINES; j++) {
+                order.add(Orderline.builder().product(product).amount(j + 1).build());
+            }
+
+            aggregates.add(order);
+        }
+
+        orderRepository.saveAll(aggregates);
+
+        invoker = (JpaRepositoryInvoker) application
+                .getBean("repositoryInvokerFactory", RepositoryInvokerFactory.class).getInvokerFor(Order.class);
+        fetchPlan = invoker.getFetchPlan(null);
+        page = PageRequest.of(0, orders, Sort.by("id"));
+
+        PlatformTransactionManager transactionManager = application.getBean(PlatformTransactionManager.class);
+
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @Benchmark
+    public int readWrite() {
+        return readWrite.execute(status -> read());
+    }
+
+    @Benchmark
+    public int readOnly() {
+        return readOnly.execute(status -> read());
+    }
+
+    private int read() {
+
+        List<Object> content = new ArrayList<>();
+        invoker.invokeFindAll(page).forEach(content::add);
+        fetchPlan.apply(content);
+
+        return content.size();
+    }
+}
@@ -0,0 +1,72 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Order;
+import com.datarest.demo.dal.OrderRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mapping.PersistentEntity;
+import org.springframework.data.mapping.context.PersistentEntities;
+import org.springframework.data.rest.webmvc.HttpHeadersPreparer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks evaluating the conditional headers of an item request with {@link ResourceStatus} and wrapping the item
+ * into a {@link ResponseEntity} with {@link CustomControllerUtils}, both for unconditional requests and ones carrying the
+ * current ETag of the item.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResourceStatusBenchmark {
+
+    @Param({"unconditional", "matching"})
+    String precondition;
+
+    ResourceStatus resourceStatus;
+    PersistentEntity<?, ?> entity;
+    Order order;
+    HttpHeaders requestHeaders;
+    HttpHeaders responseHeaders;
+
+    @Setup
+    public void setUp(ApplicationState application) {
+
+        HttpHeadersPreparer preparer = application.getBean(HttpHeadersPreparer.class);
+
+        resourceStatus = ResourceStatus.of(preparer);
+        entity = application.getBean(PersistentEntities.class).getRequiredPersistentEntity(Order.class);
+        order = application.getBean(OrderRepository.class).findAll().iterator().next();
+        responseHeaders = preparer.prepareHeaders(entity, order);
+        requestHeaders = new HttpHeaders();
+
+        if ("matching".equals(precondition)) {
+            requestHeaders.setIfNoneMatch(responseHeaders.getETag());
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<?> getStatusAndHeaders() {
+        return resourceStatus.getStatusAndHeaders(requestHeaders, order, entity).toResponseEntity(() -> order);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> toResponseEntity() {
+        return CustomControllerUtils.toResponseEntity(HttpStatus.OK, responseHeaders, order);
+    }
+}
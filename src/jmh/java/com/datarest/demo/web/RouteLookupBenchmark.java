@@ -0,0 +1,118 @@
+package com.datarest.demo.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.data.rest.core.config.RepositoryRestConfiguration;
+import org.springframework.data.rest.core.mapping.ResourceMappings;
+import org.springframework.data.rest.webmvc.BaseUri;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.mvc.condition.PathPatternsRequestCondition;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares routing a request through {@link CustomRepositoryRestHandlerMapping} with its precomputed route table against
+ * the same lookup followed by the per-request derivation it replaced: parsing the base URI, extracting and checking
+ * the repository path, re-deriving the {@link RequestMappingInfo} of the handler method and parsing the effective
+ * lookup path. Run with {@code -prof gc} to compare the allocation of both.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteLookupBenchmark {
+
+    private static final PathPatternParser PARSER = new PathPatternParser();
+
+    @Param({"/api/orders", "/api/orders/1", "/api/products/2"})
+    String uri;
+
+    FormerRoutingHandlerMapping mapping;
+    MockHttpServletRequest request;
+
+    @Setup
+    public void setUp(ApplicationState application) throws Exception {
+
+        mapping = new FormerRoutingHandlerMapping(application.getBean(ResourceMappings.class),
+                application.getBean(RepositoryRestConfiguration.class), application.getBean(Repositories.class));
+        mapping.setApplicationContext(application.context);
+        mapping.afterPropertiesSet();
+
+        request = new MockHttpServletRequest("GET", uri);
+        request.addHeader("Accept", "application/json");
+    }
+
+    @Benchmark
+    public HandlerExecutionChain routeTable() throws Exception {
+        return mapping.getHandler(request);
+    }
+
+    @Benchmark
+    public PathPattern formerDerivation() throws Exception {
+        return mapping.deriveFormerRoute((HandlerMethod) mapping.getHandler(request).getHandler(), request);
+    }
+
+    /**
+     * Exposes the work {@link CustomRepositoryRestHandlerMapping} used to do for every request.
+     */
+    static class FormerRoutingHandlerMapping extends CustomRepositoryRestHandlerMapping {
+
+        private final ResourceMappings mappings;
+        private final RepositoryRestConfiguration configuration;
+
+        FormerRoutingHandlerMapping(ResourceMappings mappings, RepositoryRestConfiguration configuration,
+                                    Repositories repositories) {
+
+            super(mappings, configuration, repositories);
+
+            this.mappings = mappings;
+            this.configuration = configuration;
+        }
+
+        PathPattern deriveFormerRoute(HandlerMethod method, HttpServletRequest request) {
+
+            String lookupPath = request.getRequestURI();
+            String repositoryLookupPath = new BaseUri(configuration.getBasePath()).getRepositoryLookupPath(lookupPath);
+            String repositoryBasePath = repositoryLookupPath.replace("/api", "");
+            int secondSlashIndex = repositoryBasePath.indexOf('/', 1);
+            repositoryBasePath = secondSlashIndex == -1 //
+                    ? repositoryBasePath //
+                    : repositoryBasePath.substring(0, secondSlashIndex);
+
+            if (!mappings.exportsTopLevelResourceFor(repositoryBasePath)) {
+                return null;
+            }
+
+            RequestMappingInfo mappingInfo = getMappingForMethod(method.getMethod(), method.getBeanType());
+
+            if (mappingInfo == null) {
+                return null;
+            }
+
+            PathPatternsRequestCondition pathPatternsCondition = mappingInfo.getPathPatternsCondition();
+            String pattern = pathPatternsCondition != null //
+                    ? pathPatternsCondition.getMatchingCondition(request).getFirstPattern().getPatternString() //
+                    : mappingInfo.getPatternsCondition().getMatchingCondition(request).getPatterns().iterator().next();
+
+            return PARSER.parse(pattern.replace("/{repository}", repositoryBasePath));
+        }
+    }
+}
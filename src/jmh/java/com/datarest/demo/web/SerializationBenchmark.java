@@ -0,0 +1,106 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Author;
+import com.datarest.demo.dal.AuthorRepository;
+import com.datarest.demo.dal.Customer;
+import com.datarest.demo.dal.CustomerRepository;
+import com.datarest.demo.dal.Order;
+import com.datarest.demo.dal.OrderRepository;
+import com.datarest.demo.dal.OrderStatus;
+import com.datarest.demo.dal.Orderline;
+import com.datarest.demo.dal.Product;
+import com.datarest.demo.dal.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.repository.support.RepositoryInvokerFactory;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks rendering {@link Order} aggregates, initialized with the default {@link FetchPlan}, with the
+ * {@link com.fasterxml.jackson.databind.ObjectMapper} used for {@code application/json} responses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final int ORDERLINES = 3;
+
+    @Param({"1", "20"})
+    int orders;
+
+    ObjectWriter writer;
+    Object payload;
+
+    @Setup
+    public void setUp(ApplicationState application) {
+
+        OrderRepository orderRepository = application.getBean(OrderRepository.class);
+        CustomerRepository customerRepository = application.getBean(CustomerRepository.class);
+        AuthorRepository authorRepository = application.getBean(AuthorRepository.class);
+        ProductRepository productRepository = application.getBean(ProductRepository.class);
+
+        List<Long> ids = new ArrayList<>();
+
+        for (int i = 0; i < orders; i++) {
+
+            Customer customer = customerRepository.save(Customer.builder().name("Customer " + i).build());
+            Author author = authorRepository.save(Author.builder().firstName("First " + i).lastName("Last " + i)
+                    .build());
+            Product product = productRepository.save(Product.builder().title("Product " + i)
+                    .price(BigDecimal.valueOf(i)).author(author).build());
+            Order order = Order.builder().customer(customer).deliverDate(LocalDate.now().plusDays(i))
+                    .orderStatus(OrderStatus.DRAFT).build();
+
+            for (int j = 0; j < ORDERLINES; j++) {
+                order.add(Orderline.builder().product(product).amount(j + 1).build());
+            }
+
+            ids.add(orderRepository.save(order).getId());
+        }
+
+        JpaRepositoryInvoker invoker = (JpaRepositoryInvoker) application
+                .getBean("repositoryInvokerFactory", RepositoryInvokerFactory.class).getInvokerFor(Order.class);
+        TransactionTemplate transactions = new TransactionTemplate(application.getBean(PlatformTransactionManager.class));
+
+        List<Order> aggregates = transactions.execute(status -> {
+
+            List<Order> result = new ArrayList<>();
+            orderRepository.findAllById(ids).forEach(result::add);
+            invoker.getFetchPlan(null).apply(result);
+
+            return result;
+        });
+
+        payload = orders == 1 ? aggregates.get(0) : aggregates;
+        writer = application.getBean("jacksonHttpMessageConverter", MappingJackson2HttpMessageConverter.class)
+                .getObjectMapper().writer();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return writer.writeValueAsBytes(payload);
+    }
+}
@@ -1,10 +1,19 @@
 package com.datarest.demo.dal;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.*;
+import java.time.Instant;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@EntityListeners(AuditingEntityListener.class)
 @Builder
 @Getter
 @Setter
@@ -13,8 +22,17 @@ import javax.persistence.*;
 @Table(name = "customer_table")
 public class Customer {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
-
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = PooledSequenceGenerator.NAME)
     private Long id;
+
+    @Version
+    private Long version;
+
     private String name;
+
+    @CreatedDate
+    @Column(updatable = false)
+    private Instant createdDate;
+    @LastModifiedDate
+    private Instant modifiedDate;
 }
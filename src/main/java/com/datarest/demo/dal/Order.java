@@ -1,13 +1,24 @@
 package com.datarest.demo.dal;
 
 import lombok.*;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.*;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@NamedEntityGraph(name = "Order.default", attributeNodes = {
+        @NamedAttributeNode("customer"),
+        @NamedAttributeNode(value = "orderlines", subgraph = "orderline")}, subgraphs = {
+        @NamedSubgraph(name = "orderline", attributeNodes = @NamedAttributeNode(value = "product", subgraph = "product")),
+        @NamedSubgraph(name = "product", attributeNodes = @NamedAttributeNode("author"))})
+@NamedEntityGraph(name = "Order.summary")
+@EntityListeners(AuditingEntityListener.class)
 @Builder
 @Getter
 @Setter
@@ -16,16 +27,25 @@ import java.util.List;
 @Table(name = "order_table")
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = PooledSequenceGenerator.NAME)
     private Long id;
 
-    @ManyToOne
+    @Version
+    private Long version;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     private Customer customer;
 
     private LocalDate deliverDate;
 
     private OrderStatus orderStatus;
 
+    @CreatedDate
+    @Column(updatable = false)
+    private Instant createdDate;
+    @LastModifiedDate
+    private Instant modifiedDate;
+
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     private List<Orderline> orderlines = new ArrayList<>();
@@ -2,11 +2,18 @@ package com.datarest.demo.dal;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.*;
+import java.time.Instant;
 import java.math.BigDecimal;
 
 @Entity
+@NamedEntityGraph(name = "Orderline.default", attributeNodes = @NamedAttributeNode(value = "product", subgraph = "product"),
+        subgraphs = @NamedSubgraph(name = "product", attributeNodes = @NamedAttributeNode("author")))
+@EntityListeners(AuditingEntityListener.class)
 @Builder
 @Getter
 @Setter
@@ -15,20 +22,29 @@ import java.math.BigDecimal;
 @Table(name = "orderline_table")
 public class Orderline {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
-
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = PooledSequenceGenerator.NAME)
     private Long id;
+
+    @Version
+    private Long version;
+
     private long amount = 0;
 
     @JsonInclude(JsonInclude.Include.NON_NULL)
     @Transient
     private BigDecimal cost;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Product product;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Order order;
 
+    @CreatedDate
+    @Column(updatable = false)
+    private Instant createdDate;
+    @LastModifiedDate
+    private Instant modifiedDate;
+
     public BigDecimal getCost() {
         return product.getPrice().multiply(BigDecimal.valueOf(amount));
     }
@@ -0,0 +1,40 @@
+package com.datarest.demo.dal;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * A {@link org.springframework.data.rest.core.event.RepositoryEvent} stored in the outbox within the transaction of the
+ * write it was published for, until it is dispatched. Its {@code position} is taken from the {@link OutboxLane} of its
+ * domain type as the transaction commits, so the events of a domain type are dispatched in the order their writes
+ * committed.
+ */
+@Entity
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "outbox_event", indexes = @Index(columnList = "domainType, position"))
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = PooledSequenceGenerator.NAME)
+    private Long id;
+
+    @Column(nullable = false)
+    private String domainType;
+
+    @Column(nullable = false)
+    private String eventType;
+
+    @Lob
+    @Column(nullable = false)
+    private String payload;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdDate;
+
+    private Long position;
+}
@@ -0,0 +1,24 @@
+package com.datarest.demo.dal;
+
+import lombok.*;
+
+import javax.persistence.*;
+
+/**
+ * The position of the last {@link OutboxEvent} of a domain type. A committing transaction locks the lane of each domain
+ * type it stored events of and takes the next positions from it, so positions follow the order of the commits.
+ */
+@Entity
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "outbox_lane")
+public class OutboxLane {
+    @Id
+    private String domainType;
+
+    @Column(nullable = false)
+    private long position;
+}
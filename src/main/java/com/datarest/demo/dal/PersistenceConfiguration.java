@@ -0,0 +1,14 @@
+package com.datarest.demo.dal;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+
+/**
+ * Enables JPA auditing, so the {@link org.springframework.data.annotation.CreatedDate} and
+ * {@link org.springframework.data.annotation.LastModifiedDate} properties of the entities are maintained and the
+ * latter backs the {@code Last-Modified} header of item resources.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableJpaAuditing
+public class PersistenceConfiguration {
+}
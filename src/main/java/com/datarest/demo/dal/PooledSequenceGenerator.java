@@ -0,0 +1,53 @@
+package com.datarest.demo.dal;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * {@link SequenceStyleGenerator} allocating identifiers in blocks from one database sequence per entity, e.g.
+ * {@code Order_SEQ}. The sequence is incremented by the block size and the {@code pooled-lo} optimizer hands out the
+ * values of a block in memory, so only every n-th insert needs a round trip and inserts can be batched. As every
+ * instance reserves its blocks through the sequence, instances sharing one database never hand out the same identifier.
+ * <p>
+ * The block size defaults to {@value #DEFAULT_BLOCK_SIZE} and can be configured through the Hibernate settings
+ * {@value #BLOCK_SIZE_SETTING} and, per entity, {@code demo.id.block_size.<entity name>}. It must match the increment
+ * of an existing sequence.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String NAME = "pooled";
+    public static final String STRATEGY = "com.datarest.demo.dal.PooledSequenceGenerator";
+
+    static final String BLOCK_SIZE_SETTING = "demo.id.block_size";
+    static final int DEFAULT_BLOCK_SIZE = 50;
+
+    /*
+     * (non-Javadoc)
+     * @see org.hibernate.id.enhanced.SequenceStyleGenerator#configure(org.hibernate.type.Type, java.util.Properties, org.hibernate.service.ServiceRegistry)
+     */
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+
+        Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        Object blockSize = settings.get(BLOCK_SIZE_SETTING + "." + params.getProperty(JPA_ENTITY_NAME));
+
+        if (blockSize == null) {
+            blockSize = settings.get(BLOCK_SIZE_SETTING);
+        }
+
+        Properties parameters = new Properties();
+        parameters.putAll(params);
+        parameters.putIfAbsent(CONFIG_PREFER_SEQUENCE_PER_ENTITY, "true");
+        parameters.putIfAbsent(INCREMENT_PARAM, blockSize == null ? String.valueOf(DEFAULT_BLOCK_SIZE) : blockSize.toString());
+        parameters.putIfAbsent(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+
+        super.configure(type, parameters, serviceRegistry);
+    }
+}
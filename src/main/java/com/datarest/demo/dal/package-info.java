@@ -0,0 +1,8 @@
+/**
+ * Entities and repositories of the demo domain, along with the entities backing the event outbox. Identifiers are
+ * allocated by the {@link PooledSequenceGenerator} registered here for all entities.
+ */
+@GenericGenerator(name = PooledSequenceGenerator.NAME, strategy = PooledSequenceGenerator.STRATEGY)
+package com.datarest.demo.dal;
+
+import org.hibernate.annotations.GenericGenerator;
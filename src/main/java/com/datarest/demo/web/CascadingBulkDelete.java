@@ -0,0 +1,285 @@
+package com.datarest.demo.web;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+import org.springframework.util.ReflectionUtils;
+
+import javax.persistence.CascadeType;
+import javax.persistence.EntityListeners;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.ManyToMany;
+import javax.persistence.OneToMany;
+import javax.persistence.PostRemove;
+import javax.persistence.PreRemove;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+import java.io.Serializable;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Deletes entities together with the entities of their cascaded collections using bulk JPQL statements, so neither the
+ * entities nor their collections are loaded. Collections mapped by a foreign key on the child are deleted before the
+ * parent, collections mapped through a join table after it, as Hibernate removes the join table rows along with the
+ * parent. References from such children back to the parent are cleared first. Must be called within a transaction.
+ * <p>
+ * Bulk statements bypass the persistence context, so entities already managed by it are not removed from it. They
+ * also skip what Hibernate does when removing an entity, so the version of the deleted entity is checked up front by
+ * an update locking its row, and the deleted entities and their collections are evicted from the second-level cache
+ * once the transaction completes. Types with remove callbacks cannot be deleted this way, see {@link #isApplicable(Class)}.
+ */
+class CascadingBulkDelete {
+
+    private final EntityManager entityManager;
+
+    /**
+     * Creates a new {@link CascadingBulkDelete}.
+     *
+     * @param entityManager must not be {@literal null}.
+     */
+    CascadingBulkDelete(EntityManager entityManager) {
+
+        Assert.notNull(entityManager, "EntityManager must not be null!");
+
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Returns whether entities of the given type can be deleted in bulk, i.e. neither the type nor any of its cascaded
+     * children declare {@link PreRemove} or {@link PostRemove} callbacks, which bulk statements would not invoke.
+     *
+     * @param domainType must not be {@literal null}.
+     * @return
+     */
+    boolean isApplicable(Class<?> domainType) {
+
+        Assert.notNull(domainType, "Domain type must not be null!");
+
+        return isApplicable(entityManager.getMetamodel().entity(domainType), new HashSet<>());
+    }
+
+    /**
+     * Deletes the given entity and its cascaded children. If the entity is versioned, nothing is deleted unless its
+     * version is still the given entity's one.
+     *
+     * @param entity must not be {@literal null}.
+     * @return the number of deleted entities of the given entity's type.
+     * @throws ObjectOptimisticLockingFailureException if the entity was modified or deleted concurrently.
+     */
+    int delete(Object entity) {
+
+        Assert.notNull(entity, "Entity must not be null!");
+
+        Object target = Hibernate.unproxy(entity);
+        EntityType<?> type = entityManager.getMetamodel().entity(target.getClass());
+        Object id = entityManager.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(target);
+        SingularAttribute<?, ?> versionAttribute = getVersionAttribute(type);
+        Object version = versionAttribute == null ? null //
+                : PropertyAccessorFactory.forDirectFieldAccess(target).getPropertyValue(versionAttribute.getName());
+
+        // Locks the row if the version still matches, before any of the children are deleted
+        if (version != null && entityManager.createQuery(String.format(
+                        "update %1$s p set p.%2$s = p.%2$s where p.%3$s = :id and p.%2$s = :version", type.getName(),
+                        versionAttribute.getName(), getIdAttribute(type).getName())) //
+                .setParameter("id", id) //
+                .setParameter("version", version) //
+                .executeUpdate() == 0) {
+            throw new ObjectOptimisticLockingFailureException(type.getJavaType(), id);
+        }
+
+        Eviction eviction = new Eviction(entityManager.getEntityManagerFactory());
+        int deleted = delete(type, Collections.singleton(id), eviction);
+
+        eviction.register();
+
+        return deleted;
+    }
+
+    private int delete(EntityType<?> type, Collection<?> ids, Eviction eviction) {
+
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        String idAttribute = getIdAttribute(type).getName();
+        List<Runnable> afterParent = new ArrayList<>();
+
+        for (PluralAttribute<?, ?, ?> attribute : type.getPluralAttributes()) {
+
+            AnnotatedElement member = (AnnotatedElement) attribute.getJavaMember();
+
+            if (!(attribute.getElementType() instanceof EntityType) || !isCascadingRemove(member)) {
+                continue;
+            }
+
+            EntityType<?> childType = (EntityType<?>) attribute.getElementType();
+            List<?> childIds = entityManager.createQuery(String.format("select c.%s from %s p join p.%s c where p.%s in :ids",
+                            getIdAttribute(childType).getName(), type.getName(), attribute.getName(), idAttribute)) //
+                    .setParameter("ids", ids) //
+                    .getResultList();
+
+            eviction.addCollection(type.getJavaType().getName() + "." + attribute.getName(), ids);
+
+            if (isMappedByChild(member)) {
+                delete(childType, childIds, eviction);
+            } else {
+                clearReferences(childType, type, childIds);
+                afterParent.add(() -> delete(childType, childIds, eviction));
+            }
+        }
+
+        int deleted = entityManager.createQuery(String.format("delete from %s p where p.%s in :ids", type.getName(), idAttribute)) //
+                .setParameter("ids", ids) //
+                .executeUpdate();
+
+        eviction.addEntities(type.getJavaType(), ids);
+        afterParent.forEach(Runnable::run);
+
+        return deleted;
+    }
+
+    private void clearReferences(EntityType<?> childType, EntityType<?> parentType, List<?> childIds) {
+
+        if (childIds.isEmpty()) {
+            return;
+        }
+
+        for (SingularAttribute<?, ?> attribute : childType.getSingularAttributes()) {
+
+            if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.MANY_TO_ONE
+                    || !attribute.getJavaType().equals(parentType.getJavaType())) {
+                continue;
+            }
+
+            entityManager.createQuery(String.format("update %s c set c.%s = null where c.%s in :ids", childType.getName(),
+                            attribute.getName(), getIdAttribute(childType).getName())) //
+                    .setParameter("ids", childIds) //
+                    .executeUpdate();
+        }
+    }
+
+    private static SingularAttribute<?, ?> getIdAttribute(EntityType<?> type) {
+        return type.getId(type.getIdType().getJavaType());
+    }
+
+    private static SingularAttribute<?, ?> getVersionAttribute(EntityType<?> type) {
+
+        return type.getSingularAttributes().stream() //
+                .filter(SingularAttribute::isVersion) //
+                .findFirst() //
+                .orElse(null);
+    }
+
+    private static boolean isApplicable(EntityType<?> type, Set<EntityType<?>> visited) {
+
+        if (!visited.add(type)) {
+            return true;
+        }
+
+        if (hasRemoveCallbacks(type.getJavaType())) {
+            return false;
+        }
+
+        EntityListeners listeners = type.getJavaType().getAnnotation(EntityListeners.class);
+
+        if (listeners != null && Arrays.stream(listeners.value()).anyMatch(CascadingBulkDelete::hasRemoveCallbacks)) {
+            return false;
+        }
+
+        return type.getPluralAttributes().stream() //
+                .filter(it -> it.getElementType() instanceof EntityType) //
+                .filter(it -> isCascadingRemove((AnnotatedElement) it.getJavaMember())) //
+                .allMatch(it -> isApplicable((EntityType<?>) it.getElementType(), visited));
+    }
+
+    private static boolean hasRemoveCallbacks(Class<?> type) {
+
+        for (Method method : ReflectionUtils.getAllDeclaredMethods(type)) {
+            if (method.isAnnotationPresent(PreRemove.class) || method.isAnnotationPresent(PostRemove.class)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isCascadingRemove(AnnotatedElement member) {
+
+        OneToMany oneToMany = member.getAnnotation(OneToMany.class);
+
+        if (oneToMany != null) {
+            return oneToMany.orphanRemoval() || isCascadingRemove(oneToMany.cascade());
+        }
+
+        ManyToMany manyToMany = member.getAnnotation(ManyToMany.class);
+
+        return manyToMany != null && isCascadingRemove(manyToMany.cascade());
+    }
+
+    private static boolean isCascadingRemove(CascadeType[] cascade) {
+        return Arrays.stream(cascade).anyMatch(it -> it == CascadeType.ALL || it == CascadeType.REMOVE);
+    }
+
+    private static boolean isMappedByChild(AnnotatedElement member) {
+
+        OneToMany oneToMany = member.getAnnotation(OneToMany.class);
+
+        return oneToMany != null && !oneToMany.mappedBy().isEmpty();
+    }
+
+    /**
+     * Evicts the deleted entities and the collections they owned from the second-level cache, along with the cached
+     * query results, once the transaction completes, so concurrent readers cannot cache them again before.
+     */
+    private static class Eviction {
+
+        private final EntityManagerFactory entityManagerFactory;
+        private final List<Runnable> evictions = new ArrayList<>();
+
+        Eviction(EntityManagerFactory entityManagerFactory) {
+            this.entityManagerFactory = entityManagerFactory;
+        }
+
+        void addEntities(Class<?> type, Collection<?> ids) {
+            ids.forEach(id -> evictions.add(() -> entityManagerFactory.getCache().evict(type, id)));
+        }
+
+        void addCollection(String role, Collection<?> ownerIds) {
+
+            ownerIds.forEach(id -> evictions.add(() -> entityManagerFactory.unwrap(SessionFactory.class).getCache()
+                    .evictCollectionData(role, (Serializable) id)));
+        }
+
+        void register() {
+
+            evictions.add(() -> entityManagerFactory.unwrap(SessionFactory.class).getCache().evictDefaultQueryRegion());
+
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+                /*
+                 * (non-Javadoc)
+                 * @see org.springframework.transaction.support.TransactionSynchronization#afterCompletion(int)
+                 */
+                @Override
+                public void afterCompletion(int status) {
+                    evictions.forEach(Runnable::run);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,588 @@
+package com.datarest.demo.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.mapping.PersistentEntity;
+import org.springframework.data.mapping.context.PersistentEntities;
+import org.springframework.data.rest.core.event.AfterCreateEvent;
+import org.springframework.data.rest.core.event.AfterDeleteEvent;
+import org.springframework.data.rest.core.event.AfterSaveEvent;
+import org.springframework.data.rest.core.mapping.ResourceMappings;
+import org.springframework.data.rest.core.mapping.ResourceMetadata;
+import org.springframework.data.util.ProxyUtils;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streams the writes to collection resources as Server-Sent Events if enabled with {@code demo.rest.changes.enabled},
+ * driven by the {@link AfterCreateEvent}s, {@link AfterSaveEvent}s and {@link AfterDeleteEvent}s published for writes
+ * through the API once their transaction committed. Changes are notifications carrying the identifier and version of
+ * the entity written, which clients read the current state of themselves if they need it.
+ * <p>
+ * The most recent changes of each repository are kept in a ring buffer of the configured size, so clients reconnecting
+ * with the {@code Last-Event-ID} of the last change they received are sent the ones they missed. If those are not
+ * retained anymore, or were recorded by another instance, they are sent a {@code reset} event instead, telling them to
+ * read the collection resource again.
+ * <p>
+ * Changes are queued per connection and written by a small pool of threads, so a slow client never holds up writes or
+ * other clients. A connection whose queue exceeds the configured capacity, or whose write blocked for longer than the
+ * write timeout, is closed, and its client resumes from the ring buffer once it reconnected. A thread blocked writing to
+ * such a connection is replaced in the pool until the write returns, as it only does once the container gave up on the
+ * connection.
+ */
+@Component
+public class ChangeFeed implements DisposableBean {
+
+    static final String CREATED = "created";
+    static final String UPDATED = "updated";
+    static final String DELETED = "deleted";
+    static final String RESET = "reset";
+
+    private final CustomRepositoryRestProperties.Changes properties;
+    private final ResourceMappings mappings;
+    private final PersistentEntities entities;
+    private final ObjectMapper mapper;
+    private final String instance = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final Map<String, Feed> feeds = new ConcurrentHashMap<>();
+    private final Set<Subscription> writing = ConcurrentHashMap.newKeySet();
+    private final @Nullable ThreadPoolTaskScheduler scheduler;
+    private final @Nullable ThreadPoolTaskExecutor writers;
+    private int stalledWriters;
+
+    public ChangeFeed(CustomRepositoryRestProperties properties, ResourceMappings mappings,
+                      PersistentEntities entities) {
+
+        Assert.notNull(properties, "CustomRepositoryRestProperties must not be null!");
+        Assert.notNull(mappings, "ResourceMappings must not be null!");
+        Assert.notNull(entities, "PersistentEntities must not be null!");
+
+        this.properties = properties.getChanges();
+        this.mappings = mappings;
+        this.entities = entities;
+        this.mapper = Jackson2ObjectMapperBuilder.json().build();
+        this.scheduler = this.properties.isEnabled() ? createScheduler() : null;
+        this.writers = this.properties.isEnabled() ? createWriters(this.properties) : null;
+
+        if (scheduler != null) {
+            scheduler.scheduleWithFixedDelay(this::heartbeat, this.properties.getHeartbeatInterval());
+            scheduler.scheduleWithFixedDelay(this::checkWrites, this.properties.getWriteTimeout());
+        }
+    }
+
+    /**
+     * Returns whether changes are streamed.
+     *
+     * @return
+     */
+    public boolean isEnabled() {
+        return scheduler != null;
+    }
+
+    /**
+     * Opens a stream of the changes to the given collection resource, starting after the change with the given event
+     * identifier if given.
+     *
+     * @param metadata    must not be {@literal null}.
+     * @param ids         identifiers of the entities to stream the changes of, all if empty, must not be
+     *                    {@literal null}.
+     * @param lastEventId the {@code Last-Event-ID} sent by a reconnecting client, can be {@literal null}.
+     * @return
+     */
+    SseEmitter subscribe(ResourceMetadata metadata, Collection<String> ids, @Nullable String lastEventId) {
+
+        Assert.state(isEnabled(), "Change feed is not enabled!");
+        Assert.notNull(metadata, "ResourceMetadata must not be null!");
+        Assert.notNull(ids, "Identifiers must not be null!");
+
+        SseEmitter emitter = new SseEmitter(properties.getTimeout().toMillis());
+        Feed feed = getFeed(metadata);
+        Subscription subscription = new Subscription(feed, emitter, new HashSet<>(ids));
+
+        emitter.onTimeout(emitter::complete);
+        emitter.onCompletion(subscription::close);
+        emitter.onError(it -> subscription.close());
+
+        feed.subscribe(subscription, StringUtils.hasText(lastEventId) ? lastEventId : null);
+
+        return emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    void on(AfterCreateEvent event) {
+        publish(CREATED, event.getSource());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    void on(AfterSaveEvent event) {
+        publish(UPDATED, event.getSource());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    void on(AfterDeleteEvent event) {
+        publish(DELETED, event.getSource());
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.beans.factory.DisposableBean#destroy()
+     */
+    @Override
+    public void destroy() {
+
+        if (scheduler != null && writers != null) {
+
+            scheduler.shutdown();
+            feeds.values().forEach(Feed::complete);
+            writers.shutdown();
+        }
+    }
+
+    private void publish(String type, Object source) {
+
+        if (scheduler == null) {
+            return;
+        }
+
+        Class<?> domainType = ProxyUtils.getUserClass(source);
+        ResourceMetadata metadata = mappings.getMetadataFor(domainType);
+        PersistentEntity<?, ?> entity = entities.getPersistentEntity(domainType).orElse(null);
+
+        if (metadata == null || !metadata.isExported() || entity == null) {
+            return;
+        }
+
+        Object id = entity.getIdentifierAccessor(source).getIdentifier();
+
+        if (id == null) {
+            return;
+        }
+
+        // Deleted entities may only carry their identifier
+        Object version = !DELETED.equals(type) && entity.hasVersionProperty() //
+                ? entity.getPropertyAccessor(source).getProperty(entity.getRequiredVersionProperty()) //
+                : null;
+
+        getFeed(metadata).publish(type, id, version);
+    }
+
+    private void heartbeat() {
+        feeds.values().forEach(Feed::heartbeat);
+    }
+
+    private void checkWrites() {
+
+        long blockedSince = System.nanoTime() - properties.getWriteTimeout().toNanos();
+
+        writing.forEach(it -> it.checkWrite(blockedSince));
+    }
+
+    /**
+     * Adjusts the size of the writer pool to the given change of the number of threads blocked writing to connections
+     * closed for exceeding the write timeout, so that the others keep their configured number of threads.
+     *
+     * @param delta
+     */
+    private synchronized void stalled(int delta) {
+
+        if (writers == null) {
+            return;
+        }
+
+        stalledWriters += delta;
+        writers.setCorePoolSize(properties.getThreads() + stalledWriters);
+    }
+
+    private Feed getFeed(ResourceMetadata metadata) {
+        return feeds.computeIfAbsent(metadata.getPath().toString(), it -> new Feed(properties.getBufferSize()));
+    }
+
+    private String getEventId(long sequence) {
+        return instance + "-" + sequence;
+    }
+
+    /**
+     * Returns the sequence number of the change with the given event identifier, or {@literal null} if it wasn't
+     * recorded by this instance.
+     *
+     * @param eventId must not be {@literal null}.
+     * @return
+     */
+    @Nullable
+    private Long getSequence(String eventId) {
+
+        int separator = eventId.lastIndexOf('-');
+
+        if (separator < 0 || !instance.equals(eventId.substring(0, separator))) {
+            return null;
+        }
+
+        try {
+            return Long.valueOf(eventId.substring(separator + 1));
+        } catch (NumberFormatException o_O) {
+            return null;
+        }
+    }
+
+    private static ThreadPoolTaskScheduler createScheduler() {
+
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("changes-");
+        scheduler.initialize();
+
+        return scheduler;
+    }
+
+    private static ThreadPoolTaskExecutor createWriters(CustomRepositoryRestProperties.Changes properties) {
+
+        // The pool only grows beyond its core size by replacing stalled threads, so it may never reach its maximum
+        ThreadPoolTaskExecutor writers = new ThreadPoolTaskExecutor();
+        writers.setCorePoolSize(properties.getThreads());
+        writers.setMaxPoolSize(Integer.MAX_VALUE);
+        writers.setDaemon(true);
+        writers.setWaitForTasksToCompleteOnShutdown(true);
+        writers.setThreadNamePrefix("changes-writer-");
+        writers.initialize();
+
+        return writers;
+    }
+
+    /**
+     * A change to an entity, along with its position in the {@link Feed} of its repository.
+     */
+    private static class Change {
+
+        final long sequence;
+        final String type;
+        final String id;
+        final String data;
+
+        Change(long sequence, String type, String id, String data) {
+
+            this.sequence = sequence;
+            this.type = type;
+            this.id = id;
+            this.data = data;
+        }
+    }
+
+    /**
+     * The recent changes of a repository and the connections streaming them. Changes are recorded and handed to the
+     * connections under the lock of the feed, so a connection opened for a client resuming gets every change exactly
+     * once, no matter whether it was replayed from the ring buffer or recorded afterwards.
+     */
+    private class Feed {
+
+        private final Change[] buffer;
+        private final Set<Subscription> subscriptions = new LinkedHashSet<>();
+        private long sequence;
+
+        Feed(int size) {
+
+            Assert.isTrue(size > 0, "Buffer size must be greater than zero!");
+
+            this.buffer = new Change[size];
+        }
+
+        synchronized void publish(String type, Object id, @Nullable Object version) {
+
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("type", type);
+            data.put("id", id);
+            data.put("version", version);
+
+            Change change;
+
+            try {
+                change = new Change(++sequence, type, id.toString(), mapper.writeValueAsString(data));
+            } catch (JsonProcessingException o_O) {
+                throw new UncheckedIOException(o_O);
+            }
+
+            buffer[(int) (change.sequence % buffer.length)] = change;
+            subscriptions.removeIf(it -> !it.offer(change, true));
+        }
+
+        synchronized void subscribe(Subscription subscription, @Nullable String lastEventId) {
+
+            if (lastEventId != null) {
+
+                Long last = getSequence(lastEventId);
+                long oldest = Math.max(1, sequence - buffer.length + 1);
+
+                if (last == null || last < oldest - 1 || last > sequence) {
+                    subscription.reset(getEventId(sequence));
+                } else {
+
+                    for (long next = last + 1; next <= sequence; next++) {
+                        subscription.offer(buffer[(int) (next % buffer.length)], false);
+                    }
+                }
+            }
+
+            subscriptions.add(subscription);
+        }
+
+        synchronized void unsubscribe(Subscription subscription) {
+            subscriptions.remove(subscription);
+        }
+
+        void heartbeat() {
+            getSubscriptions().forEach(Subscription::heartbeat);
+        }
+
+        void complete() {
+            getSubscriptions().forEach(Subscription::complete);
+        }
+
+        private synchronized List<Subscription> getSubscriptions() {
+            return new ArrayList<>(subscriptions);
+        }
+    }
+
+    /**
+     * A connection streaming the changes of a {@link Feed}. Events are queued and sent by a single task at a time,
+     * scheduled whenever the queue becomes non-empty. A connection dropped for being too slow is completed by that task
+     * once the write in progress, if any, returned.
+     */
+    private class Subscription {
+
+        private final Feed feed;
+        private final SseEmitter emitter;
+        private final Set<String> ids;
+        private final Queue<SseEmitter.SseEventBuilder> queue = new ArrayDeque<>();
+        private boolean scheduled;
+        private long writeStarted;
+        private boolean stalled;
+        private boolean dropped;
+        private boolean closed;
+
+        Subscription(Feed feed, SseEmitter emitter, Set<String> ids) {
+
+            this.feed = feed;
+            this.emitter = emitter;
+            this.ids = ids;
+        }
+
+        /**
+         * Queues the given change if it is one the client is interested in.
+         *
+         * @param change  must not be {@literal null}.
+         * @param bounded whether the queue may overflow, {@literal false} when replaying changes.
+         * @return whether the connection is still open.
+         */
+        synchronized boolean offer(Change change, boolean bounded) {
+
+            if (closed) {
+                return false;
+            }
+
+            if (!ids.isEmpty() && !ids.contains(change.id)) {
+                return true;
+            }
+
+            if (bounded && queue.size() >= properties.getQueueCapacity()) {
+
+                drop();
+
+                return false;
+            }
+
+            queue.add(SseEmitter.event() //
+                    .id(getEventId(change.sequence)) //
+                    .name(change.type) //
+                    .data(change.data));
+
+            schedule();
+
+            return true;
+        }
+
+        synchronized void reset(String eventId) {
+
+            queue.add(SseEmitter.event().id(eventId).name(RESET).data("{}"));
+
+            schedule();
+        }
+
+        synchronized void heartbeat() {
+
+            if (closed || !queue.isEmpty()) {
+                return;
+            }
+
+            queue.add(SseEmitter.event().comment(""));
+
+            schedule();
+        }
+
+        /**
+         * Drops the connection if the write in progress started before the given time, even if it was dropped for
+         * overflowing its queue meanwhile, to replace the thread blocked writing to it.
+         *
+         * @param blockedSince the {@link System#nanoTime()} writes must have started after.
+         */
+        void checkWrite(long blockedSince) {
+
+            synchronized (this) {
+
+                if (stalled || !writing.contains(this) || writeStarted - blockedSince > 0) {
+                    return;
+                }
+
+                stalled = true;
+
+                if (!closed) {
+                    drop();
+                }
+            }
+
+            feed.unsubscribe(this);
+            stalled(1);
+        }
+
+        synchronized void complete() {
+
+            if (!closed) {
+                drop();
+            }
+        }
+
+        void close() {
+
+            synchronized (this) {
+
+                if (closed) {
+                    return;
+                }
+
+                closed = true;
+                queue.clear();
+            }
+
+            feed.unsubscribe(this);
+        }
+
+        private void written(boolean sent) {
+
+            boolean blocked;
+
+            synchronized (this) {
+
+                writing.remove(this);
+                blocked = stalled;
+                stalled = false;
+
+                if (!sent) {
+                    scheduled = false;
+                }
+            }
+
+            if (blocked) {
+                // The write blocked past the write timeout returned, the pool shrinks back to its size
+                stalled(-1);
+            }
+        }
+
+        /**
+         * Closes the connection for its task to complete, without waiting for the write in progress to return.
+         */
+        private void drop() {
+
+            closed = true;
+            dropped = true;
+            queue.clear();
+
+            schedule();
+        }
+
+        private void schedule() {
+
+            if (scheduled) {
+                return;
+            }
+
+            try {
+
+                writers.execute(this::drain);
+                scheduled = true;
+
+            } catch (TaskRejectedException o_O) {
+                // Shutting down
+            }
+        }
+
+        private void drain() {
+
+            while (true) {
+
+                SseEmitter.SseEventBuilder event;
+
+                synchronized (this) {
+
+                    event = closed ? null : queue.poll();
+
+                    if (event == null) {
+
+                        scheduled = false;
+
+                        if (dropped) {
+                            break;
+                        }
+
+                        return;
+                    }
+
+                    writeStarted = System.nanoTime();
+                    writing.add(this);
+                }
+
+                boolean sent = false;
+
+                try {
+
+                    emitter.send(event);
+                    sent = true;
+
+                } catch (IOException | IllegalStateException o_O) {
+                    // The connection is gone, the container reports it to the emitter as well
+                } finally {
+                    written(sent);
+                }
+
+                if (!sent) {
+
+                    close();
+
+                    return;
+                }
+            }
+
+            // Too slow, the client resumes from the ring buffer once reconnected
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.datarest.demo.web;
+
+import org.springframework.data.rest.core.mapping.ResourceType;
+import org.springframework.data.rest.webmvc.RepositoryRestController;
+import org.springframework.data.rest.webmvc.ResourceNotFoundException;
+import org.springframework.data.rest.webmvc.RootResourceInformation;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
+import org.springframework.web.HttpRequestMethodNotSupportedException;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Exposes the {@link ChangeFeed} of each collection resource as {@code /api/{repository}/changes}.
+ */
+@RepositoryRestController
+public class ChangeFeedController {
+
+    private static final String BASE_MAPPING = "api/{repository}/changes";
+    private static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+    private static final String ID_PARAM = "id";
+
+    private final ChangeFeed changeFeed;
+
+    public ChangeFeedController(ChangeFeed changeFeed) {
+
+        Assert.notNull(changeFeed, "ChangeFeed must not be null!");
+
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * <code>GET /{repository}/changes</code> - Streams the changes to the collection resource as Server-Sent Events,
+     * optionally only the ones of the entities with the given identifiers.
+     *
+     * @param resourceInformation
+     * @param ids
+     * @param lastEventId
+     * @return
+     * @throws ResourceNotFoundException
+     * @throws HttpRequestMethodNotSupportedException
+     */
+    @RequestMapping(value = BASE_MAPPING, method = RequestMethod.GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getChanges(RootResourceInformation resourceInformation,
+                                 @RequestParam(value = ID_PARAM, required = false) List<String> ids,
+                                 @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventId)
+            throws ResourceNotFoundException, HttpRequestMethodNotSupportedException {
+
+        if (!changeFeed.isEnabled()) {
+            throw new ResourceNotFoundException();
+        }
+
+        resourceInformation.verifySupportedMethod(HttpMethod.GET, ResourceType.COLLECTION);
+
+        return changeFeed.subscribe(resourceInformation.getResourceMetadata(),
+                ids == null ? Collections.emptyList() : ids, lastEventId);
+    }
+}
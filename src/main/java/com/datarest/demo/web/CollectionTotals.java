@@ -0,0 +1,100 @@
+package com.datarest.demo.web;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.data.rest.core.event.AfterCreateEvent;
+import org.springframework.data.rest.core.event.AfterDeleteEvent;
+import org.springframework.data.rest.core.mapping.ResourceMetadata;
+import org.springframework.data.util.ProxyUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Approximate total number of elements per collection resource, so paged responses of the repositories configured in
+ * {@link CustomRepositoryRestProperties.Totals} don't need a {@code COUNT} query per request. A total is counted once,
+ * kept current from the {@link AfterCreateEvent}s and {@link AfterDeleteEvent}s published for writes through the API,
+ * and recounted after the configured refresh interval to bound the drift caused by writes bypassing the API.
+ */
+@Component
+public class CollectionTotals {
+
+    private final CustomRepositoryRestProperties.Totals properties;
+    private final Map<Class<?>, Total> totals = new ConcurrentHashMap<>();
+
+    public CollectionTotals(CustomRepositoryRestProperties properties) {
+
+        Assert.notNull(properties, "CustomRepositoryRestProperties must not be null!");
+
+        this.properties = properties.getTotals();
+    }
+
+    /**
+     * Returns whether totals are cached for the given collection resource.
+     *
+     * @param metadata must not be {@literal null}.
+     * @return
+     */
+    public boolean isCached(ResourceMetadata metadata) {
+        return properties.getRepositories().stream().anyMatch(it -> metadata.getPath().matches(it));
+    }
+
+    /**
+     * Returns the cached total for the given domain type, obtaining it from the given counter if it is not cached yet
+     * or has expired.
+     *
+     * @param domainType must not be {@literal null}.
+     * @param counter    must not be {@literal null}.
+     * @return
+     */
+    public long getTotal(Class<?> domainType, LongSupplier counter) {
+
+        Instant now = Instant.now();
+        Total total = totals.get(domainType);
+
+        if (total == null || total.isExpired(now)) {
+            total = new Total(counter.getAsLong(), now.plus(properties.getRefreshInterval()));
+            totals.put(domainType, total);
+        }
+
+        return total.value.get();
+    }
+
+    @EventListener
+    public void onAfterCreate(AfterCreateEvent event) {
+        adjust(event.getSource(), 1);
+    }
+
+    @EventListener
+    public void onAfterDelete(AfterDeleteEvent event) {
+        adjust(event.getSource(), -1);
+    }
+
+    private void adjust(Object entity, long delta) {
+
+        Total total = totals.get(ProxyUtils.getUserClass(entity));
+
+        if (total != null) {
+            total.value.updateAndGet(it -> Math.max(0, it + delta));
+        }
+    }
+
+    private static class Total {
+
+        private final AtomicLong value;
+        private final Instant expiry;
+
+        Total(long value, Instant expiry) {
+            this.value = new AtomicLong(value);
+            this.expiry = expiry;
+        }
+
+        boolean isExpired(Instant now) {
+            return !now.isBefore(expiry);
+        }
+    }
+}
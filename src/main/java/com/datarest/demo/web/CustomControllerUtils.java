@@ -3,7 +3,9 @@ package com.datarest.demo.web;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 
 import java.util.Optional;
 
@@ -59,4 +61,33 @@ public class CustomControllerUtils {
     public static ResponseEntity<?> toEmptyResponse(HttpStatus status, HttpHeaders headers) {
         return toResponseEntity(status, headers, Optional.empty());
     }
+
+    /**
+     * Returns whether the given {@code Prefer} header (RFC 7240) contains the given preference, e.g.
+     * {@code return=minimal}. Preference parameters following a {@code ;} are ignored.
+     *
+     * @param preferHeader can be {@literal null}.
+     * @param preference   must not be {@literal null}.
+     * @return
+     */
+    public static boolean hasPreference(@Nullable String preferHeader, String preference) {
+
+        Assert.notNull(preference, "Preference must not be null!");
+
+        if (!StringUtils.hasText(preferHeader)) {
+            return false;
+        }
+
+        for (String candidate : StringUtils.commaDelimitedListToStringArray(preferHeader)) {
+
+            int parameters = candidate.indexOf(';');
+            String token = (parameters == -1 ? candidate : candidate.substring(0, parameters)).trim();
+
+            if (token.replace(" ", "").replace("\"", "").equalsIgnoreCase(preference)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
 }
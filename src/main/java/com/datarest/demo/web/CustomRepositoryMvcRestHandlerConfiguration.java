@@ -1,23 +1,39 @@
 package com.datarest.demo.web;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.data.geo.GeoModule;
+import org.springframework.data.mapping.context.PersistentEntities;
 import org.springframework.data.repository.support.Repositories;
+import org.springframework.data.repository.support.RepositoryInvokerFactory;
 import org.springframework.data.rest.core.config.RepositoryRestConfiguration;
+import org.springframework.data.rest.core.event.ValidatingRepositoryEventListener;
 import org.springframework.data.rest.core.mapping.RepositoryResourceMappings;
+import org.springframework.data.rest.core.support.SelfLinkProvider;
 import org.springframework.data.rest.webmvc.BasePathAwareHandlerMapping;
 import org.springframework.data.rest.webmvc.alps.AlpsJsonHttpMessageConverter;
 import org.springframework.data.rest.webmvc.config.CorsConfigurationAware;
 import org.springframework.data.rest.webmvc.config.DelegatingHandlerMapping;
+import org.springframework.data.rest.webmvc.config.PersistentEntityResourceHandlerMethodArgumentResolver;
+import org.springframework.data.rest.webmvc.config.RepositoryRestConfigurer;
 import org.springframework.data.rest.webmvc.config.RepositoryRestMvcConfiguration;
+import org.springframework.data.rest.webmvc.config.RootResourceInformationHandlerMethodArgumentResolver;
 import org.springframework.data.rest.webmvc.convert.UriListHttpMessageConverter;
 import org.springframework.data.rest.webmvc.support.JpaHelper;
 import org.springframework.data.web.config.EnableSpringDataWebSupport;
@@ -29,18 +45,27 @@ import org.springframework.hateoas.mediatype.hal.HalConfiguration;
 import org.springframework.hateoas.server.LinkRelationProvider;
 import org.springframework.hateoas.server.mvc.RepresentationModelProcessorInvoker;
 import org.springframework.hateoas.server.mvc.TypeConstrainedMappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.util.pattern.PathPatternParser;
 
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import java.time.Clock;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 @Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(CustomRepositoryRestProperties.class)
 @Import({SpringDataJacksonConfiguration.class, //
         EnableSpringDataWebSupport.QuerydslActivator.class})
 public class CustomRepositoryMvcRestHandlerConfiguration extends RepositoryRestMvcConfiguration {
@@ -64,12 +89,227 @@ public class CustomRepositoryMvcRestHandlerConfiguration extends RepositoryRestM
         this.parser = parser1;
     }
 
+    @Bean
+    @Qualifier
+    @Override
+    public RepositoryInvokerFactory repositoryInvokerFactory() {
+
+        return new JpaRepositoryInvokerFactory(super.repositoryInvokerFactory(),
+                applicationContext.getBeanProvider(Repositories.class),
+                applicationContext.getBeanProvider(EntityManagerFactory.class),
+                () -> applicationContext.getBean("defaultConversionService", ConversionService.class));
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.data.rest.webmvc.config.RepositoryRestMvcConfiguration#defaultMethodArgumentResolvers(org.springframework.data.rest.core.support.SelfLinkProvider, org.springframework.data.rest.webmvc.config.PersistentEntityResourceHandlerMethodArgumentResolver, org.springframework.data.rest.webmvc.config.RootResourceInformationHandlerMethodArgumentResolver)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    protected List<HandlerMethodArgumentResolver> defaultMethodArgumentResolvers(SelfLinkProvider selfLinkProvider,
+                                                                                 PersistentEntityResourceHandlerMethodArgumentResolver persistentEntityArgumentResolver,
+                                                                                 RootResourceInformationHandlerMethodArgumentResolver repoRequestArgumentResolver) {
+
+        List<HandlerMethodArgumentResolver> resolvers = new ArrayList<>(super.defaultMethodArgumentResolvers(
+                selfLinkProvider, persistentEntityArgumentResolver, repoRequestArgumentResolver));
+        resolvers.add(new PersistentEntityResourcesHandlerMethodArgumentResolver(persistentEntityArgumentResolver,
+                () -> applicationContext.getBean("defaultMessageConverters", List.class)));
+
+        if (applicationContext.getEnvironment().getProperty(RequestTracing.ENABLED_PROPERTY, Boolean.class, false)) {
+            resolvers.replaceAll(RequestTracing.ArgumentResolver::new);
+        }
+
+        return resolvers;
+    }
+
+    /**
+     * Lets {@link RepositoryEvents} tell whether anyone listens to a repository event.
+     *
+     * @return
+     */
+    @Bean
+    RepositoryEventMulticaster repositoryEventMulticaster() {
+        return new RepositoryEventMulticaster(applicationContext);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.data.rest.webmvc.config.RepositoryRestMvcConfiguration#validatingRepositoryEventListener(org.springframework.beans.factory.ObjectFactory)
+     */
+    @Bean
+    @Override
+    public ValidatingRepositoryEventListener validatingRepositoryEventListener(
+            ObjectFactory<PersistentEntities> entities) {
+
+        ValidatingRepositoryEventListener listener = new RepositoryEventMulticaster.ValidatingListener(entities);
+        applicationContext.getBeanProvider(RepositoryRestConfigurer.class).orderedStream() //
+                .forEach(it -> it.configureValidatingRepositoryEventListener(listener));
+
+        return listener;
+    }
+
+    /**
+     * Registers the {@link Hibernate5Module} so associations left uninitialized by the {@link FetchPlan} of a request are
+     * rendered as their identifiers instead of being loaded one by one during serialization.
+     *
+     * @return
+     */
+    @Bean
+    public RepositoryRestConfigurer hibernateModuleConfigurer() {
+
+        return new RepositoryRestConfigurer() {
+
+            @Override
+            public void configureJacksonObjectMapper(ObjectMapper objectMapper) {
+
+                objectMapper.registerModule(new Hibernate5Module() //
+                        .configure(Hibernate5Module.Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS, true) //
+                        .configure(Hibernate5Module.Feature.USE_TRANSIENT_ANNOTATION, false));
+            }
+        };
+    }
+
+    /**
+     * Registers a {@link ByteArrayHttpMessageConverter} ahead of the JSON converters, so bodies taken from the
+     * {@link ItemResponseCache} are written as they are.
+     *
+     * @return
+     */
+    @Bean
+    public RepositoryRestConfigurer itemResponseCacheConfigurer() {
+
+        return new RepositoryRestConfigurer() {
+
+            @Override
+            public void configureHttpMessageConverters(List<HttpMessageConverter<?>> messageConverters) {
+                messageConverters.add(0, new ByteArrayHttpMessageConverter());
+            }
+        };
+    }
+
+    /**
+     * Records the requests handled by {@link CustomRepositoryRestController} per repository, HTTP method and resource
+     * type.
+     *
+     * @param registry must not be {@literal null}.
+     * @return
+     */
+    @Bean
+    RepositoryRequestMetrics repositoryRequestMetrics(MeterRegistry registry) {
+        return new RepositoryRequestMetrics(registry);
+    }
+
+    /**
+     * Records the phases of requests handled by {@link CustomRepositoryRestController} if tracing is enabled.
+     *
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(RequestTracing.ENABLED_PROPERTY)
+    RequestTracing requestTracing() {
+        return new RequestTracing();
+    }
+
+    /**
+     * Starts the traces of requests for repository resources and renders them as {@code Server-Timing} header if
+     * tracing is enabled.
+     *
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(RequestTracing.ENABLED_PROPERTY)
+    FilterRegistrationBean<RequestTracing.Filter> requestTracingFilter() {
+
+        FilterRegistrationBean<RequestTracing.Filter> registration = new FilterRegistrationBean<>(
+                new RequestTracing.Filter());
+        registration.addUrlPatterns("/api/*");
+
+        return registration;
+    }
+
+    /**
+     * Connects to the database configured with {@code spring.datasource}, which takes all writes, if a replica is
+     * configured.
+     *
+     * @param properties must not be {@literal null}.
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(ReplicaRouting.URL_PROPERTY)
+    HikariDataSource primaryDataSource(DataSourceProperties properties) {
+
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+
+        return dataSource;
+    }
+
+    /**
+     * Connects to the replica configured with {@code demo.rest.replica}, which serves read-only transactions.
+     *
+     * @param properties must not be {@literal null}.
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(ReplicaRouting.URL_PROPERTY)
+    HikariDataSource replicaDataSource(CustomRepositoryRestProperties properties) {
+
+        CustomRepositoryRestProperties.Replica replica = properties.getReplica();
+
+        HikariDataSource dataSource = DataSourceBuilder.create() //
+                .type(HikariDataSource.class) //
+                .url(replica.getUrl()) //
+                .username(replica.getUsername()) //
+                .password(replica.getPassword()) //
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+        dataSource.setReadOnly(true);
+
+        return dataSource;
+    }
+
+    /**
+     * Routes read-only transactions to the replica and everything else to the primary. Connections are fetched on the
+     * first statement, once the transaction is known to be read-only.
+     *
+     * @param primary must not be {@literal null}.
+     * @param replica must not be {@literal null}.
+     * @return
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty(ReplicaRouting.URL_PROPERTY)
+    LazyConnectionDataSourceProxy dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                             @Qualifier("replicaDataSource") DataSource replica) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRouting.RoutingDataSource(primary, replica));
+    }
+
+    /**
+     * Pins the reads of clients to the primary right after their own writes if a replica is configured.
+     *
+     * @param properties must not be {@literal null}.
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(ReplicaRouting.URL_PROPERTY)
+    FilterRegistrationBean<ReplicaRouting.Filter> replicaRoutingFilter(CustomRepositoryRestProperties properties) {
+
+        FilterRegistrationBean<ReplicaRouting.Filter> registration = new FilterRegistrationBean<>(
+                new ReplicaRouting.Filter(properties.getReplica().getLag(), Clock.systemUTC()));
+        registration.addUrlPatterns("/api/*");
+
+        return registration;
+    }
+
     @Bean
     public DelegatingHandlerMapping restHandlerMapping(Repositories repositories,
                                                        RepositoryResourceMappings resourceMappings,
                                                        Optional<JpaHelper> jpaHelper,
                                                        RepositoryRestConfiguration repositoryRestConfiguration,
-                                                       CorsConfigurationAware corsRestConfiguration) {
+                                                       CorsConfigurationAware corsRestConfiguration,
+                                                       RepositoryRequestMetrics repositoryRequestMetrics,
+                                                       ObjectProvider<RequestTracing> requestTracing) {
 
         Map<String, CorsConfiguration> corsConfigurations = corsRestConfiguration.getCorsConfigurations();
         PathPatternParser parser = this.parser.getIfAvailable();
@@ -77,7 +317,17 @@ public class CustomRepositoryMvcRestHandlerConfiguration extends RepositoryRestM
         CustomRepositoryRestHandlerMapping repositoryMapping = new CustomRepositoryRestHandlerMapping(resourceMappings,
                 repositoryRestConfiguration,
                 repositories);
-        repositoryMapping.setJpaHelper(jpaHelper.orElse(null));
+
+        // An EntityManager open for the whole request holds its connection, even while waiting for a coalesced read
+        if (applicationContext.getEnvironment().getProperty("spring.jpa.open-in-view", Boolean.class, true)) {
+            repositoryMapping.setJpaHelper(jpaHelper.orElse(null));
+        }
+
+        List<Object> interceptors = new ArrayList<>();
+        interceptors.add(repositoryRequestMetrics);
+        requestTracing.ifAvailable(interceptors::add);
+
+        repositoryMapping.setInterceptors(interceptors.toArray());
         repositoryMapping.setApplicationContext(applicationContext);
         repositoryMapping.setCorsConfigurations(corsConfigurations);
         repositoryMapping.setPatternParser(parser);
@@ -93,7 +343,10 @@ public class CustomRepositoryMvcRestHandlerConfiguration extends RepositoryRestM
         mappings.add(basePathMapping);
         mappings.add(repositoryMapping);
 
-        return new DelegatingHandlerMapping(mappings, parser);
+        Map<String, HandlerMapping> index = new LinkedHashMap<>();
+        repositoryMapping.getRepositoryPrefixes().forEach(it -> index.put(it, repositoryMapping));
+
+        return new DelegatingHandlerMapping(mappings, index, parser);
     }
 
 }
@@ -1,9 +1,10 @@
 package com.datarest.demo.web;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mapping.PersistentEntity;
 import org.springframework.data.querydsl.binding.QuerydslPredicate;
@@ -21,21 +22,36 @@ import org.springframework.data.rest.webmvc.support.*;
 import org.springframework.data.web.PagedResourcesAssembler;
 import org.springframework.hateoas.*;
 import org.springframework.http.*;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.springframework.http.HttpMethod.PATCH;
 import static org.springframework.http.HttpMethod.PUT;
 
 @RepositoryRestController
 @Primary
-public class CustomRepositoryRestController implements ApplicationEventPublisherAware {
+public class CustomRepositoryRestController {
 
     private static final String BASE_MAPPING = "api/{repository}";
     private static final List<String> ACCEPT_PATCH_HEADERS = Arrays.asList(//
@@ -45,15 +61,29 @@ public class CustomRepositoryRestController implements ApplicationEventPublisher
 
     private static final String ACCEPT_HEADER = "Accept";
     private static final String LINK_HEADER = "Link";
+    private static final String PREFER_HEADER = "Prefer";
+    private static final String CURSOR_PARAM = "cursor";
+    private static final String EXPAND_PARAM = "expand";
+    private static final String FIELDS_PARAM = "fields";
+    private static final String COUNT_NONE_PREFERENCE = "count=none";
+    private static final String RETURN_MINIMAL_PREFERENCE = "return=minimal";
+    private static final String RETURN_REPRESENTATION_PREFERENCE = "return=representation";
+    private static final String PREFERENCE_APPLIED_HEADER = "Preference-Applied";
 
     private final RepositoryEntityLinks entityLinks;
     private final RepositoryRestConfiguration config;
     private final HttpHeadersPreparer headersPreparer;
     private final SelfLinkProvider linkProvider;
     private final ResourceStatus resourceStatus;
-
-
-    private ApplicationEventPublisher publisher;
+    private final CustomRepositoryRestProperties properties;
+    private final CollectionTotals totals;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final boolean replicated;
+    private final ItemResponseCache responses;
+    private final ReadCoalescing coalescing;
+    private final JsonRenderer renderer;
+    private final RepositoryEvents events;
 
     @Autowired
     public CustomRepositoryRestController(Repositories repositories,
@@ -61,22 +91,33 @@ public class CustomRepositoryRestController implements ApplicationEventPublisher
                                           RepositoryEntityLinks entityLinks,
                                           PagedResourcesAssembler<Object> assembler,
                                           HttpHeadersPreparer headersPreparer,
-                                          SelfLinkProvider linkProvider) {
+                                          SelfLinkProvider linkProvider,
+                                          CustomRepositoryRestProperties properties,
+                                          CollectionTotals totals,
+                                          PlatformTransactionManager transactionManager,
+                                          EntityManagerFactory entityManagerFactory,
+                                          ItemResponseCache responses,
+                                          ReadCoalescing coalescing,
+                                          JsonRenderer renderer,
+                                          RepositoryEvents events) {
 
         this.entityLinks = entityLinks;
         this.config = config;
         this.headersPreparer = headersPreparer;
         this.linkProvider = linkProvider;
         this.resourceStatus = ResourceStatus.of(headersPreparer);
-    }
-
-    /*
-     * (non-Javadoc)
-     * @see org.springframework.context.ApplicationEventPublisherAware#setApplicationEventPublisher(org.springframework.context.ApplicationEventPublisher)
-     */
-    @Override
-    public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
-        this.publisher = publisher;
+        this.properties = properties;
+        this.totals = totals;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.replicated = properties.getReplica().getUrl() != null;
+        this.readOnlyTransactionTemplate = replicated //
+                ? new ReplicaRouting.ReadOnlyTransactionTemplate(transactionManager, entityManagerFactory) //
+                : new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.responses = responses;
+        this.coalescing = coalescing;
+        this.renderer = renderer;
+        this.events = events;
     }
 
     /**
@@ -127,20 +168,36 @@ public class CustomRepositoryRestController implements ApplicationEventPublisher
     }
 
     /**
-     * <code>GET /{repository}</code> - Returns the collection resource (paged or unpaged).
+     * <code>GET /{repository}</code> - Returns the collection resource (paged or unpaged). If the {@code cursor}
+     * parameter is present, the collection is paged in keyset mode and the response carries the cursor of the next page.
+     * A {@code Prefer: count=none} header returns a {@link Slice} without totals instead of a page, confirmed with a
+     * {@code Preference-Applied} header. The {@code expand} parameter selects the {@link FetchPlan} applied to the entities, associations not
+     * covered by it are rendered as identifiers. The {@code fields} parameter selects only the given attributes instead
+     * of whole entities, see {@link SparseFieldset}. Concurrent identical reads of a page are coalesced by
+     * {@link ReadCoalescing} if enabled for the resource. Runs in a read-only transaction, streamed collections are
+     * written to the response within it. Unpaged collections are only streamed as JSON, other representations are read
+     * into a list.
      *
      * @param resourceInformation
      * @param pageable
      * @param sort
+     * @param parameters
+     * @param preferHeader
+     * @param acceptHeader
+     * @param response
      * @return
      * @throws ResourceNotFoundException
      * @throws HttpRequestMethodNotSupportedException
      */
     @ResponseBody
     @RequestMapping(value = BASE_MAPPING, method = RequestMethod.GET)
-    public Iterable<?> getCollectionResource(@QuerydslPredicate RootResourceInformation resourceInformation,
-                                             DefaultedPageable pageable,
-                                             Sort sort)
+    public Object getCollectionResource(@QuerydslPredicate RootResourceInformation resourceInformation,
+                                        DefaultedPageable pageable,
+                                        Sort sort,
+                                        @RequestParam MultiValueMap<String, Object> parameters,
+                                        @RequestHeader(value = PREFER_HEADER, required = false) String preferHeader,
+                                        @RequestHeader(value = ACCEPT_HEADER, required = false) String acceptHeader,
+                                        HttpServletResponse response)
             throws ResourceNotFoundException, HttpRequestMethodNotSupportedException {
 
         resourceInformation.verifySupportedMethod(HttpMethod.GET, ResourceType.COLLECTION);
@@ -151,36 +208,107 @@ public class CustomRepositoryRestController implements ApplicationEventPublisher
             throw new ResourceNotFoundException();
         }
 
-        Iterable<?> results = pageable.getPageable() != null //
-                ? invoker.invokeFindAll(pageable.getPageable()) //
-                : invoker.invokeFindAll(sort);
+        ResourceMetadata metadata = resourceInformation.getResourceMetadata();
+        boolean paged = parameters.containsKey(CURSOR_PARAM) || isPagingRequested(pageable, parameters);
+        boolean json = JsonRenderer.isAcceptable(MediaType.parseMediaTypes(acceptHeader));
+
+        // Unpaged collections may be streamed and are not shared
+        if (coalescing.isCoalesced(metadata) && paged && json) {
+
+            return coalescing.coalesce(metadata, "collection", getCollectionKey(metadata, parameters, preferHeader),
+                    () -> {
+
+                        Iterable<?> collection = readOnlyTransactionTemplate.execute(status -> findCollection(
+                                resourceInformation, pageable, sort, parameters, preferHeader, false));
+                        HttpHeaders headers = new HttpHeaders();
+
+                        if (isCountSkipped(collection, preferHeader)) {
+                            headers.set(PREFERENCE_APPLIED_HEADER, COUNT_NONE_PREFERENCE);
+                        }
+
+                        return toJsonResponseEntity(headers, renderer.render(collection));
+                    });
+        }
+
+        // Only the JSON renderer writes rows as they are read, other converters need the whole list
+        if (paged || !json || !properties.getStreaming().isEnabled()) {
+
+            Iterable<?> collection = readOnlyTransactionTemplate.execute(status -> findCollection(resourceInformation,
+                    pageable, sort, parameters, preferHeader, false));
+
+            if (isCountSkipped(collection, preferHeader)) {
+                response.setHeader(PREFERENCE_APPLIED_HEADER, COUNT_NONE_PREFERENCE);
+            }
+
+            return collection;
+        }
+
+        // Streamed rows are read while they are written, so the transaction has to span the response
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        RequestTrace.streaming();
+
+        readOnlyTransactionTemplate.executeWithoutResult(status -> {
+            try {
+                renderer.render(findCollection(resourceInformation, pageable, sort, parameters, preferHeader, true),
+                        response.getOutputStream());
+            } catch (IOException o_O) {
+                throw new UncheckedIOException(o_O);
+            }
+        });
+
+        return null;
+    }
+
+    private Iterable<?> findCollection(RootResourceInformation resourceInformation, DefaultedPageable pageable,
+                                       Sort sort, MultiValueMap<String, Object> parameters, String preferHeader,
+                                       boolean streamed) {
+
+        RepositoryInvoker invoker = resourceInformation.getInvoker();
+
+        if (parameters.containsKey(FIELDS_PARAM)) {
+            return invokeFindAll(resourceInformation, getFieldset(invoker, parameters), pageable, sort, parameters,
+                    preferHeader, streamed);
+        }
+
+        FetchPlan fetchPlan = getFetchPlan(invoker, (String) parameters.getFirst(EXPAND_PARAM));
 
+        if (parameters.containsKey(CURSOR_PARAM)) {
+            return withFetchPlan(invokeFindAllAfter(invoker, (String) parameters.getFirst(CURSOR_PARAM), pageable, sort),
+                    fetchPlan);
+        }
 
-        return results;
+        return isPagingRequested(pageable, parameters) //
+                ? withFetchPlan(invokeFindAll(resourceInformation, pageable.getPageable(), preferHeader), fetchPlan) //
+                : invokeFindAll(invoker, sort, fetchPlan, streamed);
     }
 
     /**
-     * <code>POST /{repository}</code> - Creates a new entity instances from the collection resource.
+     * <code>POST /{repository}</code> - Creates a new entity instances from the collection resource. A JSON array
+     * creates all of its elements in a single transaction. Whether the created entities are returned follows a
+     * {@code Prefer: return=minimal} or {@code Prefer: return=representation} header, the configuration otherwise.
      *
      * @param resourceInformation
      * @param payload
-     * @param assembler
      * @param acceptHeader
+     * @param preferHeader
      * @return
      * @throws HttpRequestMethodNotSupportedException
      */
     @ResponseBody
     @RequestMapping(value = BASE_MAPPING, method = RequestMethod.POST)
     public ResponseEntity<?> postCollectionResource(RootResourceInformation resourceInformation,
-                                                    PersistentEntityResource payload,
-                                                    PersistentEntityResourceAssembler assembler,
-                                                    @RequestHeader(value = ACCEPT_HEADER, required = false) String acceptHeader)
+                                                    PersistentEntityResources payload,
+                                                    @RequestHeader(value = ACCEPT_HEADER, required = false) String acceptHeader,
+                                                    @RequestHeader(value = PREFER_HEADER, required = false) String preferHeader)
             throws HttpRequestMethodNotSupportedException {
 
         resourceInformation.verifySupportedMethod(HttpMethod.POST, ResourceType.COLLECTION);
 
-        return createAndReturn(payload.getContent(), resourceInformation.getInvoker(), assembler,
-                config.returnBodyOnCreate(acceptHeader));
+        ReturnPreference preference = ReturnPreference.of(preferHeader, config.returnBodyOnCreate(acceptHeader));
+
+        return payload.isCollection() //
+                ? createAllAndReturn(payload.getContents(), resourceInformation.getInvoker(), preference) //
+                : createAndReturn(payload.getResource().getContent(), resourceInformation, preference);
     }
 
     /**
@@ -203,7 +331,8 @@ public class CustomRepositoryRestController implements ApplicationEventPublisher
     }
 
     /**
-     * <code>HEAD /{repository}/{id}</code>
+     * <code>HEAD /{repository}/{id}</code> - Computes the headers from the identifier, version and last modification
+     * date of the entity and the ones embedded by its default {@link FetchPlan} without loading them.
      *
      * @param resourceInformation
      * @param id
@@ -216,23 +345,34 @@ public class CustomRepositoryRestController implements ApplicationEventPublisher
                                                  @BackendId Serializable id,
                                                  PersistentEntityResourceAssembler assembler) throws HttpRequestMethodNotSupportedException {
 
-        return getItemResource(resourceInformation, id).map(it -> {
+        FetchPlan fetchPlan = getFetchPlan(resourceInformation.getInvoker(), null);
+
+        return readOnly(() -> getItemValidators(resourceInformation, id).map(it -> {
 
             Links links = assembler.toModel(it).getLinks();
 
-            HttpHeaders headers = headersPreparer.prepareHeaders(resourceInformation.getPersistentEntity(), it);
+            HttpHeaders headers = findEmbeddedVersions(resourceInformation, id, fetchPlan)
+                    .addTo(headersPreparer.prepareHeaders(resourceInformation.getPersistentEntity(), it));
             headers.add(LINK_HEADER, links.toString());
 
             return new ResponseEntity<Object>(headers, HttpStatus.NO_CONTENT);
 
-        }).orElseThrow(ResourceNotFoundException::new);
+        })).orElseThrow(ResourceNotFoundException::new);
     }
 
     /**
-     * <code>GET /{repository}/{id}</code> - Returns a single entity.
+     * <code>GET /{repository}/{id}</code> - Returns a single entity. Conditional requests are validated against the
+     * identifier, version and last modification date of the entity and the ones embedded by the {@link FetchPlan}
+     * first, so they are only loaded if any of them was modified.
+     * The {@code expand} parameter selects the {@link FetchPlan} applied to the entity, the {@code fields} parameter
+     * selects only the given attributes instead of the whole entity. Bodies rendered with the default plan are taken from
+     * the {@link ItemResponseCache} if enabled, concurrent reads of the same entity are coalesced by
+     * {@link ReadCoalescing} if enabled for the resource. Reads run in read-only transactions, which are never held
+     * while waiting for a coalesced read.
      *
      * @param resourceInformation
      * @param id
+     * @param parameters
      * @return
      * @throws HttpRequestMethodNotSupportedException
      */
@@ -240,27 +380,67 @@ public class CustomRepositoryRestController implements ApplicationEventPublisher
     public ResponseEntity<?> getItemResource(RootResourceInformation resourceInformation,
                                              @BackendId Serializable id,
                                              final PersistentEntityResourceAssembler assembler,
-                                             @RequestHeader HttpHeaders headers)
+                                             @RequestHeader HttpHeaders headers,
+                                             @RequestParam MultiValueMap<String, Object> parameters)
             throws HttpRequestMethodNotSupportedException {
 
+        if (parameters.containsKey(FIELDS_PARAM)) {
+            return readOnly(() -> getItemFields(resourceInformation, id,
+                    getFieldset(resourceInformation.getInvoker(), parameters), headers));
+        }
+
+        String expand = (String) parameters.getFirst(EXPAND_PARAM);
+        FetchPlan fetchPlan = getFetchPlan(resourceInformation.getInvoker(), expand);
+
+        boolean cached = expand == null && responses.isEnabled();
+
+        if ((cached || coalescing.isCoalesced(resourceInformation.getResourceMetadata()))
+                && JsonRenderer.isAcceptable(headers.getAccept())) {
+            return getRenderedItemResource(resourceInformation, id, expand, fetchPlan, cached, headers);
+        }
+
+        return readOnly(() -> findItemResource(resourceInformation, id, fetchPlan, headers));
+    }
+
+    private ResponseEntity<?> findItemResource(RootResourceInformation resourceInformation, Serializable id,
+                                               FetchPlan fetchPlan, HttpHeaders headers)
+            throws HttpRequestMethodNotSupportedException {
+
+        if (isConditional(headers)) {
+
+            PersistentEntity<?, ?> entity = resourceInformation.getPersistentEntity();
+            ResourceStatus.StatusAndHeaders status = getItemValidators(resourceInformation, id) //
+                    .map(it -> resourceStatus.getStatusAndHeaders(headers, it, entity,
+                            findEmbeddedVersions(resourceInformation, id, fetchPlan))) //
+                    .orElseThrow(ResourceNotFoundException::new);
+
+            if (!status.isModified()) {
+                return status.toResponseEntity(() -> null);
+            }
+        }
+
         return getItemResource(resourceInformation, id).map(it -> {
 
             PersistentEntity<?, ?> entity = resourceInformation.getPersistentEntity();
+            withFetchPlan(Collections.singleton(it), fetchPlan);
 
-            return resourceStatus.getStatusAndHeaders(headers, it, entity).toResponseEntity(() -> it);
+            return resourceStatus.getStatusAndHeaders(headers, it, entity,
+                    getEmbeddedVersions(resourceInformation, it, fetchPlan)).toResponseEntity(() -> it);
 
         }).orElseThrow(ResourceNotFoundException::new);
     }
 
     /**
-     * <code>PUT /{repository}/{id}</code> - Updates an existing entity or creates one at exactly that place.
+     * <code>PUT /{repository}/{id}</code> - Updates an existing entity or creates one at exactly that place. Whether the
+     * entity is returned follows a {@code Prefer: return=minimal} or {@code Prefer: return=representation} header, the
+     * configuration otherwise.
      *
      * @param resourceInformation
      * @param payload
      * @param id
-     * @param assembler
      * @param eTag
      * @param acceptHeader
+     * @param preferHeader
      * @return
      * @throws HttpRequestMethodNotSupportedException
      */
@@ -268,9 +448,9 @@ public class CustomRepositoryRestController implements ApplicationEventPublisher
     public ResponseEntity<?> putItemResource(RootResourceInformation resourceInformation,
                                              PersistentEntityResource payload,
                                              @BackendId Serializable id,
-                                             PersistentEntityResourceAssembler assembler,
                                              ETag eTag,
-                                             @RequestHeader(value = ACCEPT_HEADER, required = false) String acceptHeader)
+                                             @RequestHeader(value = ACCEPT_HEADER, required = false) String acceptHeader,
+                                             @RequestHeader(value = PREFER_HEADER, required = false) String preferHeader)
             throws HttpRequestMethodNotSupportedException {
 
         resourceInformation.verifySupportedMethod(HttpMethod.PUT, ResourceType.ITEM);
@@ -279,23 +459,27 @@ public class CustomRepositoryRestController implements ApplicationEventPublisher
             resourceInformation.verifyPutForCreation();
         }
 
-        RepositoryInvoker invoker = resourceInformation.getInvoker();
         Object objectToSave = payload.getContent();
-        eTag.verify(resourceInformation.getPersistentEntity(), objectToSave);
+        EmbeddedVersions.toRootETag(eTag).verify(resourceInformation.getPersistentEntity(), objectToSave);
 
-        return payload.isNew() ? createAndReturn(objectToSave, invoker, assembler, config.returnBodyOnCreate(acceptHeader))
-                : saveAndReturn(objectToSave, invoker, PUT, assembler, config.returnBodyOnUpdate(acceptHeader));
+        return payload.isNew() //
+                ? createAndReturn(objectToSave, resourceInformation,
+                ReturnPreference.of(preferHeader, config.returnBodyOnCreate(acceptHeader))) //
+                : saveAndReturn(objectToSave, resourceInformation, PUT,
+                ReturnPreference.of(preferHeader, config.returnBodyOnUpdate(acceptHeader)));
     }
 
     /**
-     * <code>PATCH /{repository}/{id}</code> - Updates an existing entity or creates one at exactly that place.
+     * <code>PATCH /{repository}/{id}</code> - Updates an existing entity or creates one at exactly that place. Whether
+     * the entity is returned follows a {@code Prefer: return=minimal} or {@code Prefer: return=representation} header,
+     * the configuration otherwise.
      *
      * @param resourceInformation
      * @param payload
      * @param id
-     * @param assembler
      * @param eTag,
      * @param acceptHeader
+     * @param preferHeader
      * @return
      * @throws HttpRequestMethodNotSupportedException
      * @throws ResourceNotFoundException
@@ -305,23 +489,26 @@ public class CustomRepositoryRestController implements ApplicationEventPublisher
     public ResponseEntity<?> patchItemResource(RootResourceInformation resourceInformation,
                                                PersistentEntityResource payload,
                                                @BackendId Serializable id,
-                                               PersistentEntityResourceAssembler assembler,
                                                ETag eTag,
-                                               @RequestHeader(value = ACCEPT_HEADER, required = false) String acceptHeader)
+                                               @RequestHeader(value = ACCEPT_HEADER, required = false) String acceptHeader,
+                                               @RequestHeader(value = PREFER_HEADER, required = false) String preferHeader)
             throws HttpRequestMethodNotSupportedException, ResourceNotFoundException {
 
         resourceInformation.verifySupportedMethod(HttpMethod.PATCH, ResourceType.ITEM);
 
         Object domainObject = payload.getContent();
 
-        eTag.verify(resourceInformation.getPersistentEntity(), domainObject);
+        EmbeddedVersions.toRootETag(eTag).verify(resourceInformation.getPersistentEntity(), domainObject);
 
-        return saveAndReturn(domainObject, resourceInformation.getInvoker(), PATCH, assembler,
-                config.returnBodyOnUpdate(acceptHeader));
+        return saveAndReturn(domainObject, resourceInformation, PATCH,
+                ReturnPreference.of(preferHeader, config.returnBodyOnUpdate(acceptHeader)));
     }
 
     /**
-     * <code>DELETE /{repository}/{id}</code> - Deletes the entity backing the item resource.
+     * <code>DELETE /{repository}/{id}</code> - Deletes the entity backing the item resource. Entities of JPA
+     * repositories are only loaded to verify an {@code If-Match} header or when an event listener accesses them, and are
+     * deleted along with their cascaded children using bulk statements, unless the repository customizes its delete
+     * method, which is invoked then.
      *
      * @param resourceInformation
      * @param id
@@ -338,17 +525,27 @@ public class CustomRepositoryRestController implements ApplicationEventPublisher
         resourceInformation.verifySupportedMethod(HttpMethod.DELETE, ResourceType.ITEM);
 
         RepositoryInvoker invoker = resourceInformation.getInvoker();
+
+        if (invoker instanceof JpaRepositoryInvoker && !((JpaRepositoryInvoker) invoker).customizesDelete()) {
+            return deleteInBulk(resourceInformation, (JpaRepositoryInvoker) invoker, id, eTag);
+        }
+
         Optional<Object> domainObj = invoker.invokeFindById(id);
 
         return domainObj.map(it -> {
 
             PersistentEntity<?, ?> entity = resourceInformation.getPersistentEntity();
 
-            eTag.verify(entity, it);
+            EmbeddedVersions.toRootETag(eTag).verify(entity, it);
+
+            events.publish(new BeforeDeleteEvent(it));
+            events.write(() -> {
 
-            publisher.publishEvent(new BeforeDeleteEvent(it));
-            invoker.invokeDeleteById(entity.getIdentifierAccessor(it).getIdentifier());
-            publisher.publishEvent(new AfterDeleteEvent(it));
+                invoker.invokeDeleteById(entity.getIdentifierAccessor(it).getIdentifier());
+
+                return it;
+
+            }, deleted -> Stream.of(new AfterDeleteEvent(deleted)));
 
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
 
@@ -356,31 +553,68 @@ public class CustomRepositoryRestController implements ApplicationEventPublisher
     }
 
     /**
-     * Merges the given incoming object into the given domain object.
+     * Deletes the entity with the given id in a single transaction, loading it once but none of its cascaded children.
+     * Both the {@link BeforeDeleteEvent} and the {@link AfterDeleteEvent}, published once the deletion is committed,
+     * carry the loaded entity. The deletion fails with a conflict if the entity was modified since it was loaded.
      *
-     * @param domainObject
+     * @param resourceInformation
      * @param invoker
+     * @param id
+     * @param eTag
+     * @return
+     */
+    private ResponseEntity<?> deleteInBulk(RootResourceInformation resourceInformation, JpaRepositoryInvoker invoker,
+                                           Serializable id, ETag eTag) {
+
+        Optional<Object> deleted = events.write(() -> transactionTemplate.execute(status -> {
+
+            Optional<Object> domainObject = invoker.invokeFindById(id);
+
+            if (domainObject.isEmpty()) {
+                return Optional.empty();
+            }
+
+            EmbeddedVersions.toRootETag(eTag).verify(resourceInformation.getPersistentEntity(), domainObject.get());
+
+            events.publish(new BeforeDeleteEvent(domainObject.get()));
+
+            return invoker.invokeDeleteInBulk(domainObject.get()) ? domainObject : Optional.empty();
+
+        }), it -> it.map(AfterDeleteEvent::new).stream());
+
+        return deleted.map(it -> new ResponseEntity<>(HttpStatus.NO_CONTENT)) //
+                .orElseThrow(ResourceNotFoundException::new);
+    }
+
+    /**
+     * Merges the given incoming object into the given domain object. The headers are computed from the saved object
+     * itself, so no {@link PersistentEntityResource} is assembled, and its body is only rendered if requested, with the
+     * default {@link FetchPlan} applied within the transaction saving it.
+     *
+     * @param domainObject
+     * @param resourceInformation
      * @param httpMethod
+     * @param preference
      * @return
      */
     private ResponseEntity<?> saveAndReturn(Object domainObject,
-                                            RepositoryInvoker invoker,
+                                            RootResourceInformation resourceInformation,
                                             HttpMethod httpMethod,
-                                            PersistentEntityResourceAssembler assembler,
-                                            boolean returnBody) {
+                                            ReturnPreference preference) {
 
-        publisher.publishEvent(new BeforeSaveEvent(domainObject));
-        Object obj = invoker.invokeSave(domainObject);
-        publisher.publishEvent(new AfterSaveEvent(obj));
+        events.publish(new BeforeSaveEvent(domainObject));
+        Object obj = events.write(() -> invokeSave(resourceInformation.getInvoker(), domainObject, preference),
+                it -> Stream.of(new AfterSaveEvent(it)));
 
-        PersistentEntityResource resource = assembler.toFullResource(obj);
-        HttpHeaders headers = headersPreparer.prepareHeaders(Optional.of(resource));
+        HttpHeaders headers = getWrittenEmbeddedVersions(resourceInformation, obj, preference)
+                .addTo(headersPreparer.prepareHeaders(resourceInformation.getPersistentEntity(), obj));
+        preference.addAppliedHeader(headers);
 
         if (PUT.equals(httpMethod)) {
-            addLocationHeader(headers, assembler, obj);
+            addLocationHeader(headers, obj);
         }
 
-        if (returnBody) {
+        if (preference.returnBody) {
             return CustomControllerUtils.toResponseEntity(HttpStatus.OK, headers, obj);
         } else {
             return CustomControllerUtils.toEmptyResponse(HttpStatus.NO_CONTENT, headers);
@@ -388,39 +622,105 @@ public class CustomRepositoryRestController implements ApplicationEventPublisher
     }
 
     /**
-     * Triggers the creation of the domain object and renders it into the response if needed.
+     * Triggers the creation of the domain object and renders it into the response if needed, with the default
+     * {@link FetchPlan} applied within the transaction saving it.
      *
      * @param domainObject
-     * @param invoker
+     * @param resourceInformation
+     * @param preference
      * @return
      */
     private ResponseEntity<?> createAndReturn(Object domainObject,
-                                              RepositoryInvoker invoker,
-                                              PersistentEntityResourceAssembler assembler,
-                                              boolean returnBody) {
+                                              RootResourceInformation resourceInformation,
+                                              ReturnPreference preference) {
+
+        events.publish(new BeforeCreateEvent(domainObject));
+        Object savedObject = events.write(() -> invokeSave(resourceInformation.getInvoker(), domainObject, preference),
+                it -> Stream.of(new AfterCreateEvent(it)));
+
+        HttpHeaders headers = getWrittenEmbeddedVersions(resourceInformation, savedObject, preference)
+                .addTo(headersPreparer.prepareHeaders(resourceInformation.getPersistentEntity(), savedObject));
+        preference.addAppliedHeader(headers);
+        addLocationHeader(headers, savedObject);
+
+        return preference.returnBody //
+                ? CustomControllerUtils.toResponseEntity(HttpStatus.CREATED, headers, savedObject) //
+                : CustomControllerUtils.toEmptyResponse(HttpStatus.CREATED, headers);
+    }
 
-        publisher.publishEvent(new BeforeCreateEvent(domainObject));
-        Object savedObject = invoker.invokeSave(domainObject);
-        publisher.publishEvent(new AfterCreateEvent(savedObject));
+    /**
+     * Triggers the creation of all given domain objects within a single transaction and renders them into the response
+     * if needed. {@link BeforeCreateEvent}s are published for all objects before the first one is saved,
+     * {@link AfterCreateEvent}s once all of them are committed. The default {@link FetchPlan} is applied to the saved
+     * objects within that transaction if they are rendered.
+     *
+     * @param domainObjects
+     * @param invoker
+     * @param preference
+     * @return
+     */
+    private ResponseEntity<?> createAllAndReturn(List<Object> domainObjects,
+                                                 RepositoryInvoker invoker,
+                                                 ReturnPreference preference) {
 
-        Optional<PersistentEntityResource> resource = Optional
-                .ofNullable(returnBody ? assembler.toFullResource(savedObject) : null);
+        domainObjects.forEach(it -> events.publish(new BeforeCreateEvent(it)));
+        List<Object> savedObjects = events.write(
+                () -> transactionTemplate.execute(status -> withFetchPlan(invokeSaveAll(invoker, domainObjects),
+                        preference.returnBody ? getFetchPlan(invoker, null) : FetchPlan.NONE)),
+                it -> it.stream().map(AfterCreateEvent::new));
 
-        HttpHeaders headers = headersPreparer.prepareHeaders(resource);
-        addLocationHeader(headers, assembler, savedObject);
+        HttpHeaders headers = new HttpHeaders();
+        preference.addAppliedHeader(headers);
 
-        return CustomControllerUtils.toResponseEntity(HttpStatus.CREATED, headers, savedObject);
+        return preference.returnBody //
+                ? CustomControllerUtils.toResponseEntity(HttpStatus.CREATED, headers, savedObjects) //
+                : CustomControllerUtils.toEmptyResponse(HttpStatus.CREATED, headers);
+    }
+
+    /**
+     * Saves the given domain object and applies the default {@link FetchPlan} to the saved one if it is rendered. Both
+     * happen in the same transaction, as the associations of the saved object cannot be loaded once it is committed.
+     *
+     * @param invoker
+     * @param domainObject
+     * @param preference
+     * @return
+     */
+    private Object invokeSave(RepositoryInvoker invoker, Object domainObject, ReturnPreference preference) {
+
+        FetchPlan fetchPlan = preference.returnBody ? getFetchPlan(invoker, null) : FetchPlan.NONE;
+
+        return transactionTemplate.execute(status -> {
+
+            Object savedObject = invoker.invokeSave(domainObject);
+            withFetchPlan(Collections.singleton(savedObject), fetchPlan);
+
+            return savedObject;
+        });
+    }
+
+    /**
+     * Saves all given domain objects, in JDBC batches if the invoker supports it.
+     *
+     * @param invoker
+     * @param domainObjects
+     * @return
+     */
+    private List<Object> invokeSaveAll(RepositoryInvoker invoker, List<Object> domainObjects) {
+
+        return invoker instanceof JpaRepositoryInvoker //
+                ? ((JpaRepositoryInvoker) invoker).invokeSaveAll(domainObjects) //
+                : domainObjects.stream().map(invoker::invokeSave).collect(Collectors.toList());
     }
 
     /**
      * Sets the location header pointing to the resource representing the given instance. Will make sure we properly
      * expand the URI template potentially created as self link.
      *
-     * @param headers   must not be {@literal null}.
-     * @param assembler must not be {@literal null}.
-     * @param source    must not be {@literal null}.
+     * @param headers must not be {@literal null}.
+     * @param source  must not be {@literal null}.
      */
-    private void addLocationHeader(HttpHeaders headers, PersistentEntityResourceAssembler assembler, Object source) {
+    private void addLocationHeader(HttpHeaders headers, Object source) {
 
         String selfLink = linkProvider.createSelfLinkFor(source).withSelfRel().expand().getHref();
         headers.setLocation(UriTemplate.of(selfLink).expand());
@@ -443,6 +743,453 @@ public class CustomRepositoryRestController implements ApplicationEventPublisher
         return resourceInformation.getInvoker().invokeFindById(id);
     }
 
+    /**
+     * Returns an object carrying only the identifier, version and last modification date of the entity backing the item
+     * resource, read without loading the entity where possible. Suitable to compute headers, but not to be rendered.
+     *
+     * @param resourceInformation
+     * @param id
+     * @return
+     * @throws HttpRequestMethodNotSupportedException
+     * @see JpaRepositoryInvoker#invokeFindValidatorsById(Object)
+     */
+    private Optional<Object> getItemValidators(RootResourceInformation resourceInformation, Serializable id)
+            throws HttpRequestMethodNotSupportedException {
+
+        resourceInformation.verifySupportedMethod(HttpMethod.GET, ResourceType.ITEM);
+
+        RepositoryInvoker invoker = resourceInformation.getInvoker();
+
+        return invoker instanceof JpaRepositoryInvoker //
+                ? ((JpaRepositoryInvoker) invoker).invokeFindValidatorsById(id) //
+                : invoker.invokeFindById(id);
+    }
+
+    /**
+     * Returns the versions of the entities the given {@link FetchPlan} embeds into the entity backing the item
+     * resource, read without loading any of them.
+     *
+     * @param resourceInformation
+     * @param id
+     * @param fetchPlan
+     * @return
+     * @see JpaRepositoryInvoker#invokeFindEmbeddedVersionsById(Object, FetchPlan)
+     */
+    private static EmbeddedVersions findEmbeddedVersions(RootResourceInformation resourceInformation,
+                                                         Serializable id, FetchPlan fetchPlan) {
+
+        RepositoryInvoker invoker = resourceInformation.getInvoker();
+
+        return invoker instanceof JpaRepositoryInvoker //
+                ? ((JpaRepositoryInvoker) invoker).invokeFindEmbeddedVersionsById(id, fetchPlan) //
+                : EmbeddedVersions.NONE;
+    }
+
+    /**
+     * Returns the versions of the entities the given {@link FetchPlan}, already applied to the given entity, embeds
+     * into it.
+     *
+     * @param resourceInformation
+     * @param entity
+     * @param fetchPlan
+     * @return
+     * @see JpaRepositoryInvoker#getEmbeddedVersions(Object, FetchPlan)
+     */
+    private static EmbeddedVersions getEmbeddedVersions(RootResourceInformation resourceInformation, Object entity,
+                                                        FetchPlan fetchPlan) {
+
+        RepositoryInvoker invoker = resourceInformation.getInvoker();
+
+        return invoker instanceof JpaRepositoryInvoker //
+                ? ((JpaRepositoryInvoker) invoker).getEmbeddedVersions(entity, fetchPlan) //
+                : EmbeddedVersions.NONE;
+    }
+
+    /**
+     * Returns the versions of the entities embedded into the given written entity if it is rendered with the default
+     * {@link FetchPlan}, which was applied within the transaction saving it.
+     *
+     * @param resourceInformation
+     * @param entity
+     * @param preference
+     * @return
+     */
+    private static EmbeddedVersions getWrittenEmbeddedVersions(RootResourceInformation resourceInformation,
+                                                               Object entity, ReturnPreference preference) {
+
+        return preference.returnBody //
+                ? getEmbeddedVersions(resourceInformation, entity, getFetchPlan(resourceInformation.getInvoker(), null))
+                : EmbeddedVersions.NONE;
+    }
+
+    /**
+     * Returns the item resource rendered as JSON up front. The validators of the entity are read first, so conditional
+     * requests are answered without loading it. Then the body is taken from the {@link ItemResponseCache} if
+     * {@code cached}, or the entity is loaded and rendered, shared with concurrent requests for the same version of it if
+     * the resource is coalesced. Headers are computed from the rendered entity itself, so a concurrent update cannot
+     * attach its body to another version. Validators and entity are read in read-only transactions of their own, so
+     * requests waiting for a coalesced read don't hold a connection meanwhile.
+     *
+     * @param resourceInformation
+     * @param id
+     * @param expand
+     * @param fetchPlan
+     * @param cached
+     * @param headers
+     * @return
+     * @throws HttpRequestMethodNotSupportedException
+     */
+    private ResponseEntity<?> getRenderedItemResource(RootResourceInformation resourceInformation, Serializable id,
+                                                      String expand, FetchPlan fetchPlan, boolean cached,
+                                                      HttpHeaders headers)
+            throws HttpRequestMethodNotSupportedException {
+
+        PersistentEntity<?, ?> entity = resourceInformation.getPersistentEntity();
+        ResourceMetadata metadata = resourceInformation.getResourceMetadata();
+        ResourceStatus.StatusAndHeaders status = readOnly(() -> getItemValidators(resourceInformation, id) //
+                .map(it -> resourceStatus.getStatusAndHeaders(headers, it, entity,
+                        findEmbeddedVersions(resourceInformation, id, fetchPlan)))) //
+                .orElseThrow(ResourceNotFoundException::new);
+
+        if (!status.isModified()) {
+            return status.toResponseEntity(() -> null);
+        }
+
+        String eTag = status.getHeaders().getETag();
+        Optional<byte[]> body = cached && eTag != null ? responses.get(metadata, id, eTag) : Optional.empty();
+
+        if (body.isPresent()) {
+            return toJsonResponseEntity(status.getHeaders(), body.get());
+        }
+
+        Supplier<ResponseEntity<byte[]>> read = () -> readOnlyTransactionTemplate
+                .execute(it -> renderItemResource(resourceInformation, id, fetchPlan, cached));
+
+        return coalescing.isCoalesced(metadata) //
+                ? coalescing.coalesce(metadata, "item", getItemKey(metadata, id, expand, eTag), read) //
+                : read.get();
+    }
+
+    private ResponseEntity<byte[]> renderItemResource(RootResourceInformation resourceInformation, Serializable id,
+                                                      FetchPlan fetchPlan, boolean cached) {
+
+        PersistentEntity<?, ?> entity = resourceInformation.getPersistentEntity();
+        ResourceMetadata metadata = resourceInformation.getResourceMetadata();
+
+        return resourceInformation.getInvoker().invokeFindById(id).map(it -> {
+
+            withFetchPlan(Collections.singleton(it), fetchPlan);
+
+            HttpHeaders headers = getEmbeddedVersions(resourceInformation, it, fetchPlan)
+                    .addTo(headersPreparer.prepareHeaders(entity, it));
+            String eTag = headers.getETag();
+
+            // Bodies read from a lagging replica would be served to clients reading their own writes from the primary
+            return toJsonResponseEntity(headers, cached && eTag != null && !isReadFromReplica() //
+                    ? responses.put(metadata, id, eTag, it) //
+                    : renderer.render(it));
+
+        }).orElseThrow(ResourceNotFoundException::new);
+    }
+
+    private boolean isReadFromReplica() {
+        return replicated && ReplicaRouting.isRoutedToReplica();
+    }
+
+    private static ResponseEntity<byte[]> toJsonResponseEntity(HttpHeaders headers, byte[] body) {
+
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    private static String getCollectionKey(ResourceMetadata metadata, MultiValueMap<String, Object> parameters,
+                                           String preferHeader) {
+        return metadata.getPath() + "?" + new TreeMap<>(parameters) + "&" + PREFER_HEADER + "=" + preferHeader;
+    }
+
+    private static String getItemKey(ResourceMetadata metadata, Serializable id, String expand, String eTag) {
+        return metadata.getPath() + "/" + id + "?" + EXPAND_PARAM + "=" + expand + "&" + HttpHeaders.ETAG + "=" + eTag;
+    }
+
+    /**
+     * Returns the given {@link SparseFieldset} of the entity backing the item resource. The headers are computed from
+     * the identifier, version and last modification date of the entity, which are read up front, so conditional
+     * requests are answered without reading the fields.
+     *
+     * @param resourceInformation
+     * @param id
+     * @param fields
+     * @param headers
+     * @return
+     * @throws HttpRequestMethodNotSupportedException
+     */
+    private ResponseEntity<?> getItemFields(RootResourceInformation resourceInformation, Serializable id,
+                                            SparseFieldset fields, HttpHeaders headers)
+            throws HttpRequestMethodNotSupportedException {
+
+        PersistentEntity<?, ?> entity = resourceInformation.getPersistentEntity();
+        ResourceStatus.StatusAndHeaders status = getItemValidators(resourceInformation, id) //
+                .map(it -> resourceStatus.getStatusAndHeaders(headers, it, entity)) //
+                .orElseThrow(ResourceNotFoundException::new);
+
+        if (!status.isModified()) {
+            return status.toResponseEntity(() -> null);
+        }
+
+        Map<String, Object> row = ((JpaRepositoryInvoker) resourceInformation.getInvoker()) //
+                .invokeFindById(fields, id) //
+                .orElseThrow(ResourceNotFoundException::new);
+
+        return status.toResponseEntity(() -> row);
+    }
+
+    /**
+     * Returns whether the request carries an {@code If-None-Match} or {@code If-Modified-Since} header.
+     *
+     * @param headers
+     * @return
+     */
+    private static boolean isConditional(HttpHeaders headers) {
+        return !headers.getIfNoneMatch().isEmpty() || headers.getIfModifiedSince() != -1;
+    }
+
+    /**
+     * Returns whether the client explicitly asked for a page. The {@link DefaultedPageable} always carries a fallback
+     * page, so only the presence of the page or size parameter tells paged and unpaged requests apart.
+     *
+     * @param pageable
+     * @param parameters
+     * @return
+     */
+    private boolean isPagingRequested(DefaultedPageable pageable, MultiValueMap<String, Object> parameters) {
+
+        return pageable.getPageable() != null //
+                && pageable.getPageable().isPaged() //
+                && (parameters.containsKey(config.getPageParamName()) || parameters.containsKey(config.getLimitParamName()));
+    }
+
+    /**
+     * Returns whether a {@code Prefer: count=none} header was honored, i.e. the given collection is a
+     * {@link Slice} without totals.
+     *
+     * @param collection can be {@literal null}.
+     * @param preferHeader
+     * @return
+     */
+    private static boolean isCountSkipped(@Nullable Iterable<?> collection, String preferHeader) {
+
+        return collection instanceof Slice && !(collection instanceof Page) //
+                && CustomControllerUtils.hasPreference(preferHeader, COUNT_NONE_PREFERENCE);
+    }
+
+    /**
+     * Returns the requested page of the collection resource. Skips counting all rows if the client prefers so, or takes
+     * the total from {@link CollectionTotals} if it is cached for the resource.
+     *
+     * @param resourceInformation
+     * @param pageable
+     * @param preferHeader
+     * @return
+     */
+    private Iterable<?> invokeFindAll(RootResourceInformation resourceInformation, Pageable pageable,
+                                      String preferHeader) {
+
+        RepositoryInvoker invoker = resourceInformation.getInvoker();
+
+        if (!(invoker instanceof JpaRepositoryInvoker) || ((JpaRepositoryInvoker) invoker).customizesFindAll()) {
+            return invoker.invokeFindAll(pageable);
+        }
+
+        JpaRepositoryInvoker jpaInvoker = (JpaRepositoryInvoker) invoker;
+
+        if (CustomControllerUtils.hasPreference(preferHeader, COUNT_NONE_PREFERENCE)) {
+            return jpaInvoker.invokeFindSlice(pageable);
+        }
+
+        if (totals.isCached(resourceInformation.getResourceMetadata())) {
+            return jpaInvoker.invokeFindAll(pageable,
+                    () -> totals.getTotal(resourceInformation.getDomainType(), jpaInvoker::invokeCount));
+        }
+
+        return invoker.invokeFindAll(pageable);
+    }
+
+    /**
+     * Returns all entities for the unpaged collection resource with the given {@link FetchPlan} applied, streamed from
+     * a cursor if requested.
+     *
+     * @param invoker
+     * @param sort
+     * @param fetchPlan
+     * @param streamed
+     * @return
+     */
+    private Iterable<?> invokeFindAll(RepositoryInvoker invoker, Sort sort, FetchPlan fetchPlan, boolean streamed) {
+
+        CustomRepositoryRestProperties.Streaming streaming = properties.getStreaming();
+
+        return streamed && invoker instanceof JpaRepositoryInvoker //
+                ? ((JpaRepositoryInvoker) invoker).invokeStreamAll(sort, fetchPlan, streaming.getFetchSize(),
+                streaming.getClearInterval()) //
+                : withFetchPlan(invoker.invokeFindAll(sort), fetchPlan);
+    }
+
+    /**
+     * Returns the given {@link SparseFieldset} of the collection resource, paged the same way as whole entities.
+     *
+     * @param resourceInformation
+     * @param fields
+     * @param pageable
+     * @param sort
+     * @param parameters
+     * @param preferHeader
+     * @param streamed
+     * @return
+     */
+    private Iterable<?> invokeFindAll(RootResourceInformation resourceInformation, SparseFieldset fields,
+                                      DefaultedPageable pageable, Sort sort, MultiValueMap<String, Object> parameters,
+                                      String preferHeader, boolean streamed) {
+
+        JpaRepositoryInvoker invoker = (JpaRepositoryInvoker) resourceInformation.getInvoker();
+
+        if (parameters.containsKey(CURSOR_PARAM)) {
+            return invoker.invokeFindAllAfter(fields, (String) parameters.getFirst(CURSOR_PARAM), sort,
+                    getKeysetSize(pageable));
+        }
+
+        if (!isPagingRequested(pageable, parameters)) {
+
+            CustomRepositoryRestProperties.Streaming streaming = properties.getStreaming();
+
+            return streamed //
+                    ? invoker.invokeStreamAll(fields, sort, streaming.getFetchSize(), streaming.getClearInterval()) //
+                    : invoker.invokeFindAll(fields, sort);
+        }
+
+        if (CustomControllerUtils.hasPreference(preferHeader, COUNT_NONE_PREFERENCE)) {
+            return invoker.invokeFindSlice(fields, pageable.getPageable());
+        }
+
+        return invoker.invokeFindAll(fields, pageable.getPageable(),
+                totals.isCached(resourceInformation.getResourceMetadata()) //
+                        ? () -> totals.getTotal(resourceInformation.getDomainType(), invoker::invokeCount) //
+                        : invoker::invokeCount);
+    }
+
+    /**
+     * Returns the {@link SparseFieldset} selected by the {@code fields} parameter. Fields cannot be combined with a
+     * {@link FetchPlan}, as associations are only selected as identifiers. Not supported for repositories customizing
+     * their find-all method, as the queries selecting the fields cannot honor the customization.
+     *
+     * @param invoker
+     * @param parameters
+     * @return
+     */
+    private static SparseFieldset getFieldset(RepositoryInvoker invoker, MultiValueMap<String, Object> parameters) {
+
+        if (!(invoker instanceof JpaRepositoryInvoker) || ((JpaRepositoryInvoker) invoker).customizesFindAll()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Fields are not supported for this resource!");
+        }
+
+        if (parameters.containsKey(EXPAND_PARAM)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Fields cannot be combined with expand!");
+        }
+
+        return ((JpaRepositoryInvoker) invoker).getFieldset((String) parameters.getFirst(FIELDS_PARAM));
+    }
+
+    /**
+     * Performs the given read in a read-only transaction, so Hibernate neither flushes the persistence context nor keeps
+     * snapshots of the loaded entities for dirty checking. Associations not initialized within it are rendered as
+     * identifiers.
+     *
+     * @param read
+     * @return
+     * @throws HttpRequestMethodNotSupportedException
+     */
+    private <T> T readOnly(Read<T> read) throws HttpRequestMethodNotSupportedException {
+
+        try {
+
+            return readOnlyTransactionTemplate.execute(status -> {
+                try {
+                    return read.read();
+                } catch (HttpRequestMethodNotSupportedException o_O) {
+                    throw new UnsupportedMethodException(o_O);
+                }
+            });
+
+        } catch (UnsupportedMethodException o_O) {
+            throw o_O.getCause();
+        }
+    }
+
+    /**
+     * Returns the {@link FetchPlan} selected by the given {@code expand} parameter, or the default plan of the resource
+     * if the parameter is absent.
+     *
+     * @param invoker
+     * @param expand
+     * @return
+     */
+    private static FetchPlan getFetchPlan(RepositoryInvoker invoker, String expand) {
+
+        if (invoker instanceof JpaRepositoryInvoker) {
+            return ((JpaRepositoryInvoker) invoker).getFetchPlan(expand);
+        }
+
+        if (expand != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Fetch plans are not supported for this resource!");
+        }
+
+        return FetchPlan.NONE;
+    }
+
+    private <T extends Iterable<?>> T withFetchPlan(T results, FetchPlan fetchPlan) {
+
+        if (!properties.getTracing().isEnabled()) {
+
+            fetchPlan.apply(results);
+
+            return results;
+        }
+
+        return RequestTrace.time(RequestTrace.Phase.FETCH, () -> {
+
+            fetchPlan.apply(results);
+
+            return results;
+        });
+    }
+
+    /**
+     * Returns the keyset page following the given cursor. Not supported for repositories customizing their find-all
+     * method, as keyset queries cannot honor the customization.
+     *
+     * @param invoker
+     * @param cursor
+     * @param pageable
+     * @param sort
+     * @return
+     */
+    private KeysetSlice<Object> invokeFindAllAfter(RepositoryInvoker invoker, String cursor,
+                                                   DefaultedPageable pageable, Sort sort) {
+
+        if (!(invoker instanceof JpaRepositoryInvoker) || ((JpaRepositoryInvoker) invoker).customizesFindAll()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Keyset pagination is not supported for this resource!");
+        }
+
+        return ((JpaRepositoryInvoker) invoker).invokeFindAllAfter(cursor, sort, getKeysetSize(pageable));
+    }
+
+    private int getKeysetSize(DefaultedPageable pageable) {
+
+        return pageable.getPageable().isPaged() //
+                ? pageable.getPageable().getPageSize() //
+                : config.getDefaultPageSize();
+    }
+
     private Link getDefaultSelfLink() {
         return Link.of(ServletUriComponentsBuilder.fromCurrentRequest().build().toUriString());
     }
@@ -459,5 +1206,69 @@ public class CustomRepositoryRestController implements ApplicationEventPublisher
                 .withRel(searchMappings.getRel()))
                 : links;
     }
-}
 
+    /**
+     * Whether a write returns the written entities, following a {@code Prefer: return=minimal} or
+     * {@code Prefer: return=representation} header (RFC 7240) over the configured default. An honored preference is
+     * confirmed with a {@code Preference-Applied} header.
+     */
+    private static class ReturnPreference {
+
+        private final boolean returnBody;
+        private final @Nullable String applied;
+
+        private ReturnPreference(boolean returnBody, @Nullable String applied) {
+
+            this.returnBody = returnBody;
+            this.applied = applied;
+        }
+
+        static ReturnPreference of(@Nullable String preferHeader, boolean returnBodyByDefault) {
+
+            if (CustomControllerUtils.hasPreference(preferHeader, RETURN_MINIMAL_PREFERENCE)) {
+                return new ReturnPreference(false, RETURN_MINIMAL_PREFERENCE);
+            }
+
+            if (CustomControllerUtils.hasPreference(preferHeader, RETURN_REPRESENTATION_PREFERENCE)) {
+                return new ReturnPreference(true, RETURN_REPRESENTATION_PREFERENCE);
+            }
+
+            return new ReturnPreference(returnBodyByDefault, null);
+        }
+
+        void addAppliedHeader(HttpHeaders headers) {
+
+            if (applied != null) {
+                headers.set(PREFERENCE_APPLIED_HEADER, applied);
+            }
+        }
+    }
+
+    /**
+     * A read performed by {@link #readOnly(Read)}.
+     */
+    private interface Read<T> {
+        T read() throws HttpRequestMethodNotSupportedException;
+    }
+
+    /**
+     * Carries a {@link HttpRequestMethodNotSupportedException} out of a {@link TransactionTemplate} callback.
+     */
+    private static class UnsupportedMethodException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedMethodException(HttpRequestMethodNotSupportedException cause) {
+            super(cause);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Throwable#getCause()
+         */
+        @Override
+        public synchronized HttpRequestMethodNotSupportedException getCause() {
+            return (HttpRequestMethodNotSupportedException) super.getCause();
+        }
+    }
+}
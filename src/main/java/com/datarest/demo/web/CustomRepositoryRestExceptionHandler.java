@@ -0,0 +1,46 @@
+package com.datarest.demo.web;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.rest.webmvc.RepositoryRestExceptionHandler;
+import org.springframework.data.rest.webmvc.support.ETagDoesntMatchException;
+import org.springframework.data.rest.webmvc.support.ExceptionMessage;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+/**
+ * Translates the versioning failures of {@link CustomRepositoryRestController} into the responses
+ * {@link RepositoryRestExceptionHandler} renders for the Spring Data REST controllers, which it is not applied to.
+ */
+@ControllerAdvice(assignableTypes = CustomRepositoryRestController.class)
+public class CustomRepositoryRestExceptionHandler {
+
+    /**
+     * Handles {@link ETagDoesntMatchException} by returning {@code 412 Precondition Failed} along with the current
+     * {@code ETag}.
+     *
+     * @param o_O the exception to handle.
+     * @return
+     */
+    @ExceptionHandler
+    ResponseEntity<Void> handle(ETagDoesntMatchException o_O) {
+
+        HttpHeaders headers = o_O.getExpectedETag().addTo(new HttpHeaders());
+
+        return new ResponseEntity<>(headers, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    /**
+     * Handles {@link OptimisticLockingFailureException}, raised for concurrent modifications, by returning
+     * {@code 409 Conflict}.
+     *
+     * @param o_O the exception to handle.
+     * @return
+     */
+    @ExceptionHandler
+    ResponseEntity<ExceptionMessage> handleConflict(OptimisticLockingFailureException o_O) {
+        return new ResponseEntity<>(new ExceptionMessage(o_O), new HttpHeaders(), HttpStatus.CONFLICT);
+    }
+}
@@ -7,7 +7,6 @@ import org.springframework.data.rest.core.mapping.HttpMethods;
 import org.springframework.data.rest.core.mapping.ResourceMappings;
 import org.springframework.data.rest.core.mapping.ResourceMetadata;
 import org.springframework.data.rest.webmvc.BasePathAwareHandlerMapping;
-import org.springframework.data.rest.webmvc.BaseUri;
 import org.springframework.data.rest.webmvc.RepositoryRestController;
 import org.springframework.data.rest.webmvc.RepositoryRestHandlerMapping;
 import org.springframework.data.rest.webmvc.support.JpaHelper;
@@ -15,6 +14,7 @@ import org.springframework.data.util.Streamable;
 import org.springframework.hateoas.MediaTypes;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 import org.springframework.util.StringValueResolver;
@@ -22,17 +22,19 @@ import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.method.HandlerMethod;
-import org.springframework.web.servlet.mvc.condition.PathPatternsRequestCondition;
 import org.springframework.web.servlet.mvc.condition.ProducesRequestCondition;
 import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.util.pattern.PathPattern;
 import org.springframework.web.util.pattern.PathPatternParser;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class CustomRepositoryRestHandlerMapping extends BasePathAwareHandlerMapping {
-    private final static String DEFAULT_PATH_PREFIX = "/api";
+    private static final String REPOSITORY_VARIABLE = "repository";
+    private static final String REPOSITORY_SEGMENT = "/{" + REPOSITORY_VARIABLE + "}";
     private static final PathPatternParser PARSER = new PathPatternParser();
 
     public static final HttpMethods DEFAULT_ALLOWED_METHODS = HttpMethods.none()
@@ -48,6 +50,8 @@ public class CustomRepositoryRestHandlerMapping extends BasePathAwareHandlerMapp
 
     private RepositoryCorsConfigurationAccessor corsConfigurationAccessor;
     private Optional<JpaHelper> jpaHelper = Optional.empty();
+    private Map<String, Map<String, PathPattern>> routes = Collections.emptyMap();
+    private Set<String> prefixes = Collections.emptySet();
 
     /**
      * Creates a new {@link RepositoryRestHandlerMapping} for the given {@link ResourceMappings} and
@@ -112,6 +116,30 @@ public class CustomRepositoryRestHandlerMapping extends BasePathAwareHandlerMapp
                 resolver == null ? NoOpStringValueResolver.INSTANCE : resolver, repositories);
     }
 
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.web.servlet.handler.AbstractHandlerMethodMapping#afterPropertiesSet()
+     */
+    @Override
+    public void afterPropertiesSet() {
+
+        super.afterPropertiesSet();
+
+        this.routes = computeRoutes();
+        this.prefixes = computePrefixes();
+    }
+
+    /**
+     * Returns the literal single segment path prefixes, i.e. {@code /api} for {@code /api/\{repository\}}, under which this mapping
+     * exposes repository resources. Requests below them can be dispatched to this mapping without consulting others.
+     * Patterns starting with the {@code repository} variable or a variable of their own don't contribute a prefix.
+     *
+     * @return will never be {@literal null}.
+     */
+    public Set<String> getRepositoryPrefixes() {
+        return prefixes;
+    }
+
     /*
      * (non-Javadoc)
      * @see org.springframework.web.servlet.handler.AbstractHandlerMethodMapping#lookupHandlerMethod(java.lang.String, javax.servlet.http.HttpServletRequest)
@@ -125,21 +153,24 @@ public class CustomRepositoryRestHandlerMapping extends BasePathAwareHandlerMapp
             return null;
         }
 
-        String repositoryLookupPath = new BaseUri(configuration.getBasePath()).getRepositoryLookupPath(lookupPath);
+        String repository = getRepository(request);
 
         // Repository root resource
-        if (!StringUtils.hasText(repositoryLookupPath)) {
+        if (repository == null) {
             return handlerMethod;
         }
 
-        String repositoryBasePath = repositoryLookupPath.replace(DEFAULT_PATH_PREFIX, "");
-        repositoryBasePath = getRepositoryBasePath(repositoryBasePath);
+        Map<String, PathPattern> repositoryRoutes = routes.get(repository);
 
-        if (!mappings.exportsTopLevelResourceFor(repositoryBasePath)) {
+        if (repositoryRoutes == null) {
             return null;
         }
 
-        exposeEffectiveLookupPathKey(handlerMethod, request, repositoryBasePath);
+        PathPattern effectiveLookupPath = repositoryRoutes.get(request.getAttribute(BEST_MATCHING_PATTERN_ATTRIBUTE));
+
+        if (effectiveLookupPath != null) {
+            request.setAttribute(EFFECTIVE_LOOKUP_PATH_ATTRIBUTE, effectiveLookupPath);
+        }
 
         return handlerMethod;
     }
@@ -200,69 +231,91 @@ public class CustomRepositoryRestHandlerMapping extends BasePathAwareHandlerMapp
     @Override
     protected CorsConfiguration getCorsConfiguration(Object handler, HttpServletRequest request) {
 
-        String lookupPath = getUrlPathHelper().getLookupPathForRequest(request);
-        String repositoryLookupPath = new BaseUri(configuration.getBasePath()).getRepositoryLookupPath(lookupPath);
+        String repository = getRepository(request);
         CorsConfiguration corsConfiguration = super.getCorsConfiguration(handler, request);
 
-        return repositories.filter(it -> StringUtils.hasText(repositoryLookupPath))//
-                .flatMap(it -> corsConfigurationAccessor.findCorsConfiguration(repositoryLookupPath))
-                .map(it -> it.combine(corsConfiguration))//
-                .orElse(corsConfiguration);
+        return repository == null //
+                ? corsConfiguration //
+                : corsConfigurationAccessor.getCorsConfiguration(repository, corsConfiguration);
     }
 
     /**
-     * Returns the first segment of the given repository lookup path.
+     * Returns the value of the {@code repository} variable of the pattern the request was matched against, i.e. the
+     * path of the repository the request is routed to.
      *
-     * @param repositoryLookupPath must not be {@literal null}.
-     * @return
+     * @param request must not be {@literal null}.
+     * @return the repository path or {@literal null} for requests not addressing a repository.
      */
-    private static String getRepositoryBasePath(String repositoryLookupPath) {
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private static String getRepository(HttpServletRequest request) {
 
-        int secondSlashIndex = repositoryLookupPath.indexOf('/', repositoryLookupPath.startsWith("/") ? 1 : 0);
-        return secondSlashIndex == -1 ? repositoryLookupPath : repositoryLookupPath.substring(0, secondSlashIndex);
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+
+        return variables == null ? null : variables.get(REPOSITORY_VARIABLE);
     }
 
     /**
-     * Exposes the effective repository resource lookup path as request attribute via
-     * {@link #EFFECTIVE_LOOKUP_PATH_ATTRIBUTE}, i.e. {@code /people/search/\{search\}} instead of
-     * {@code /\{repository\}/search/\{search\}}.
+     * Computes the effective repository resource lookup paths, i.e. {@code /people/search/\{search\}} instead of
+     * {@code /\{repository\}/search/\{search\}}, of all registered patterns for all exported repositories, keyed by
+     * the value of the {@code repository} variable and the registered pattern. Requests for the same pattern and
+     * repository are routed to the same instance, so resolving it is a lookup rather than a parse.
      *
-     * @param method             must not be {@literal null}.
-     * @param request            must not be {@literal null}.
-     * @param repositoryBasePath must not be {@literal null}.
+     * @return
      */
-    private void exposeEffectiveLookupPathKey(HandlerMethod method, HttpServletRequest request,
-                                              String repositoryBasePath) {
+    private Map<String, Map<String, PathPattern>> computeRoutes() {
+
+        PathPatternParser parser = getPatternParser();
+        parser = parser != null ? parser : PARSER;
 
-        RequestMappingInfo mappingInfo = getMappingForMethod(method.getMethod(), method.getBeanType());
+        Set<String> patterns = new LinkedHashSet<>();
 
-        if (mappingInfo == null) {
-            return;
+        for (RequestMappingInfo info : getHandlerMethods().keySet()) {
+            info.getPatternValues().stream() //
+                    .filter(it -> it.contains(REPOSITORY_SEGMENT)) //
+                    .forEach(patterns::add);
         }
 
-        String pattern = getPattern(mappingInfo, request);
+        Map<String, Map<String, PathPattern>> routes = new HashMap<>();
 
-        PathPatternParser parser = getPatternParser();
-        parser = parser != null ? parser : PARSER;
+        for (ResourceMetadata metadata : mappings) {
+
+            if (!metadata.isExported()) {
+                continue;
+            }
+
+            String repositoryBasePath = metadata.getPath().toString();
+            Map<String, PathPattern> repositoryRoutes = new HashMap<>();
+
+            for (String pattern : patterns) {
+                repositoryRoutes.put(pattern, parser.parse(pattern.replace(REPOSITORY_SEGMENT, repositoryBasePath)));
+            }
 
-        request.setAttribute(EFFECTIVE_LOOKUP_PATH_ATTRIBUTE,
-                parser.parse(pattern.replace("/{repository}", repositoryBasePath)));
+            routes.put(StringUtils.trimLeadingCharacter(repositoryBasePath, '/'),
+                    Collections.unmodifiableMap(repositoryRoutes));
+        }
+
+        return Collections.unmodifiableMap(routes);
     }
 
-    private static String getPattern(RequestMappingInfo info, HttpServletRequest request) {
+    private Set<String> computePrefixes() {
+
+        Set<String> prefixes = new LinkedHashSet<>();
+
+        for (RequestMappingInfo info : getHandlerMethods().keySet()) {
+            for (String pattern : info.getPatternValues()) {
 
-        PathPatternsRequestCondition pathPatternsCondition = info.getPathPatternsCondition();
+                int index = pattern.indexOf(REPOSITORY_SEGMENT);
+                String prefix = index > 0 ? pattern.substring(0, index) : null;
 
-        if (pathPatternsCondition != null) {
-            return pathPatternsCondition
-                    .getMatchingCondition(request)
-                    .getFirstPattern().getPatternString();
+                if (prefix != null && prefix.indexOf('/', 1) == -1 && !prefix.contains("{")
+                        && !prefix.contains("*")) {
+                    prefixes.add(prefix);
+                }
+            }
         }
 
-        return info.getPatternsCondition() //
-                .getMatchingCondition(request)//
-                .getPatterns()
-                .iterator().next();
+        return Collections.unmodifiableSet(prefixes);
     }
 
     /**
@@ -300,6 +353,8 @@ public class CustomRepositoryRestHandlerMapping extends BasePathAwareHandlerMapp
         private final StringValueResolver embeddedValueResolver;
         private final Optional<Repositories> repositories;
 
+        private volatile Map<String, RepositoryCorsConfiguration> configurations;
+
         public RepositoryCorsConfigurationAccessor(ResourceMappings mappings, StringValueResolver embeddedValueResolver,
                                                    Optional<Repositories> repositories) {
 
@@ -312,23 +367,54 @@ public class CustomRepositoryRestHandlerMapping extends BasePathAwareHandlerMapp
             this.repositories = repositories;
         }
 
-        Optional<CorsConfiguration> findCorsConfiguration(String lookupPath) {
+        /**
+         * Returns the {@link CorsConfiguration} of the repository with the given path combined with the given one of
+         * the handler. Both the configurations of the repositories and their combinations with the configurations of
+         * the handlers are computed once and reused for subsequent requests.
+         *
+         * @param repository           the repository path, must not be {@literal null}.
+         * @param handlerConfiguration the {@link CorsConfiguration} of the handler, may be {@literal null}.
+         * @return
+         */
+        @Nullable
+        CorsConfiguration getCorsConfiguration(String repository, @Nullable CorsConfiguration handlerConfiguration) {
+
+            RepositoryCorsConfiguration configuration = getConfigurations().get(repository);
 
-            return getResourceMetadata(getRepositoryBasePath(lookupPath))//
-                    .flatMap(it -> repositories.flatMap(foo -> foo.getRepositoryInformationFor(it.getDomainType())))//
-                    .map(it -> it.getRepositoryInterface())//
-                    .map(it -> createConfiguration(it));
+            return configuration == null //
+                    ? handlerConfiguration //
+                    : configuration.combine(handlerConfiguration);
         }
 
-        private Optional<ResourceMetadata> getResourceMetadata(String basePath) {
+        private Map<String, RepositoryCorsConfiguration> getConfigurations() {
+
+            Map<String, RepositoryCorsConfiguration> configurations = this.configurations;
+
+            if (configurations == null) {
+
+                configurations = new HashMap<>();
 
-            if (!mappings.exportsTopLevelResourceFor(basePath)) {
-                return Optional.empty();
+                for (ResourceMetadata metadata : mappings) {
+
+                    if (!metadata.isExported()) {
+                        continue;
+                    }
+
+                    CorsConfiguration configuration = repositories //
+                            .flatMap(it -> it.getRepositoryInformationFor(metadata.getDomainType())) //
+                            .map(it -> createConfiguration(it.getRepositoryInterface())) //
+                            .orElse(null);
+
+                    if (configuration != null) {
+                        configurations.put(StringUtils.trimLeadingCharacter(metadata.getPath().toString(), '/'),
+                                new RepositoryCorsConfiguration(configuration));
+                    }
+                }
+
+                this.configurations = configurations = Collections.unmodifiableMap(configurations);
             }
 
-            return mappings.stream()//
-                    .filter(it -> it.getPath().matches(basePath) && it.isExported())//
-                    .findFirst();
+            return configurations;
         }
 
         /**
@@ -413,4 +499,26 @@ public class CustomRepositoryRestHandlerMapping extends BasePathAwareHandlerMapp
                     .toList());
         }
     }
+
+    /**
+     * The {@link CorsConfiguration} declared on a repository along with its combinations with the configurations of the
+     * handlers it was requested with. Handler configurations are created once per handler method, so they are keyed by
+     * identity.
+     */
+    private static class RepositoryCorsConfiguration {
+
+        private final CorsConfiguration configuration;
+        private final Map<CorsConfiguration, CorsConfiguration> combinations = new ConcurrentHashMap<>();
+
+        RepositoryCorsConfiguration(CorsConfiguration configuration) {
+            this.configuration = configuration;
+        }
+
+        CorsConfiguration combine(@Nullable CorsConfiguration handlerConfiguration) {
+
+            return handlerConfiguration == null //
+                    ? configuration //
+                    : combinations.computeIfAbsent(handlerConfiguration, configuration::combine);
+        }
+    }
 }
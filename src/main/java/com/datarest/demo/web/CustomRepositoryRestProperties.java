@@ -0,0 +1,242 @@
+package com.datarest.demo.web;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Configuration properties for the resources exposed by {@link CustomRepositoryRestController}.
+ */
+@Getter
+@ConfigurationProperties(prefix = "demo.rest")
+public class CustomRepositoryRestProperties {
+
+    private final Streaming streaming = new Streaming();
+    private final Totals totals = new Totals();
+    private final Tracing tracing = new Tracing();
+    private final Responses responses = new Responses();
+    private final Coalescing coalescing = new Coalescing();
+    private final Replica replica = new Replica();
+    private final Outbox outbox = new Outbox();
+    private final Changes changes = new Changes();
+
+    /**
+     * Streaming of unpaged collection resources.
+     */
+    @Getter
+    @Setter
+    public static class Streaming {
+
+        /**
+         * Whether unpaged collection resources are written from a forward-only cursor instead of a fully loaded list.
+         */
+        private boolean enabled = false;
+
+        /**
+         * JDBC fetch size used for the cursor.
+         */
+        private int fetchSize = 100;
+
+        /**
+         * Number of rows after which the persistence context is cleared.
+         */
+        private int clearInterval = 100;
+    }
+
+    /**
+     * Cached totals of paged collection resources.
+     */
+    @Getter
+    @Setter
+    public static class Totals {
+
+        /**
+         * Paths of the repositories, e.g. {@code orders}, whose collection totals are cached instead of counted per
+         * request.
+         */
+        private Set<String> repositories = new LinkedHashSet<>();
+
+        /**
+         * Time after which a cached total is counted again.
+         */
+        private Duration refreshInterval = Duration.ofMinutes(5);
+    }
+
+    /**
+     * Tracing of the phases of requests for repository resources.
+     */
+    @Getter
+    @Setter
+    public static class Tracing {
+
+        /**
+         * Whether the time spent in each phase of a request is recorded, rendered as {@code Server-Timing} header and
+         * committed as Flight Recorder event. Responses are buffered while tracing.
+         */
+        private boolean enabled = false;
+    }
+
+    /**
+     * Cached bodies of item resources.
+     */
+    @Getter
+    @Setter
+    public static class Responses {
+
+        /**
+         * Whether the encoded bodies of item resources are cached per version of the entity they were rendered from.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of bodies kept on the heap, in front of the off-heap tier.
+         */
+        private long heapEntries = 1000;
+
+        /**
+         * Size of the off-heap tier.
+         */
+        private DataSize offHeapSize = DataSize.ofMegabytes(32);
+
+        /**
+         * Time after which a cached body is rendered again.
+         */
+        private Duration timeToLive = Duration.ofMinutes(10);
+    }
+
+    /**
+     * Coalescing of concurrent identical reads.
+     */
+    @Getter
+    @Setter
+    public static class Coalescing {
+
+        /**
+         * Paths of the repositories, e.g. {@code products}, whose concurrent identical reads share a single database
+         * fetch and rendered body.
+         */
+        private Set<String> repositories = new LinkedHashSet<>();
+
+        /**
+         * Time a request waits for the read in flight before it reads on its own.
+         */
+        private Duration maxWait = Duration.ofSeconds(1);
+    }
+
+    /**
+     * Replica of the database serving the reads of repository resources.
+     */
+    @Getter
+    @Setter
+    public static class Replica {
+
+        /**
+         * JDBC URL of the replica. Read-only transactions are routed to it if set, everything else goes to the
+         * database configured with {@code spring.datasource}.
+         */
+        private String url;
+
+        /**
+         * Login username of the replica.
+         */
+        private String username;
+
+        /**
+         * Login password of the replica.
+         */
+        private String password;
+
+        /**
+         * Maximum pool size of the replica.
+         */
+        private int maximumPoolSize = 10;
+
+        /**
+         * Time after a write during which the reads of the client that wrote still go to the primary, covering the
+         * replication lag.
+         */
+        private Duration lag = Duration.ofSeconds(5);
+    }
+
+    /**
+     * Asynchronous dispatch of the events published after writes.
+     */
+    @Getter
+    @Setter
+    public static class Outbox {
+
+        /**
+         * Whether the {@code After*} events of writes are stored in an outbox table within the transaction of the write
+         * and dispatched to their listeners in the background once it committed.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of threads dispatching events.
+         */
+        private int threads = 2;
+
+        /**
+         * Number of events read from the outbox at once.
+         */
+        private int batchSize = 100;
+
+        /**
+         * Time after which events that could not be dispatched, or were left over by a previous run, are dispatched
+         * again.
+         */
+        private Duration retryInterval = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Server-Sent Events streams of the changes to collection resources.
+     */
+    @Getter
+    @Setter
+    public static class Changes {
+
+        /**
+         * Whether {@code /api/{repository}/changes} streams the writes to the repository as Server-Sent Events.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of recent changes kept per repository for clients resuming with {@code Last-Event-ID}.
+         */
+        private int bufferSize = 1000;
+
+        /**
+         * Number of changes queued for a connection before it is considered too slow and closed.
+         */
+        private int queueCapacity = 256;
+
+        /**
+         * Number of threads writing changes to connections, not counting the ones blocked writing to connections closed
+         * for exceeding the write timeout.
+         */
+        private int threads = 4;
+
+        /**
+         * Time a write to a connection may block, as its client stopped reading, before the connection is considered
+         * too slow and closed.
+         */
+        private Duration writeTimeout = Duration.ofSeconds(10);
+
+        /**
+         * Interval of the comments sent to idle connections to keep them open.
+         */
+        private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+        /**
+         * Timeout of the asynchronous requests streaming changes, after which connections are closed for clients to
+         * reconnect.
+         */
+        private Duration timeout = Duration.ofMinutes(30);
+    }
+}
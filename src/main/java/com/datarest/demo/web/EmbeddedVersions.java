@@ -0,0 +1,164 @@
+package com.datarest.demo.web;
+
+import org.springframework.data.rest.webmvc.support.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.Date;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * The versions of the entities a {@link FetchPlan} embeds into the body of an item resource. Writes to embedded
+ * entities don't change the version of the entity embedding them, so they are added to the validators of the item
+ * resource: its {@code ETag} is the version of its entity followed by a digest of the embedded versions, and its
+ * {@code Last-Modified} date the latest one of all these entities. Item resources not embedding any entity keep the
+ * plain version as {@code ETag}.
+ */
+class EmbeddedVersions {
+
+    /**
+     * No embedded entities, leaving the validators of the entity itself unchanged.
+     */
+    static final EmbeddedVersions NONE = new EmbeddedVersions(Collections.emptySortedSet(), null);
+
+    private static final char SEPARATOR = '-';
+    private static final char QUOTE = '"';
+
+    private final SortedSet<String> versions;
+    private final @Nullable Instant lastModified;
+
+    private EmbeddedVersions(SortedSet<String> versions, @Nullable Instant lastModified) {
+
+        this.versions = versions;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Returns a new {@link Builder} collecting the versions of embedded entities.
+     *
+     * @return
+     */
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the {@link ETag} of the entity itself for the given {@code ETag} of an item resource. Preconditions of
+     * writes are verified against it, as a write only changes the entity itself, not the ones embedded into its body.
+     *
+     * @param eTag must not be {@literal null}.
+     * @return
+     */
+    static ETag toRootETag(ETag eTag) {
+
+        Assert.notNull(eTag, "ETag must not be null!");
+
+        if (ETag.NO_ETAG.equals(eTag)) {
+            return eTag;
+        }
+
+        String value = StringUtils.trimTrailingCharacter(StringUtils.trimLeadingCharacter(eTag.toString(), QUOTE),
+                QUOTE);
+        int separator = value.indexOf(SEPARATOR);
+
+        return separator < 0 ? eTag : ETag.from(value.substring(0, separator));
+    }
+
+    /**
+     * Adds the embedded versions to the {@code ETag} and {@code Last-Modified} headers computed from the entity itself.
+     *
+     * @param headers must not be {@literal null}.
+     * @return the given headers.
+     */
+    HttpHeaders addTo(HttpHeaders headers) {
+
+        Assert.notNull(headers, "HttpHeaders must not be null!");
+
+        if (versions.isEmpty()) {
+            return headers;
+        }
+
+        String eTag = headers.getETag();
+
+        if (eTag != null) {
+
+            String digest = DigestUtils.md5DigestAsHex(String.join(",", versions).getBytes(StandardCharsets.UTF_8));
+
+            headers.setETag(StringUtils.trimTrailingCharacter(eTag, QUOTE) + SEPARATOR + digest + QUOTE);
+        }
+
+        if (lastModified != null && lastModified.toEpochMilli() > headers.getLastModified()) {
+            headers.setLastModified(lastModified);
+        }
+
+        return headers;
+    }
+
+    /**
+     * Collects the identifiers, versions and last modification dates of embedded entities.
+     */
+    static class Builder {
+
+        private final SortedSet<String> versions = new TreeSet<>();
+        private @Nullable Instant lastModified;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds the given embedded entity. Entities added more than once are only recorded once.
+         *
+         * @param entityName   must not be {@literal null}.
+         * @param id           must not be {@literal null}.
+         * @param version      can be {@literal null}.
+         * @param lastModified can be {@literal null}.
+         * @return
+         */
+        Builder add(String entityName, Object id, @Nullable Object version, @Nullable Object lastModified) {
+
+            Assert.notNull(entityName, "Entity name must not be null!");
+            Assert.notNull(id, "Id must not be null!");
+
+            versions.add(entityName + "#" + id + "#" + version);
+
+            Instant instant = toInstant(lastModified);
+
+            if (instant != null && (this.lastModified == null || instant.isAfter(this.lastModified))) {
+                this.lastModified = instant;
+            }
+
+            return this;
+        }
+
+        EmbeddedVersions build() {
+            return versions.isEmpty() ? NONE : new EmbeddedVersions(versions, lastModified);
+        }
+
+        @Nullable
+        private static Instant toInstant(@Nullable Object date) {
+
+            if (date instanceof Instant) {
+                return (Instant) date;
+            }
+
+            if (date instanceof Date) {
+                return ((Date) date).toInstant();
+            }
+
+            if (date instanceof LocalDateTime) {
+                return ((LocalDateTime) date).atZone(ZoneId.systemDefault()).toInstant();
+            }
+
+            return null;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.datarest.demo.web;
+
+import org.hibernate.SessionFactory;
+import org.springframework.data.rest.core.event.AfterCreateEvent;
+import org.springframework.data.rest.core.event.AfterDeleteEvent;
+import org.springframework.data.rest.core.event.AfterSaveEvent;
+import org.springframework.data.util.ProxyUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.Assert;
+
+import javax.persistence.Cache;
+import javax.persistence.Cacheable;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Evicts entities written through the API from the second-level cache, driven by the {@link AfterCreateEvent}s,
+ * {@link AfterSaveEvent}s and {@link AfterDeleteEvent}s published for them, along with the cached query results, which
+ * might include or exclude them now. Evicting once the transaction committed keeps concurrent readers from caching the
+ * state it replaced. Created entities are evicted as well, as Hibernate caches them as they were in memory, e.g. with
+ * a price not rounded to the scale of its column yet. Entities not kept in the second-level cache are ignored, as is
+ * everything if the cache is disabled.
+ */
+@Component
+public class EntityCacheEviction {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public EntityCacheEviction(EntityManagerFactory entityManagerFactory) {
+
+        Assert.notNull(entityManagerFactory, "EntityManagerFactory must not be null!");
+
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    void on(AfterCreateEvent event) {
+        evict(event.getSource());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    void on(AfterSaveEvent event) {
+        evict(event.getSource());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    void on(AfterDeleteEvent event) {
+        evict(event.getSource());
+    }
+
+    private void evict(Object entity) {
+
+        Class<?> type = ProxyUtils.getUserClass(entity);
+        Cacheable cacheable = type.getAnnotation(Cacheable.class);
+
+        if (cacheable == null || !cacheable.value()) {
+            return;
+        }
+
+        Cache cache = entityManagerFactory.getCache();
+        Object id = entityManagerFactory.getPersistenceUnitUtil().getIdentifier(entity);
+
+        if (id != null) {
+            cache.evict(type, id);
+        }
+
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictDefaultQueryRegion();
+    }
+}
@@ -0,0 +1,124 @@
+package com.datarest.demo.web;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.util.Assert;
+
+import javax.persistence.AttributeNode;
+import javax.persistence.EntityGraph;
+import javax.persistence.Subgraph;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The associations to initialize before entities are rendered, taken from an {@link EntityGraph}. Rather than joining
+ * them into the query, which would move pagination of collection fetches into memory, the plan is applied to the
+ * results level by level. Together with {@code hibernate.default_batch_fetch_size} every association of a level is
+ * loaded for all entities at once, so the number of queries depends on the depth of the plan only, not on the number
+ * of entities. Associations not covered by the plan are left uninitialized and rendered as identifiers.
+ */
+class FetchPlan {
+
+    /**
+     * The plan not initializing any association.
+     */
+    static final FetchPlan NONE = new FetchPlan(Collections.emptyMap());
+
+    private final Map<String, FetchPlan> attributes;
+
+    private FetchPlan(Map<String, FetchPlan> attributes) {
+        this.attributes = attributes;
+    }
+
+    /**
+     * Creates a {@link FetchPlan} for the attribute nodes of the given {@link EntityGraph} and their subgraphs.
+     *
+     * @param graph must not be {@literal null}.
+     * @return
+     */
+    static FetchPlan of(EntityGraph<?> graph) {
+
+        Assert.notNull(graph, "EntityGraph must not be null!");
+
+        return of(graph.getAttributeNodes());
+    }
+
+    private static FetchPlan of(List<? extends AttributeNode<?>> nodes) {
+
+        Map<String, FetchPlan> attributes = new LinkedHashMap<>();
+
+        for (AttributeNode<?> node : nodes) {
+
+            List<AttributeNode<?>> nested = new ArrayList<>();
+
+            for (Subgraph<?> subgraph : node.getSubgraphs().values()) {
+                nested.addAll(subgraph.getAttributeNodes());
+            }
+
+            attributes.put(node.getAttributeName(), nested.isEmpty() ? NONE : of(nested));
+        }
+
+        return new FetchPlan(attributes);
+    }
+
+    /**
+     * Returns the names of the attributes initialized by the plan, along with the plans for their targets.
+     *
+     * @return
+     */
+    Map<String, FetchPlan> getAttributes() {
+        return Collections.unmodifiableMap(attributes);
+    }
+
+    /**
+     * Initializes the associations of the plan on all given entities. Must be called while the entities are still
+     * managed.
+     *
+     * @param entities must not be {@literal null}.
+     */
+    void apply(Iterable<?> entities) {
+
+        Assert.notNull(entities, "Entities must not be null!");
+
+        if (attributes.isEmpty()) {
+            return;
+        }
+
+        List<Object> targets = new ArrayList<>();
+        entities.forEach(targets::add);
+
+        initialize(targets);
+    }
+
+    private void initialize(List<Object> entities) {
+
+        if (entities.isEmpty()) {
+            return;
+        }
+
+        attributes.forEach((attribute, plan) -> {
+
+            List<Object> values = new ArrayList<>();
+
+            for (Object entity : entities) {
+
+                Object value = PropertyAccessorFactory.forBeanPropertyAccess(entity).getPropertyValue(attribute);
+
+                // The first uninitialized value loads the pending ones of the same association as batch
+                Hibernate.initialize(value);
+
+                if (value instanceof Collection) {
+                    values.addAll((Collection<?>) value);
+                } else if (value != null) {
+                    values.add(value);
+                }
+            }
+
+            plan.initialize(values);
+        });
+    }
+}
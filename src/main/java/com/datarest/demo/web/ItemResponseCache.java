@@ -0,0 +1,202 @@
+package com.datarest.demo.web;
+
+import org.ehcache.Cache;
+import org.ehcache.CacheManager;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.CacheManagerBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.MemoryUnit;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.mapping.PersistentEntity;
+import org.springframework.data.mapping.context.PersistentEntities;
+import org.springframework.data.rest.core.event.AfterDeleteEvent;
+import org.springframework.data.rest.core.event.AfterSaveEvent;
+import org.springframework.data.rest.core.event.RepositoryEvent;
+import org.springframework.data.rest.core.mapping.ResourceMappings;
+import org.springframework.data.rest.core.mapping.ResourceMetadata;
+import org.springframework.data.util.ProxyUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.Assert;
+
+import java.io.Serializable;
+import java.util.Optional;
+
+/**
+ * Encoded JSON bodies of item resources, configured in {@link CustomRepositoryRestProperties.Responses}, so repeated
+ * reads of an unchanged entity are answered without loading and serializing it again. Bodies are kept in a bounded heap
+ * tier backed by an off-heap tier, so large catalogs don't add to the garbage collected heap.
+ * <p>
+ * Each body is stored along with the {@code ETag} it was rendered with and only returned for that very {@code ETag}.
+ * It covers the versions of the entity and of the ones embedded by its default {@link FetchPlan}, see
+ * {@link EmbeddedVersions}, so a write bypassing the API doesn't get a stale body served as long as it increments the
+ * version of the entity it writes. Bulk updates and native statements leaving versions untouched go unnoticed until
+ * the body expires. Writes through the API evict the bodies of the entities they wrote once their transaction
+ * committed, driven by the {@link AfterSaveEvent}s and {@link AfterDeleteEvent}s published for them. Bodies embedding a
+ * written entity are replaced the next time they are read, as their {@code ETag} no longer matches.
+ */
+@Component
+public class ItemResponseCache implements DisposableBean {
+
+    private static final String CACHE_NAME = "item-responses";
+
+    private final CustomRepositoryRestProperties.Responses properties;
+    private final ResourceMappings mappings;
+    private final PersistentEntities entities;
+    private final JsonRenderer renderer;
+
+    private final @Nullable CacheManager cacheManager;
+    private final @Nullable Cache<String, Entry> cache;
+
+    public ItemResponseCache(CustomRepositoryRestProperties properties, ResourceMappings mappings,
+                             PersistentEntities entities,
+                             JsonRenderer renderer) {
+
+        Assert.notNull(properties, "CustomRepositoryRestProperties must not be null!");
+        Assert.notNull(mappings, "ResourceMappings must not be null!");
+        Assert.notNull(entities, "PersistentEntities must not be null!");
+        Assert.notNull(renderer, "JsonRenderer must not be null!");
+
+        this.properties = properties.getResponses();
+        this.mappings = mappings;
+        this.entities = entities;
+        this.renderer = renderer;
+
+        if (this.properties.isEnabled()) {
+
+            this.cacheManager = CacheManagerBuilder.newCacheManagerBuilder() //
+                    .withCache(CACHE_NAME, CacheConfigurationBuilder //
+                            .newCacheConfigurationBuilder(String.class, Entry.class, ResourcePoolsBuilder //
+                                    .heap(this.properties.getHeapEntries()) //
+                                    .offheap(this.properties.getOffHeapSize().toMegabytes(), MemoryUnit.MB)) //
+                            .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(this.properties.getTimeToLive()))) //
+                    .build(true);
+            this.cache = cacheManager.getCache(CACHE_NAME, String.class, Entry.class);
+
+        } else {
+
+            this.cacheManager = null;
+            this.cache = null;
+        }
+    }
+
+    /**
+     * Returns whether bodies of item resources are cached.
+     *
+     * @return
+     */
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Returns the body of the given item resource if it was rendered from the version with the given {@code ETag}.
+     *
+     * @param metadata must not be {@literal null}.
+     * @param id       must not be {@literal null}.
+     * @param eTag     must not be {@literal null}.
+     * @return
+     */
+    Optional<byte[]> get(ResourceMetadata metadata, Object id, String eTag) {
+
+        Assert.state(cache != null, "Item response cache is not enabled!");
+        Assert.notNull(metadata, "ResourceMetadata must not be null!");
+        Assert.notNull(id, "Identifier must not be null!");
+        Assert.notNull(eTag, "ETag must not be null!");
+
+        return Optional.ofNullable(cache.get(getKey(metadata, id))) //
+                .filter(it -> it.eTag.equals(eTag)) //
+                .map(it -> it.body);
+    }
+
+    /**
+     * Renders the given entity, which must have its default {@link FetchPlan} applied, and caches the body for the
+     * version with the given {@code ETag}.
+     *
+     * @param metadata must not be {@literal null}.
+     * @param id       must not be {@literal null}.
+     * @param eTag     must not be {@literal null}.
+     * @param entity   must not be {@literal null}.
+     * @return the rendered body.
+     */
+    byte[] put(ResourceMetadata metadata, Object id, String eTag, Object entity) {
+
+        Assert.state(cache != null, "Item response cache is not enabled!");
+        Assert.notNull(metadata, "ResourceMetadata must not be null!");
+        Assert.notNull(id, "Identifier must not be null!");
+        Assert.notNull(eTag, "ETag must not be null!");
+        Assert.notNull(entity, "Entity must not be null!");
+
+        byte[] body = renderer.render(entity);
+        cache.put(getKey(metadata, id), new Entry(eTag, body));
+
+        return body;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    void on(AfterSaveEvent event) {
+        evict(event);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    void on(AfterDeleteEvent event) {
+        evict(event);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.beans.factory.DisposableBean#destroy()
+     */
+    @Override
+    public void destroy() {
+
+        if (cacheManager != null) {
+            cacheManager.close();
+        }
+    }
+
+    private void evict(RepositoryEvent event) {
+
+        if (cache == null) {
+            return;
+        }
+
+        Class<?> type = ProxyUtils.getUserClass(event.getSource());
+        ResourceMetadata metadata = mappings.getMetadataFor(type);
+        PersistentEntity<?, ?> entity = entities.getPersistentEntity(type).orElse(null);
+
+        if (metadata == null || entity == null) {
+            return;
+        }
+
+        Object id = entity.getIdentifierAccessor(event.getSource()).getIdentifier();
+
+        if (id != null) {
+            cache.remove(getKey(metadata, id));
+        }
+    }
+
+    private static String getKey(ResourceMetadata metadata, Object id) {
+        return metadata.getPath() + "/" + id;
+    }
+
+    /**
+     * The body of an item resource and the {@code ETag} of the version it was rendered from.
+     */
+    static class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String eTag;
+        private final byte[] body;
+
+        Entry(String eTag, byte[] body) {
+
+            this.eTag = eTag;
+            this.body = body;
+        }
+    }
+}
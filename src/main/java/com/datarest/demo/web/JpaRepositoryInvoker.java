@@ -0,0 +1,466 @@
+package com.datarest.demo.web;
+
+import org.springframework.core.convert.ConversionService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.core.CrudMethods;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.data.repository.support.RepositoryInvoker;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.MultiValueMap;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link RepositoryInvoker} that executes {@code findAll(Pageable)} and {@code findAll(Sort)} through a
+ * {@link ResourceJpaRepository} whenever the exported repository does not declare those methods itself. This makes sure
+ * {@code LIMIT}/{@code OFFSET} and {@code ORDER BY} end up in the SQL instead of loading the whole table.
+ * Repositories customizing their find-all method, with a query or a custom implementation, are always invoked through
+ * the repository proxy, so the customization is honored. The same goes for their delete method, which callers check
+ * with {@link #customizesDelete()} before deleting in bulk. All other invocations are forwarded to the delegate.
+ */
+class JpaRepositoryInvoker implements RepositoryInvoker {
+
+    private final RepositoryInvoker delegate;
+    private final ResourceJpaRepository<?, ?> jpaRepository;
+    private final boolean exposesPaging;
+    private final boolean exposesSorting;
+    private final boolean customizesFindAll;
+    private final boolean customizesDelete;
+    private final ConversionService conversionService;
+
+    /**
+     * Creates a new {@link JpaRepositoryInvoker}.
+     *
+     * @param delegate          must not be {@literal null}.
+     * @param repositories      must not be {@literal null}.
+     * @param domainType        must not be {@literal null}.
+     * @param jpaRepository     must not be {@literal null}.
+     * @param conversionService must not be {@literal null}.
+     */
+    JpaRepositoryInvoker(RepositoryInvoker delegate, Repositories repositories, Class<?> domainType,
+                         ResourceJpaRepository<?, ?> jpaRepository, ConversionService conversionService) {
+
+        Assert.notNull(delegate, "RepositoryInvoker must not be null!");
+        Assert.notNull(repositories, "Repositories must not be null!");
+        Assert.notNull(domainType, "Domain type must not be null!");
+        Assert.notNull(jpaRepository, "ResourceJpaRepository must not be null!");
+        Assert.notNull(conversionService, "ConversionService must not be null!");
+
+        Optional<RepositoryInformation> information = repositories.getRepositoryInformationFor(domainType);
+        Optional<Method> findAllMethod = information //
+                .map(RepositoryInformation::getCrudMethods) //
+                .flatMap(CrudMethods::getFindAllMethod);
+        Optional<Class<?>> findAllParameter = findAllMethod //
+                .filter(it -> it.getParameterCount() > 0) //
+                .map(it -> it.getParameterTypes()[0]);
+
+        this.delegate = delegate;
+        this.jpaRepository = jpaRepository;
+        this.conversionService = conversionService;
+        this.exposesPaging = findAllParameter.filter(Pageable.class::isAssignableFrom).isPresent();
+        this.exposesSorting = exposesPaging || findAllParameter.filter(Sort.class::isAssignableFrom).isPresent();
+        this.customizesFindAll = findAllMethod //
+                .filter(it -> information.get().isCustomMethod(it) || information.get().isQueryMethod(it)) //
+                .isPresent();
+        this.customizesDelete = information //
+                .map(RepositoryInformation::getCrudMethods) //
+                .flatMap(CrudMethods::getDeleteMethod) //
+                .filter(it -> information.get().isCustomMethod(it) || information.get().isQueryMethod(it)) //
+                .isPresent();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.data.repository.support.RepositoryInvoker#invokeFindAll(org.springframework.data.domain.Pageable)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterable<Object> invokeFindAll(Pageable pageable) {
+
+        if (pageable.isUnpaged()) {
+            return invokeFindAll(pageable.getSort());
+        }
+
+        return exposesPaging || isInvokedThroughRepository() //
+                ? delegate.invokeFindAll(pageable) //
+                : (Iterable<Object>) jpaRepository.findAll(pageable);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.data.repository.support.RepositoryInvoker#invokeFindAll(org.springframework.data.domain.Sort)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterable<Object> invokeFindAll(Sort sort) {
+
+        return exposesSorting || isInvokedThroughRepository() //
+                ? delegate.invokeFindAll(sort) //
+                : (Iterable<Object>) jpaRepository.findAll(sort);
+    }
+
+    /**
+     * Invokes the find-all method like {@link #invokeFindAll(Sort)} but returns a single-use {@link Iterable} reading
+     * from a forward-only cursor, unless the repository declares a custom find-all method. The given {@link FetchPlan}
+     * is applied to the entities chunk by chunk while they are read.
+     *
+     * @param sort          must not be {@literal null}.
+     * @param fetchPlan     must not be {@literal null}.
+     * @param fetchSize     the JDBC fetch size to use for the cursor.
+     * @param clearInterval the number of rows after which the persistence context is cleared.
+     * @return
+     * @see ResourceJpaRepository#streamAll(Sort, FetchPlan, int, int)
+     */
+    @SuppressWarnings("unchecked")
+    Iterable<Object> invokeStreamAll(Sort sort, FetchPlan fetchPlan, int fetchSize, int clearInterval) {
+
+        if (exposesSorting || isInvokedThroughRepository()) {
+
+            Iterable<Object> results = delegate.invokeFindAll(sort);
+            fetchPlan.apply(results);
+
+            return results;
+        }
+
+        return (Iterable<Object>) jpaRepository.streamAll(sort, fetchPlan, fetchSize, clearInterval);
+    }
+
+    /**
+     * Invokes a query for the given page that does not count all rows.
+     *
+     * @param pageable must not be {@literal null}.
+     * @return
+     * @see ResourceJpaRepository#findSlice(Pageable)
+     */
+    @SuppressWarnings("unchecked")
+    Slice<Object> invokeFindSlice(Pageable pageable) {
+        return (Slice<Object>) jpaRepository.findSlice(pageable);
+    }
+
+    /**
+     * Invokes a query for the given page taking the total number of rows from the given {@link LongSupplier}.
+     *
+     * @param pageable must not be {@literal null}.
+     * @param total    must not be {@literal null}.
+     * @return
+     * @see ResourceJpaRepository#findAll(Pageable, LongSupplier)
+     */
+    @SuppressWarnings("unchecked")
+    Page<Object> invokeFindAll(Pageable pageable, LongSupplier total) {
+        return (Page<Object>) jpaRepository.findAll(pageable, total);
+    }
+
+    /**
+     * Returns the {@link FetchPlan} with the given name, or the default one of the domain type if no name is given.
+     *
+     * @param name the name of the plan, may be {@literal null}.
+     * @return
+     * @see ResourceJpaRepository#getFetchPlan(String)
+     */
+    FetchPlan getFetchPlan(@Nullable String name) {
+        return jpaRepository.getFetchPlan(name);
+    }
+
+    /**
+     * Counts all rows of the domain type.
+     *
+     * @return
+     */
+    long invokeCount() {
+        return jpaRepository.count();
+    }
+
+    /**
+     * Invokes a keyset query returning the page following the given cursor. Always executed through the
+     * {@link ResourceJpaRepository} as repository methods cannot express keyset conditions, so it must not be used if
+     * the repository {@link #customizesFindAll() customizes} its find-all method.
+     *
+     * @param cursor the opaque cursor token, {@literal null} or empty for the first page.
+     * @param sort   must not be {@literal null}.
+     * @param size   the maximum number of entities to return.
+     * @return
+     * @see ResourceJpaRepository#findAllAfter(String, Sort, int)
+     */
+    @SuppressWarnings("unchecked")
+    KeysetSlice<Object> invokeFindAllAfter(@Nullable String cursor, Sort sort, int size) {
+        return (KeysetSlice<Object>) jpaRepository.findAllAfter(cursor, sort, size);
+    }
+
+    /**
+     * Returns the {@link SparseFieldset} of the domain type for the given comma separated list of attribute names.
+     *
+     * @param fields must not be {@literal null}.
+     * @return
+     * @see ResourceJpaRepository#getFieldset(String)
+     */
+    SparseFieldset getFieldset(String fields) {
+        return jpaRepository.getFieldset(fields);
+    }
+
+    /**
+     * Invokes a query selecting the given fields of the given page without counting all rows.
+     *
+     * @param fields   must not be {@literal null}.
+     * @param pageable must not be {@literal null}.
+     * @return
+     * @see ResourceJpaRepository#findSlice(SparseFieldset, Pageable)
+     */
+    Slice<Map<String, Object>> invokeFindSlice(SparseFieldset fields, Pageable pageable) {
+        return jpaRepository.findSlice(fields, pageable);
+    }
+
+    /**
+     * Invokes a query selecting the given fields of the given page taking the total number of rows from the given
+     * {@link LongSupplier}.
+     *
+     * @param fields   must not be {@literal null}.
+     * @param pageable must not be {@literal null}.
+     * @param total    must not be {@literal null}.
+     * @return
+     * @see ResourceJpaRepository#findAll(SparseFieldset, Pageable, LongSupplier)
+     */
+    Page<Map<String, Object>> invokeFindAll(SparseFieldset fields, Pageable pageable, LongSupplier total) {
+        return jpaRepository.findAll(fields, pageable, total);
+    }
+
+    /**
+     * Invokes a query selecting the given fields of all rows.
+     *
+     * @param fields must not be {@literal null}.
+     * @param sort   must not be {@literal null}.
+     * @return
+     * @see ResourceJpaRepository#findAll(SparseFieldset, Sort)
+     */
+    List<Map<String, Object>> invokeFindAll(SparseFieldset fields, Sort sort) {
+        return jpaRepository.findAll(fields, sort);
+    }
+
+    /**
+     * Invokes a query selecting the given fields of all rows, read from a forward-only cursor.
+     *
+     * @param fields        must not be {@literal null}.
+     * @param sort          must not be {@literal null}.
+     * @param fetchSize     the JDBC fetch size to use for the cursor.
+     * @param clearInterval the number of rows read at once.
+     * @return
+     * @see ResourceJpaRepository#streamAll(SparseFieldset, Sort, int, int)
+     */
+    Iterable<Map<String, Object>> invokeStreamAll(SparseFieldset fields, Sort sort, int fetchSize, int clearInterval) {
+        return jpaRepository.streamAll(fields, sort, fetchSize, clearInterval);
+    }
+
+    /**
+     * Invokes a keyset query selecting the given fields of the page following the given cursor.
+     *
+     * @param fields must not be {@literal null}.
+     * @param cursor the opaque cursor token, {@literal null} or empty for the first page.
+     * @param sort   must not be {@literal null}.
+     * @param size   the maximum number of rows to return.
+     * @return
+     * @see ResourceJpaRepository#findAllAfter(SparseFieldset, String, Sort, int)
+     */
+    KeysetSlice<Map<String, Object>> invokeFindAllAfter(SparseFieldset fields, @Nullable String cursor, Sort sort,
+                                                        int size) {
+        return jpaRepository.findAllAfter(fields, cursor, sort, size);
+    }
+
+    /**
+     * Invokes a query selecting the given fields of the entity with the given identifier.
+     *
+     * @param fields must not be {@literal null}.
+     * @param id     must not be {@literal null}.
+     * @return
+     * @see ResourceJpaRepository#findById(SparseFieldset, Object)
+     */
+    @SuppressWarnings("unchecked")
+    Optional<Map<String, Object>> invokeFindById(SparseFieldset fields, Object id) {
+        return ((ResourceJpaRepository<?, Object>) jpaRepository).findById(fields, convertId(id));
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.data.repository.support.RepositoryInvoker#invokeSave(java.lang.Object)
+     */
+    @Override
+    public <T> T invokeSave(T object) {
+        return delegate.invokeSave(object);
+    }
+
+    /**
+     * Saves all given entities in JDBC batches. Must be called within a transaction.
+     *
+     * @param objects must not be {@literal null}.
+     * @return the saved entities in the given order.
+     * @see ResourceJpaRepository#saveAllBatched(List)
+     */
+    @SuppressWarnings("unchecked")
+    List<Object> invokeSaveAll(List<Object> objects) {
+        return ((ResourceJpaRepository<Object, ?>) jpaRepository).saveAllBatched(objects);
+    }
+
+    /**
+     * Returns an instance of the domain type carrying only the identifier, version and last modification date of the
+     * entity with the given identifier, read without loading the entity.
+     *
+     * @param id must not be {@literal null}.
+     * @return
+     * @see ResourceJpaRepository#findValidatorsById(Object)
+     */
+    @SuppressWarnings("unchecked")
+    Optional<Object> invokeFindValidatorsById(Object id) {
+        return ((ResourceJpaRepository<Object, Object>) jpaRepository).findValidatorsById(convertId(id));
+    }
+
+    /**
+     * Returns the versions of the entities the given {@link FetchPlan} embeds into the entity with the given
+     * identifier, read without loading any entity.
+     *
+     * @param id        must not be {@literal null}.
+     * @param fetchPlan must not be {@literal null}.
+     * @return
+     * @see ResourceJpaRepository#findEmbeddedVersionsById(Object, FetchPlan)
+     */
+    @SuppressWarnings("unchecked")
+    EmbeddedVersions invokeFindEmbeddedVersionsById(Object id, FetchPlan fetchPlan) {
+        return ((ResourceJpaRepository<Object, Object>) jpaRepository).findEmbeddedVersionsById(convertId(id),
+                fetchPlan);
+    }
+
+    /**
+     * Returns the versions of the entities the given {@link FetchPlan}, already applied to the given entity, embeds
+     * into it.
+     *
+     * @param entity    must not be {@literal null}.
+     * @param fetchPlan must not be {@literal null}.
+     * @return
+     * @see ResourceJpaRepository#getEmbeddedVersions(Object, FetchPlan)
+     */
+    @SuppressWarnings("unchecked")
+    EmbeddedVersions getEmbeddedVersions(Object entity, FetchPlan fetchPlan) {
+        return ((ResourceJpaRepository<Object, ?>) jpaRepository).getEmbeddedVersions(entity, fetchPlan);
+    }
+
+    /**
+     * Deletes the given entity and its cascaded children with bulk statements, bypassing the delete method of the
+     * repository. Must be called within a transaction, and only if the repository doesn't
+     * {@link #customizesDelete() customize} its delete method.
+     *
+     * @param entity must not be {@literal null}.
+     * @return whether the entity existed.
+     * @see ResourceJpaRepository#deleteInBulk(Object)
+     */
+    @SuppressWarnings("unchecked")
+    boolean invokeDeleteInBulk(Object entity) {
+        return ((ResourceJpaRepository<Object, ?>) jpaRepository).deleteInBulk(entity);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.data.repository.support.RepositoryInvoker#invokeFindById(java.lang.Object)
+     */
+    @Override
+    public <T> Optional<T> invokeFindById(Object id) {
+        return delegate.invokeFindById(id);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.data.repository.support.RepositoryInvoker#invokeDeleteById(java.lang.Object)
+     */
+    @Override
+    public void invokeDeleteById(Object id) {
+        delegate.invokeDeleteById(id);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.data.repository.support.RepositoryInvoker#invokeQueryMethod(java.lang.reflect.Method, org.springframework.util.MultiValueMap, org.springframework.data.domain.Pageable, org.springframework.data.domain.Sort)
+     */
+    @Override
+    public Optional<Object> invokeQueryMethod(Method method, MultiValueMap<String, ?> parameters, Pageable pageable,
+                                              Sort sort) {
+        return delegate.invokeQueryMethod(method, parameters, pageable, sort);
+    }
+
+    /**
+     * Returns whether the repository customizes its find-all method, with a query or a custom implementation, so it
+     * must not be bypassed by queries of the {@link ResourceJpaRepository}.
+     *
+     * @return
+     */
+    boolean customizesFindAll() {
+        return customizesFindAll;
+    }
+
+    /**
+     * Returns whether the repository customizes its delete method, with a query or a custom implementation, so it must
+     * not be bypassed by {@link #invokeDeleteInBulk(Object)}.
+     *
+     * @return
+     */
+    boolean customizesDelete() {
+        return customizesDelete;
+    }
+
+    /**
+     * Returns whether the find-all method has to be invoked on the repository itself, as it doesn't have one or
+     * customizes it.
+     *
+     * @return
+     */
+    private boolean isInvokedThroughRepository() {
+        return customizesFindAll || !delegate.hasFindAllMethod();
+    }
+
+    private Object convertId(Object id) {
+
+        Assert.notNull(id, "Id must not be null!");
+
+        return conversionService.convert(id, jpaRepository.getIdType());
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.data.repository.support.RepositoryInvocationInformation#hasSaveMethod()
+     */
+    @Override
+    public boolean hasSaveMethod() {
+        return delegate.hasSaveMethod();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.data.repository.support.RepositoryInvocationInformation#hasDeleteMethod()
+     */
+    @Override
+    public boolean hasDeleteMethod() {
+        return delegate.hasDeleteMethod();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.data.repository.support.RepositoryInvocationInformation#hasFindOneMethod()
+     */
+    @Override
+    public boolean hasFindOneMethod() {
+        return delegate.hasFindOneMethod();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.data.repository.support.RepositoryInvocationInformation#hasFindAllMethod()
+     */
+    @Override
+    public boolean hasFindAllMethod() {
+        return delegate.hasFindAllMethod();
+    }
+}
@@ -0,0 +1,92 @@
+package com.datarest.demo.web;
+
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.data.repository.support.RepositoryInvoker;
+import org.springframework.data.repository.support.RepositoryInvokerFactory;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link RepositoryInvokerFactory} decorating the default one so that paging and sorting of collection resources is
+ * always executed by the database, even for repositories that only extend
+ * {@link org.springframework.data.repository.CrudRepository}.
+ */
+public class JpaRepositoryInvokerFactory implements RepositoryInvokerFactory {
+
+    private final RepositoryInvokerFactory delegate;
+    private final ObjectProvider<Repositories> repositories;
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+    private final ObjectFactory<ConversionService> conversionService;
+    private final Map<Class<?>, RepositoryInvoker> invokers = new ConcurrentHashMap<>();
+
+    private EntityManager entityManager;
+
+    /**
+     * Creates a new {@link JpaRepositoryInvokerFactory}.
+     *
+     * @param delegate             must not be {@literal null}.
+     * @param repositories         must not be {@literal null}.
+     * @param entityManagerFactory must not be {@literal null}.
+     * @param conversionService    must not be {@literal null}.
+     */
+    public JpaRepositoryInvokerFactory(RepositoryInvokerFactory delegate,
+                                       ObjectProvider<Repositories> repositories,
+                                       ObjectProvider<EntityManagerFactory> entityManagerFactory,
+                                       ObjectFactory<ConversionService> conversionService) {
+
+        Assert.notNull(delegate, "RepositoryInvokerFactory must not be null!");
+        Assert.notNull(repositories, "Repositories must not be null!");
+        Assert.notNull(entityManagerFactory, "EntityManagerFactory must not be null!");
+        Assert.notNull(conversionService, "ConversionService must not be null!");
+
+        this.delegate = delegate;
+        this.repositories = repositories;
+        this.entityManagerFactory = entityManagerFactory;
+        this.conversionService = conversionService;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.data.repository.support.RepositoryInvokerFactory#getInvokerFor(java.lang.Class)
+     */
+    @Override
+    public RepositoryInvoker getInvokerFor(Class<?> domainType) {
+        return invokers.computeIfAbsent(domainType, this::createInvoker);
+    }
+
+    private RepositoryInvoker createInvoker(Class<?> domainType) {
+
+        RepositoryInvoker invoker = delegate.getInvokerFor(domainType);
+        EntityManagerFactory factory = entityManagerFactory.getIfAvailable();
+
+        if (factory == null || !isManagedType(factory, domainType)) {
+            return invoker;
+        }
+
+        return new JpaRepositoryInvoker(invoker, repositories.getObject(), domainType,
+                new ResourceJpaRepository<>(domainType, getEntityManager(factory)), conversionService.getObject());
+    }
+
+    private synchronized EntityManager getEntityManager(EntityManagerFactory factory) {
+
+        if (entityManager == null) {
+            entityManager = SharedEntityManagerCreator.createSharedEntityManager(factory);
+        }
+
+        return entityManager;
+    }
+
+    private static boolean isManagedType(EntityManagerFactory factory, Class<?> domainType) {
+
+        return factory.getMetamodel().getEntities().stream() //
+                .anyMatch(it -> domainType.equals(it.getJavaType()));
+    }
+}
@@ -0,0 +1,99 @@
+package com.datarest.demo.web;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders response bodies of {@link CustomRepositoryRestController} as {@code application/json} up front, with the very
+ * {@link com.fasterxml.jackson.databind.ObjectMapper} of the message converter that would write them otherwise, so a
+ * body can be cached or shared between requests and written as it is.
+ */
+@Component
+public class JsonRenderer {
+
+    private final ObjectFactory<List<HttpMessageConverter<?>>> converters;
+    private final Map<Class<?>, AbstractJackson2HttpMessageConverter> writers = new ConcurrentHashMap<>();
+
+    public JsonRenderer(
+            @Qualifier("defaultMessageConverters") ObjectFactory<List<HttpMessageConverter<?>>> converters) {
+
+        Assert.notNull(converters, "HttpMessageConverters must not be null!");
+
+        this.converters = converters;
+    }
+
+    /**
+     * Renders the given body as JSON.
+     *
+     * @param body must not be {@literal null}.
+     * @return
+     * @throws IllegalStateException if no message converter writes the body as JSON.
+     */
+    public byte[] render(Object body) {
+
+        Assert.notNull(body, "Body must not be null!");
+
+        try {
+            return getWriter(body).writeValueAsBytes(body);
+        } catch (IOException o_O) {
+            throw new UncheckedIOException(o_O);
+        }
+    }
+
+    /**
+     * Renders the given body as JSON to the given {@link OutputStream}, which is left open. {@link Iterable}s are
+     * iterated while they are written.
+     *
+     * @param body   must not be {@literal null}.
+     * @param output must not be {@literal null}.
+     * @throws IllegalStateException if no message converter writes the body as JSON.
+     */
+    public void render(Object body, OutputStream output) {
+
+        Assert.notNull(body, "Body must not be null!");
+        Assert.notNull(output, "OutputStream must not be null!");
+
+        try {
+            getWriter(body).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(output, body);
+        } catch (IOException o_O) {
+            throw new UncheckedIOException(o_O);
+        }
+    }
+
+    private ObjectWriter getWriter(Object body) {
+
+        AbstractJackson2HttpMessageConverter converter = writers.computeIfAbsent(body.getClass(), type -> converters
+                .getObject().stream() //
+                .filter(AbstractJackson2HttpMessageConverter.class::isInstance) //
+                .map(AbstractJackson2HttpMessageConverter.class::cast) //
+                .filter(it -> it.canWrite(type, MediaType.APPLICATION_JSON)) //
+                .findFirst() //
+                .orElseThrow(() -> new IllegalStateException(String.format("No JSON converter for %s!", type))));
+
+        return converter.getObjectMapper().writer();
+    }
+
+    /**
+     * Returns whether a request with the given {@code Accept} header accepts bodies rendered as JSON.
+     *
+     * @param accept must not be {@literal null}.
+     * @return
+     */
+    static boolean isAcceptable(List<MediaType> accept) {
+        return accept.isEmpty() || accept.stream().anyMatch(it -> it.includes(MediaType.APPLICATION_JSON));
+    }
+}
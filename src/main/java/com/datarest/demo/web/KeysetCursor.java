@@ -0,0 +1,128 @@
+package com.datarest.demo.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Position of the last row of a keyset page, i.e. the values of all properties the page was sorted by. Rendered to
+ * clients as an opaque, URL safe token. Numbers are decoded as {@link java.math.BigDecimal} and
+ * {@link java.math.BigInteger}, so decimal keys survive the round trip without losing precision. Values may be
+ * {@literal null}.
+ */
+class KeysetCursor {
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder() //
+            .findAndAddModules() //
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS) //
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS) //
+            .enable(DeserializationFeature.USE_BIG_INTEGER_FOR_INTS) //
+            .build();
+
+    private static final TypeReference<LinkedHashMap<String, Object>> VALUES_TYPE = new TypeReference<>() {
+    };
+
+    private final Map<String, Object> values;
+
+    private KeysetCursor(Map<String, Object> values) {
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Creates a {@link KeysetCursor} from the given property values, keyed by property path in sort order.
+     *
+     * @param values must not be {@literal null}, may contain {@literal null} values.
+     * @return
+     */
+    static KeysetCursor of(Map<String, Object> values) {
+
+        Assert.notNull(values, "Values must not be null!");
+
+        return new KeysetCursor(new LinkedHashMap<>(values));
+    }
+
+    /**
+     * Decodes the given token into a {@link KeysetCursor}. Returns {@literal null} for an empty token, which requests
+     * the first page.
+     *
+     * @param token can be {@literal null}.
+     * @param sort  the sort the cursor has to have been created for, must not be {@literal null}.
+     * @return
+     * @throws ResponseStatusException with {@link HttpStatus#BAD_REQUEST} if the token is malformed or was created for
+     *                                 a different sort.
+     */
+    @Nullable
+    static KeysetCursor decode(@Nullable String token, Sort sort) {
+
+        if (!StringUtils.hasText(token)) {
+            return null;
+        }
+
+        Map<String, Object> values;
+
+        try {
+            values = MAPPER.readValue(Base64.getUrlDecoder().decode(token), VALUES_TYPE);
+        } catch (IllegalArgumentException | IOException o_O) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed cursor!", o_O);
+        }
+
+        List<String> properties = new ArrayList<>();
+        sort.forEach(it -> properties.add(it.getProperty()));
+
+        if (!properties.equals(new ArrayList<>(values.keySet()))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    String.format("Cursor was not created for sort %s!", sort));
+        }
+
+        return new KeysetCursor(values);
+    }
+
+    /**
+     * Returns the value of the given property path converted into the given type.
+     *
+     * @param property must not be {@literal null}.
+     * @param type     must not be {@literal null}.
+     * @return
+     */
+    @Nullable
+    <T> T getValue(String property, Class<T> type) {
+
+        try {
+            return MAPPER.convertValue(values.get(property), type);
+        } catch (IllegalArgumentException o_O) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    String.format("Invalid cursor value for %s!", property), o_O);
+        }
+    }
+
+    /**
+     * Returns the opaque token representing this cursor.
+     *
+     * @return
+     */
+    String encode() {
+
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(values));
+        } catch (JsonProcessingException o_O) {
+            throw new IllegalStateException("Could not encode cursor!", o_O);
+        }
+    }
+}
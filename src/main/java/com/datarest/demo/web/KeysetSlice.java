@@ -0,0 +1,57 @@
+package com.datarest.demo.web;
+
+import lombok.Getter;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A page of a collection resource read in keyset mode. Instead of page numbers and totals it carries the opaque cursor
+ * to request the following page with, which is {@literal null} on the last page.
+ *
+ * @param <T> the element type.
+ */
+@Getter
+public class KeysetSlice<T> implements Iterable<T> {
+
+    private final List<T> content;
+    private final int size;
+    private final @Nullable String nextCursor;
+
+    /**
+     * Creates a new {@link KeysetSlice}.
+     *
+     * @param content    must not be {@literal null}.
+     * @param size       the requested page size.
+     * @param nextCursor can be {@literal null}.
+     */
+    KeysetSlice(List<T> content, int size, @Nullable String nextCursor) {
+
+        Assert.notNull(content, "Content must not be null!");
+
+        this.content = Collections.unmodifiableList(content);
+        this.size = size;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Returns whether this is the last page.
+     *
+     * @return
+     */
+    public boolean isLast() {
+        return nextCursor == null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Iterable#iterator()
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return content.iterator();
+    }
+}
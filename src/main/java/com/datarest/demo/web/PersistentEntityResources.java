@@ -0,0 +1,64 @@
+package com.datarest.demo.web;
+
+import org.springframework.data.rest.webmvc.PersistentEntityResource;
+import org.springframework.util.Assert;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Request payload of a collection resource, either a single {@link PersistentEntityResource} or the elements of a JSON
+ * array, each read like a single one.
+ */
+public class PersistentEntityResources {
+
+    private final List<PersistentEntityResource> resources;
+    private final boolean collection;
+
+    private PersistentEntityResources(List<PersistentEntityResource> resources, boolean collection) {
+
+        Assert.notNull(resources, "Resources must not be null!");
+
+        this.resources = Collections.unmodifiableList(resources);
+        this.collection = collection;
+    }
+
+    static PersistentEntityResources of(PersistentEntityResource resource) {
+        return new PersistentEntityResources(Collections.singletonList(resource), false);
+    }
+
+    static PersistentEntityResources of(List<PersistentEntityResource> resources) {
+        return new PersistentEntityResources(resources, true);
+    }
+
+    /**
+     * Returns whether the payload was sent as a JSON array.
+     *
+     * @return
+     */
+    public boolean isCollection() {
+        return collection;
+    }
+
+    /**
+     * Returns the single resource of a payload that was not sent as a JSON array.
+     *
+     * @return
+     */
+    public PersistentEntityResource getResource() {
+
+        Assert.state(!collection, "Payload is a collection!");
+
+        return resources.get(0);
+    }
+
+    /**
+     * Returns the domain objects of all resources in the order they were sent.
+     *
+     * @return
+     */
+    public List<Object> getContents() {
+        return resources.stream().map(PersistentEntityResource::getContent).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,228 @@
+package com.datarest.demo.web;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.core.MethodParameter;
+import org.springframework.data.rest.webmvc.PersistentEntityResource;
+import org.springframework.data.rest.webmvc.config.PersistentEntityResourceHandlerMethodArgumentResolver;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link HandlerMethodArgumentResolver} for {@link PersistentEntityResources}. A JSON object body is read by the
+ * {@link PersistentEntityResourceHandlerMethodArgumentResolver} as usual. For a JSON array body, every element is
+ * handed to that resolver on its own, so elements are read exactly like single payloads, including association
+ * links. The array is split with the {@link ObjectMapper} of the message converter reading the elements, keeping
+ * decimals exactly as they were sent.
+ */
+class PersistentEntityResourcesHandlerMethodArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final PersistentEntityResourceHandlerMethodArgumentResolver delegate;
+    private final ObjectFactory<List<HttpMessageConverter<?>>> converters;
+    private volatile ObjectMapper mapper;
+
+    /**
+     * Creates a new {@link PersistentEntityResourcesHandlerMethodArgumentResolver}.
+     *
+     * @param delegate   must not be {@literal null}.
+     * @param converters the message converters of the delegate, must not be {@literal null}.
+     */
+    PersistentEntityResourcesHandlerMethodArgumentResolver(PersistentEntityResourceHandlerMethodArgumentResolver delegate,
+                                                           ObjectFactory<List<HttpMessageConverter<?>>> converters) {
+
+        Assert.notNull(delegate, "PersistentEntityResourceHandlerMethodArgumentResolver must not be null!");
+        Assert.notNull(converters, "HttpMessageConverters must not be null!");
+
+        this.delegate = delegate;
+        this.converters = converters;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.web.method.support.HandlerMethodArgumentResolver#supportsParameter(org.springframework.core.MethodParameter)
+     */
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return PersistentEntityResources.class.isAssignableFrom(parameter.getParameterType());
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.web.method.support.HandlerMethodArgumentResolver#resolveArgument(org.springframework.core.MethodParameter, org.springframework.web.method.support.ModelAndViewContainer, org.springframework.web.context.request.NativeWebRequest, org.springframework.web.bind.support.WebDataBinderFactory)
+     */
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
+
+        HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+
+        Assert.state(request != null, "No HttpServletRequest available!");
+
+        byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+
+        if (!isArray(body)) {
+            return PersistentEntityResources.of(resolve(parameter, mavContainer, request, body, binderFactory));
+        }
+
+        ObjectMapper mapper = getObjectMapper();
+        JsonNode elements;
+
+        try {
+            elements = mapper.reader() //
+                    .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS) //
+                    .with(JsonNodeFactory.withExactBigDecimals(true)) //
+                    .readTree(body);
+        } catch (IOException o_O) {
+            throw new HttpMessageNotReadableException("Could not read JSON array!", o_O,
+                    new ServletServerHttpRequest(request));
+        }
+
+        List<PersistentEntityResource> resources = new ArrayList<>(elements.size());
+
+        for (JsonNode element : elements) {
+            resources.add(resolve(parameter, mavContainer, request, mapper.writeValueAsBytes(element), binderFactory));
+        }
+
+        return PersistentEntityResources.of(resources);
+    }
+
+    private PersistentEntityResource resolve(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                             HttpServletRequest request, byte[] body,
+                                             WebDataBinderFactory binderFactory) throws Exception {
+
+        return (PersistentEntityResource) delegate.resolveArgument(parameter, mavContainer,
+                new ServletWebRequest(new BodyRequestWrapper(request, body)), binderFactory);
+    }
+
+    private ObjectMapper getObjectMapper() {
+
+        ObjectMapper result = mapper;
+
+        if (result == null) {
+
+            result = converters.getObject().stream() //
+                    .filter(AbstractJackson2HttpMessageConverter.class::isInstance) //
+                    .map(AbstractJackson2HttpMessageConverter.class::cast) //
+                    .filter(it -> it.canRead(PersistentEntityResource.class, MediaType.APPLICATION_JSON)) //
+                    .findFirst() //
+                    .map(AbstractJackson2HttpMessageConverter::getObjectMapper) //
+                    .orElseThrow(() -> new IllegalStateException("No JSON converter for PersistentEntityResource!"));
+
+            mapper = result;
+        }
+
+        return result;
+    }
+
+    private static boolean isArray(byte[] body) {
+
+        for (byte b : body) {
+            if (!Character.isWhitespace(b)) {
+                return b == '[';
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * {@link HttpServletRequestWrapper} exposing the given bytes as request body.
+     */
+    private static class BodyRequestWrapper extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        BodyRequestWrapper(HttpServletRequest request, byte[] body) {
+
+            super(request);
+
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+
+            ByteArrayInputStream source = new ByteArrayInputStream(body);
+
+            return new ServletInputStream() {
+
+                @Override
+                public boolean isFinished() {
+                    return source.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+
+                    Assert.notNull(readListener, "ReadListener must not be null!");
+
+                    // The whole body is available up front, so it can be handed over right away
+                    try {
+                        readListener.onDataAvailable();
+                        readListener.onAllDataRead();
+                    } catch (IOException o_O) {
+                        readListener.onError(o_O);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return source.read();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), getCharset()));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+
+        private Charset getCharset() {
+
+            String encoding = getCharacterEncoding();
+
+            return encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+        }
+    }
+}
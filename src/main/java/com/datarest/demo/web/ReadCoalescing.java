@@ -0,0 +1,153 @@
+package com.datarest.demo.web;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.rest.core.mapping.ResourceMetadata;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent identical reads of the repositories configured in {@link CustomRepositoryRestProperties.Coalescing}
+ * share a single database fetch and rendered body. The first request for a key performs the read, requests for the
+ * same key arriving while it is in flight wait for its result instead of reading on their own. A waiting request gives
+ * up after the configured maximum wait and reads on its own, so a slow read doesn't stall all requests behind it.
+ * Results are shared only while the read is in flight and never cached beyond it.
+ * <p>
+ * The outcome for each request, i.e. {@code leader} for the request performing the read, {@code collapsed} for one
+ * served with its result and {@code timeout} for one that gave up waiting, is counted as {@value #COALESCED} tagged by
+ * repository and resource type.
+ */
+@Component
+public class ReadCoalescing {
+
+    static final String COALESCED = "demo.rest.coalesced";
+
+    private final CustomRepositoryRestProperties.Coalescing properties;
+    private final MeterRegistry registry;
+    private final Map<String, CompletableFuture<ResponseEntity<byte[]>>> flights = new ConcurrentHashMap<>();
+
+    public ReadCoalescing(CustomRepositoryRestProperties properties, MeterRegistry registry) {
+
+        Assert.notNull(properties, "CustomRepositoryRestProperties must not be null!");
+        Assert.notNull(registry, "MeterRegistry must not be null!");
+
+        this.properties = properties.getCoalescing();
+        this.registry = registry;
+    }
+
+    /**
+     * Returns whether concurrent reads of the given resource are coalesced.
+     *
+     * @param metadata must not be {@literal null}.
+     * @return
+     */
+    public boolean isCoalesced(ResourceMetadata metadata) {
+        return properties.getRepositories().stream().anyMatch(it -> metadata.getPath().matches(it));
+    }
+
+    /**
+     * Returns the response of the read in flight for the given key or performs the given read if none is. The key must
+     * capture everything the response depends on. Failures of the read are rethrown to all requests sharing it.
+     * Requests whose reads {@link ReplicaRouting} pinned to the primary always read on their own.
+     *
+     * @param metadata must not be {@literal null}.
+     * @param resource the resource type, {@code item} or {@code collection}, must not be {@literal null}.
+     * @param key      must not be {@literal null}.
+     * @param read     must not be {@literal null}.
+     * @return
+     */
+    ResponseEntity<byte[]> coalesce(ResourceMetadata metadata, String resource, String key,
+                                    Supplier<ResponseEntity<byte[]>> read) {
+
+        Assert.notNull(metadata, "ResourceMetadata must not be null!");
+        Assert.notNull(resource, "Resource must not be null!");
+        Assert.notNull(key, "Key must not be null!");
+        Assert.notNull(read, "Read must not be null!");
+
+        // A client reading its own writes must not be handed a read served by the replica
+        if (ReplicaRouting.isPinnedToPrimary()) {
+            return read.get();
+        }
+
+        CompletableFuture<ResponseEntity<byte[]>> flight = new CompletableFuture<>();
+        CompletableFuture<ResponseEntity<byte[]>> inFlight = flights.putIfAbsent(key, flight);
+
+        if (inFlight == null) {
+            return lead(metadata, resource, key, flight, read);
+        }
+
+        try {
+
+            ResponseEntity<byte[]> response = inFlight.get(properties.getMaxWait().toNanos(), TimeUnit.NANOSECONDS);
+            count(metadata, resource, "collapsed");
+
+            return response;
+
+        } catch (TimeoutException o_O) {
+
+            count(metadata, resource, "timeout");
+
+            return read.get();
+
+        } catch (ExecutionException o_O) {
+
+            Throwable cause = o_O.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw (Error) cause;
+
+        } catch (InterruptedException o_O) {
+
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException("Interrupted while waiting for read in flight!", o_O);
+        }
+    }
+
+    private ResponseEntity<byte[]> lead(ResourceMetadata metadata, String resource, String key,
+                                        CompletableFuture<ResponseEntity<byte[]>> flight,
+                                        Supplier<ResponseEntity<byte[]>> read) {
+
+        count(metadata, resource, "leader");
+
+        try {
+
+            ResponseEntity<byte[]> response = read.get();
+            flight.complete(response);
+
+            return response;
+
+        } catch (RuntimeException | Error o_O) {
+
+            flight.completeExceptionally(o_O);
+
+            throw o_O;
+
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    private void count(ResourceMetadata metadata, String resource, String outcome) {
+
+        Counter.builder(COALESCED) //
+                .description("Reads of repository resources by whether they shared a read in flight") //
+                .tag("repository", metadata.getPath().toString().substring(1)) //
+                .tag("resource", resource) //
+                .tag("outcome", outcome) //
+                .register(registry) //
+                .increment();
+    }
+}
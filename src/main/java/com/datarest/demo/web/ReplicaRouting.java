@@ -0,0 +1,237 @@
+package com.datarest.demo.web;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Routes the reads of {@link CustomRepositoryRestController} to a replica of the database if one is configured with
+ * {@code demo.rest.replica.url}. None of its parts is registered otherwise, so all statements go to the primary.
+ * <p>
+ * The {@link RoutingDataSource} sends the statements of read-only transactions, in which the controller runs its read
+ * handlers, to the replica and everything else to the primary. As a transaction is marked read-only only after it
+ * began, the connection has to be fetched lazily through a {@link LazyConnectionDataSourceProxy}.
+ * <p>
+ * The replica lags behind the primary, so a client would not see its own writes if it read them right away. The
+ * {@link Filter} remembers the time of a client's last write in a cookie and pins its reads to the primary until the
+ * configured lag has passed. Write requests are pinned to the primary as a whole, as the entities they update and the
+ * associations they refer to are read in read-only transactions of the repositories before they are written. For the same reason, the {@link ReadOnlyTransactionTemplate} keeps what is read from the
+ * replica out of the second-level cache, which serves reads of the primary as well.
+ */
+class ReplicaRouting {
+
+    static final String URL_PROPERTY = "demo.rest.replica.url";
+    static final String COOKIE = "demo-primary-until";
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private ReplicaRouting() {
+    }
+
+    /**
+     * Returns whether the reads of the current request are pinned to the primary, as it is a write or the client wrote
+     * recently.
+     *
+     * @return
+     */
+    static boolean isPinnedToPrimary() {
+        return PINNED.get() != null;
+    }
+
+    /**
+     * Returns whether the statements of the current transaction go to the replica, provided one is configured.
+     *
+     * @return
+     */
+    static boolean isRoutedToReplica() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !isPinnedToPrimary();
+    }
+
+    enum Target {
+        PRIMARY, REPLICA
+    }
+
+    /**
+     * {@link AbstractRoutingDataSource} handing out connections to the replica for read-only transactions of requests
+     * not pinned to the primary, and to the primary otherwise.
+     */
+    static class RoutingDataSource extends AbstractRoutingDataSource {
+
+        RoutingDataSource(DataSource primary, DataSource replica) {
+
+            Assert.notNull(primary, "Primary DataSource must not be null!");
+            Assert.notNull(replica, "Replica DataSource must not be null!");
+
+            Map<Object, Object> targets = new HashMap<>();
+            targets.put(Target.PRIMARY, primary);
+            targets.put(Target.REPLICA, replica);
+
+            setTargetDataSources(targets);
+            setDefaultTargetDataSource(primary);
+            afterPropertiesSet();
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource#determineCurrentLookupKey()
+         */
+        @Override
+        protected Object determineCurrentLookupKey() {
+
+            return isRoutedToReplica() ? Target.REPLICA : Target.PRIMARY;
+        }
+    }
+
+    /**
+     * {@link TransactionTemplate} for read-only transactions, which bypasses the second-level cache for storing the
+     * entities and query results read from the replica. They may be older than what the cache holds and would be
+     * served to clients reading their own writes from the primary otherwise. Reads still take entities from the cache.
+     */
+    static class ReadOnlyTransactionTemplate extends TransactionTemplate {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient EntityManagerFactory entityManagerFactory;
+
+        ReadOnlyTransactionTemplate(PlatformTransactionManager transactionManager,
+                                    EntityManagerFactory entityManagerFactory) {
+
+            super(transactionManager);
+
+            Assert.notNull(entityManagerFactory, "EntityManagerFactory must not be null!");
+
+            this.entityManagerFactory = entityManagerFactory;
+
+            setReadOnly(true);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.springframework.transaction.support.TransactionTemplate#execute(org.springframework.transaction.support.TransactionCallback)
+         */
+        @Override
+        public <T> T execute(TransactionCallback<T> action) throws TransactionException {
+
+            return super.execute(status -> {
+
+                EntityManager entityManager = EntityManagerFactoryUtils
+                        .getTransactionalEntityManager(entityManagerFactory);
+
+                if (entityManager != null && isRoutedToReplica()) {
+                    entityManager.setProperty("javax.persistence.cache.storeMode", CacheStoreMode.BYPASS);
+                }
+
+                return action.doInTransaction(status);
+            });
+        }
+    }
+
+    /**
+     * Sets the {@link #COOKIE} on the responses to writes and pins the reads of writes and of requests carrying an
+     * unexpired cookie to the primary. The cookie holds the time until which the client reads from the primary, which
+     * is honored for no longer than the configured lag, whatever the client sends.
+     */
+    static class Filter extends OncePerRequestFilter {
+
+        private final Duration lag;
+        private final Clock clock;
+
+        Filter(Duration lag, Clock clock) {
+
+            Assert.notNull(lag, "Lag must not be null!");
+            Assert.notNull(clock, "Clock must not be null!");
+
+            this.lag = lag;
+            this.clock = clock;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.springframework.web.filter.OncePerRequestFilter#doFilterInternal(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse, javax.servlet.FilterChain)
+         */
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                throws ServletException, IOException {
+
+            long now = clock.millis();
+            boolean write = isWrite(request);
+
+            if (write) {
+
+                // Set up front, as the response may be committed once the handler returns
+                Cookie cookie = new Cookie(COOKIE, String.valueOf(now + lag.toMillis()));
+                cookie.setPath(request.getContextPath() + "/");
+                cookie.setMaxAge((int) Math.max(1, lag.toSeconds() + 1));
+                cookie.setHttpOnly(true);
+
+                response.addCookie(cookie);
+            }
+
+            if (!write && !isPinned(request, now)) {
+                chain.doFilter(request, response);
+                return;
+            }
+
+            PINNED.set(Boolean.TRUE);
+
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                PINNED.remove();
+            }
+        }
+
+        private boolean isPinned(HttpServletRequest request, long now) {
+
+            Cookie cookie = WebUtils.getCookie(request, COOKIE);
+
+            if (cookie == null) {
+                return false;
+            }
+
+            try {
+
+                long until = Long.parseLong(cookie.getValue());
+
+                return now < until && until <= now + lag.toMillis();
+
+            } catch (NumberFormatException o_O) {
+                return false;
+            }
+        }
+
+        private static boolean isWrite(HttpServletRequest request) {
+
+            HttpMethod method = HttpMethod.resolve(request.getMethod());
+
+            return method == HttpMethod.POST //
+                    || method == HttpMethod.PUT //
+                    || method == HttpMethod.PATCH //
+                    || method == HttpMethod.DELETE;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.datarest.demo.web;
+
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.boot.context.config.DelegatingApplicationListener;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.SimpleApplicationEventMulticaster;
+import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.mapping.context.PersistentEntities;
+import org.springframework.data.rest.core.annotation.HandleAfterCreate;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterLinkDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterLinkSave;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
+import org.springframework.data.rest.core.annotation.HandleBeforeCreate;
+import org.springframework.data.rest.core.annotation.HandleBeforeDelete;
+import org.springframework.data.rest.core.annotation.HandleBeforeLinkDelete;
+import org.springframework.data.rest.core.annotation.HandleBeforeLinkSave;
+import org.springframework.data.rest.core.annotation.HandleBeforeSave;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import org.springframework.data.rest.core.event.AfterCreateEvent;
+import org.springframework.data.rest.core.event.AfterDeleteEvent;
+import org.springframework.data.rest.core.event.AfterLinkDeleteEvent;
+import org.springframework.data.rest.core.event.AfterLinkSaveEvent;
+import org.springframework.data.rest.core.event.AfterSaveEvent;
+import org.springframework.data.rest.core.event.AnnotatedEventHandlerInvoker;
+import org.springframework.data.rest.core.event.BeforeCreateEvent;
+import org.springframework.data.rest.core.event.BeforeDeleteEvent;
+import org.springframework.data.rest.core.event.BeforeLinkDeleteEvent;
+import org.springframework.data.rest.core.event.BeforeLinkSaveEvent;
+import org.springframework.data.rest.core.event.BeforeSaveEvent;
+import org.springframework.data.rest.core.event.RepositoryEvent;
+import org.springframework.data.rest.core.event.ValidatingRepositoryEventListener;
+import org.springframework.data.util.Lazy;
+import org.springframework.util.Assert;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.Validator;
+
+import java.lang.annotation.Annotation;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link SimpleApplicationEventMulticaster} telling whether anyone listens to a {@link RepositoryEvent}, so
+ * {@link RepositoryEvents} can skip publishing it entirely otherwise. It is not the multicaster of the context, which
+ * still publishes all events, but looks up the listeners registered with the context once it is first asked.
+ * <p>
+ * Spring Data REST registers two listeners for all repository events, which merely dispatch them to validators and
+ * annotated handlers. They only count as listening to the events that a {@link Validator} is registered for with the
+ * {@link ValidatingListener}, or that a {@link RepositoryEventHandler} declares a handler method for. Likewise, Spring
+ * Boot's {@link DelegatingApplicationListener} only counts if listeners are configured for it with
+ * {@value #DELEGATE_LISTENERS_PROPERTY}.
+ */
+class RepositoryEventMulticaster extends SimpleApplicationEventMulticaster {
+
+    private static final String DELEGATE_LISTENERS_PROPERTY = "context.listener.classes";
+    private static final Map<Class<? extends Annotation>, Class<? extends RepositoryEvent>> HANDLER_ANNOTATIONS;
+
+    static {
+
+        Map<Class<? extends Annotation>, Class<? extends RepositoryEvent>> annotations = new LinkedHashMap<>();
+        annotations.put(HandleBeforeCreate.class, BeforeCreateEvent.class);
+        annotations.put(HandleAfterCreate.class, AfterCreateEvent.class);
+        annotations.put(HandleBeforeSave.class, BeforeSaveEvent.class);
+        annotations.put(HandleAfterSave.class, AfterSaveEvent.class);
+        annotations.put(HandleBeforeDelete.class, BeforeDeleteEvent.class);
+        annotations.put(HandleAfterDelete.class, AfterDeleteEvent.class);
+        annotations.put(HandleBeforeLinkSave.class, BeforeLinkSaveEvent.class);
+        annotations.put(HandleAfterLinkSave.class, AfterLinkSaveEvent.class);
+        annotations.put(HandleBeforeLinkDelete.class, BeforeLinkDeleteEvent.class);
+        annotations.put(HandleAfterLinkDelete.class, AfterLinkDeleteEvent.class);
+
+        HANDLER_ANNOTATIONS = annotations;
+    }
+
+    private final ListableBeanFactory beanFactory;
+    private final boolean delegates;
+    private final Lazy<Set<Class<? extends RepositoryEvent>>> handledEvents;
+    private final Lazy<Boolean> listeners;
+
+    RepositoryEventMulticaster(ApplicationContext context) {
+
+        super(context.getAutowireCapableBeanFactory());
+
+        Assert.isInstanceOf(AbstractApplicationContext.class, context, "ApplicationContext must list its listeners!");
+
+        this.beanFactory = context;
+        this.delegates = StringUtils.hasText(context.getEnvironment().getProperty(DELEGATE_LISTENERS_PROPERTY));
+        this.handledEvents = Lazy.of(this::findHandledEvents);
+        this.listeners = Lazy.of(() -> {
+
+            // The listeners the context was handed and the ones it detected among its beans or their methods
+            ((AbstractApplicationContext) context).getApplicationListeners().forEach(this::addApplicationListener);
+
+            for (String name : context.getBeanNamesForType(ApplicationListener.class, true, false)) {
+                addApplicationListenerBean(name);
+            }
+
+            return true;
+        });
+    }
+
+    /**
+     * Returns whether any listener is interested in the given {@link RepositoryEvent}.
+     *
+     * @param event must not be {@literal null}.
+     * @return
+     */
+    boolean hasListeners(RepositoryEvent event) {
+
+        Assert.notNull(event, "RepositoryEvent must not be null!");
+
+        listeners.get();
+
+        for (ApplicationListener<?> listener : getApplicationListeners(event, ResolvableType.forInstance(event))) {
+            if (isListening(listener, event)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isListening(ApplicationListener<?> listener, RepositoryEvent event) {
+
+        if (listener instanceof ValidatingListener) {
+            return ((ValidatingListener) listener).validates(event);
+        }
+
+        if (listener instanceof AnnotatedEventHandlerInvoker) {
+            return handledEvents.get().contains(event.getClass());
+        }
+
+        if (listener instanceof DelegatingApplicationListener) {
+            return delegates;
+        }
+
+        return true;
+    }
+
+    private Set<Class<? extends RepositoryEvent>> findHandledEvents() {
+
+        Set<Class<? extends RepositoryEvent>> events = new HashSet<>();
+
+        for (String name : beanFactory.getBeanNamesForAnnotation(RepositoryEventHandler.class)) {
+
+            Class<?> type = beanFactory.getType(name);
+
+            if (type == null) {
+                continue;
+            }
+
+            ReflectionUtils.doWithMethods(type, method -> HANDLER_ANNOTATIONS.forEach((annotation, event) -> {
+                if (AnnotatedElementUtils.hasAnnotation(method, annotation)) {
+                    events.add(event);
+                }
+            }));
+        }
+
+        return events;
+    }
+
+    /**
+     * {@link ValidatingRepositoryEventListener} keeping track of the events it has validators for.
+     */
+    static class ValidatingListener extends ValidatingRepositoryEventListener {
+
+        private final Set<String> events = ConcurrentHashMap.newKeySet();
+
+        ValidatingListener(ObjectFactory<PersistentEntities> persistentEntitiesFactory) {
+            super(persistentEntitiesFactory);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.springframework.data.rest.core.event.ValidatingRepositoryEventListener#setValidators(java.util.Map)
+         */
+        @Override
+        public ValidatingRepositoryEventListener setValidators(Map<String, Collection<Validator>> validators) {
+
+            validators.forEach((event, it) -> {
+                if (!it.isEmpty()) {
+                    events.add(event);
+                }
+            });
+
+            return super.setValidators(validators);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.springframework.data.rest.core.event.ValidatingRepositoryEventListener#addValidator(java.lang.String, org.springframework.validation.Validator)
+         */
+        @Override
+        public ValidatingRepositoryEventListener addValidator(String event, Validator validator) {
+
+            events.add(event);
+
+            return super.addValidator(event, validator);
+        }
+
+        /**
+         * Returns whether a validator is registered for the given {@link RepositoryEvent}, e.g. for
+         * {@code beforeCreate} in case of a {@link BeforeCreateEvent}.
+         *
+         * @param event must not be {@literal null}.
+         * @return
+         */
+        boolean validates(RepositoryEvent event) {
+
+            String name = event.getClass().getSimpleName();
+
+            return events.contains(StringUtils.uncapitalize(name.substring(0, name.length() - "Event".length())));
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.OutboxEvent;
+import com.datarest.demo.dal.OutboxLane;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.rest.core.event.RepositoryEvent;
+import org.springframework.data.util.ProxyUtils;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.lang.Nullable;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.LockModeType;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatches the {@link RepositoryEvent}s published after writes in the background if enabled with
+ * {@code demo.rest.outbox.enabled}, so the work of their listeners doesn't add to the latency of the write.
+ * <p>
+ * Events are stored as {@link OutboxEvent}s within the transaction of the write, along with a JSON snapshot of the
+ * entity they were published for, and dispatched to their listeners once it committed. An event is removed from the
+ * outbox only after its listeners returned, so it is delivered at least once, even across restarts, and listeners have
+ * to be idempotent. The events of each domain type are dispatched one after another in the order their transactions
+ * committed, and a failing event holds back the later ones until it is dispatched on a retry. That order is kept by the
+ * {@link OutboxLane} of the domain type, which a committing transaction locks to take the positions of its events from.
+ * Identifiers are allocated in blocks, so neither do they tell the order, nor do they keep inserts from being batched.
+ * <p>
+ * Dispatching happens outside of any transaction, so transactional listeners need to allow fallback execution.
+ */
+@Component
+public class RepositoryEventOutbox implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryEventOutbox.class);
+
+    private final CustomRepositoryRestProperties.Outbox properties;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate laneTransactionTemplate;
+    private final Set<String> knownLanes = ConcurrentHashMap.newKeySet();
+    private final ApplicationEventPublisher publisher;
+    private final ObjectMapper mapper;
+    private final Map<String, AtomicInteger> lanes = new ConcurrentHashMap<>();
+    private final @Nullable ThreadPoolTaskScheduler scheduler;
+
+    public RepositoryEventOutbox(CustomRepositoryRestProperties properties, EntityManagerFactory entityManagerFactory,
+                                 PlatformTransactionManager transactionManager, ApplicationEventPublisher publisher) {
+
+        Assert.notNull(properties, "CustomRepositoryRestProperties must not be null!");
+        Assert.notNull(entityManagerFactory, "EntityManagerFactory must not be null!");
+        Assert.notNull(transactionManager, "PlatformTransactionManager must not be null!");
+        Assert.notNull(publisher, "ApplicationEventPublisher must not be null!");
+
+        this.properties = properties.getOutbox();
+        this.entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.laneTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.laneTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.publisher = publisher;
+        this.mapper = Jackson2ObjectMapperBuilder.json() //
+                .modulesToInstall(new Hibernate5Module() //
+                        .configure(Hibernate5Module.Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS, true) //
+                        .configure(Hibernate5Module.Feature.USE_TRANSIENT_ANNOTATION, false)) //
+                .build();
+        this.scheduler = this.properties.isEnabled() ? createScheduler(this.properties) : null;
+    }
+
+    /**
+     * Returns whether events are dispatched through the outbox.
+     *
+     * @return
+     */
+    public boolean isEnabled() {
+        return scheduler != null;
+    }
+
+    /**
+     * Stores the given {@link RepositoryEvent} within the current transaction and dispatches it once that committed,
+     * after the events of the same domain type committed before.
+     *
+     * @param event must not be {@literal null}.
+     * @throws IllegalStateException if the outbox is disabled or no transaction is active.
+     */
+    void add(RepositoryEvent event) {
+
+        Assert.notNull(event, "RepositoryEvent must not be null!");
+        Assert.state(isEnabled(), "Outbox is disabled!");
+        Assert.state(TransactionSynchronizationManager.isActualTransactionActive(),
+                "Events can only be added to the outbox within a transaction!");
+
+        String domainType = ProxyUtils.getUserClass(event.getSource()).getName();
+        OutboxEvent outboxEvent;
+
+        try {
+
+            outboxEvent = OutboxEvent.builder() //
+                    .domainType(domainType) //
+                    .eventType(event.getClass().getName()) //
+                    .payload(mapper.writeValueAsString(event.getSource())) //
+                    .createdDate(Instant.now()) //
+                    .build();
+
+        } catch (JsonProcessingException o_O) {
+            throw new UncheckedIOException(o_O);
+        }
+
+        createLane(domainType);
+        entityManager.persist(outboxEvent);
+
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+
+        if (pending == null) {
+
+            pending = new Pending();
+
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+
+        pending.add(outboxEvent);
+    }
+
+    /**
+     * Creates the {@link OutboxLane} of the given domain type unless it exists. It is created in a transaction of its
+     * own, so it is visible to concurrent transactions storing their first events of the domain type as well.
+     *
+     * @param domainType must not be {@literal null}.
+     */
+    private void createLane(String domainType) {
+
+        if (knownLanes.contains(domainType)) {
+            return;
+        }
+
+        try {
+
+            laneTransactionTemplate.executeWithoutResult(status -> {
+                if (entityManager.find(OutboxLane.class, domainType) == null) {
+                    entityManager.persist(OutboxLane.builder().domainType(domainType).position(0).build());
+                }
+            });
+
+        } catch (DataIntegrityViolationException o_O) {
+            // Created concurrently
+        }
+
+        knownLanes.add(domainType);
+    }
+
+    /**
+     * Dispatches the events left in the outbox by a previous run, and the ones that failed from then on.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void dispatchPending() {
+
+        if (scheduler != null) {
+            scheduler.scheduleWithFixedDelay(this::schedulePending, properties.getRetryInterval());
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.beans.factory.DisposableBean#destroy()
+     */
+    @Override
+    public void destroy() {
+
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    private void schedulePending() {
+
+        try {
+
+            transactionTemplate.execute(status -> entityManager
+                    .createQuery("select distinct e.domainType from OutboxEvent e", String.class) //
+                    .getResultList()) //
+                    .forEach(this::schedule);
+
+        } catch (RuntimeException o_O) {
+            LOGGER.warn("Failed to look up pending events!", o_O);
+        }
+    }
+
+    /**
+     * Dispatches the events of the given domain type unless that is already underway. Signals arriving while it is make
+     * it look for further events once done, so only a single task per domain type is queued or running at any time.
+     *
+     * @param domainType must not be {@literal null}.
+     */
+    private void schedule(String domainType) {
+
+        AtomicInteger signals = lanes.computeIfAbsent(domainType, it -> new AtomicInteger());
+
+        if (signals.getAndIncrement() != 0) {
+            return;
+        }
+
+        try {
+            scheduler.execute(() -> drain(domainType, signals));
+        } catch (TaskRejectedException o_O) {
+            signals.set(0);
+        }
+    }
+
+    private void drain(String domainType, AtomicInteger signals) {
+
+        int seen;
+
+        do {
+
+            seen = signals.get();
+
+            if (!tryDispatch(domainType)) {
+                signals.set(0);
+                return;
+            }
+
+        } while (!signals.compareAndSet(seen, 0));
+    }
+
+    private boolean tryDispatch(String domainType) {
+
+        try {
+            return dispatch(domainType);
+        } catch (RuntimeException o_O) {
+
+            LOGGER.warn(String.format("Failed to read events of %s from the outbox, retrying in %s!", domainType,
+                    properties.getRetryInterval()), o_O);
+
+            return false;
+        }
+    }
+
+    /**
+     * Dispatches the stored events of the given domain type in order.
+     *
+     * @param domainType must not be {@literal null}.
+     * @return whether all events were dispatched.
+     */
+    private boolean dispatch(String domainType) {
+
+        List<OutboxEvent> events;
+
+        do {
+
+            events = transactionTemplate.execute(status -> entityManager
+                    .createQuery("select e from OutboxEvent e where e.domainType = :domainType order by e.position",
+                            OutboxEvent.class) //
+                    .setParameter("domainType", domainType) //
+                    .setMaxResults(properties.getBatchSize()) //
+                    .getResultList());
+
+            for (OutboxEvent event : events) {
+
+                try {
+                    publisher.publishEvent(toRepositoryEvent(event));
+                } catch (RuntimeException o_O) {
+
+                    LOGGER.warn(String.format("Failed to dispatch %s of %s %s, retrying in %s!", event.getEventType(),
+                            event.getDomainType(), event.getId(), properties.getRetryInterval()), o_O);
+
+                    return false;
+                }
+
+                transactionTemplate.executeWithoutResult(status -> entityManager
+                        .createQuery("delete from OutboxEvent e where e.id = :id") //
+                        .setParameter("id", event.getId()) //
+                        .executeUpdate());
+            }
+
+        } while (events.size() == properties.getBatchSize());
+
+        return true;
+    }
+
+    private RepositoryEvent toRepositoryEvent(OutboxEvent event) {
+
+        ClassLoader classLoader = getClass().getClassLoader();
+        Class<?> domainType = ClassUtils.resolveClassName(event.getDomainType(), classLoader);
+        Class<?> eventType = ClassUtils.resolveClassName(event.getEventType(), classLoader);
+
+        Assert.state(RepositoryEvent.class.isAssignableFrom(eventType),
+                () -> String.format("%s is not a RepositoryEvent!", eventType));
+
+        try {
+
+            Object source = mapper.readValue(event.getPayload(), domainType);
+
+            return (RepositoryEvent) BeanUtils.instantiateClass(eventType.getConstructor(Object.class), source);
+
+        } catch (IOException o_O) {
+            throw new UncheckedIOException(o_O);
+        } catch (NoSuchMethodException o_O) {
+            throw new IllegalStateException(String.format("%s cannot be created for an entity!", eventType), o_O);
+        }
+    }
+
+    /**
+     * The {@link OutboxEvent}s stored within a transaction, by domain type. Their positions are assigned right before
+     * the transaction commits, holding the lock on the {@link OutboxLane} of their domain type until it did.
+     */
+    private class Pending implements TransactionSynchronization {
+
+        // Lanes are locked in the same order by all transactions, so they cannot deadlock
+        private final Map<String, List<OutboxEvent>> events = new TreeMap<>();
+
+        void add(OutboxEvent event) {
+            events.computeIfAbsent(event.getDomainType(), it -> new ArrayList<>()).add(event);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.springframework.transaction.support.TransactionSynchronization#beforeCommit(boolean)
+         */
+        @Override
+        public void beforeCommit(boolean readOnly) {
+
+            events.forEach((domainType, it) -> {
+
+                OutboxLane lane = entityManager.find(OutboxLane.class, domainType, LockModeType.PESSIMISTIC_WRITE);
+                long position = lane.getPosition();
+
+                for (OutboxEvent event : it) {
+                    event.setPosition(++position);
+                }
+
+                lane.setPosition(position);
+            });
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.springframework.transaction.support.TransactionSynchronization#afterCompletion(int)
+         */
+        @Override
+        public void afterCompletion(int status) {
+
+            TransactionSynchronizationManager.unbindResource(RepositoryEventOutbox.this);
+
+            if (status == STATUS_COMMITTED) {
+                events.keySet().forEach(RepositoryEventOutbox.this::schedule);
+            }
+        }
+    }
+
+    private static ThreadPoolTaskScheduler createScheduler(CustomRepositoryRestProperties.Outbox properties) {
+
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(properties.getThreads());
+        scheduler.setThreadNamePrefix("outbox-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(10);
+        scheduler.initialize();
+
+        return scheduler;
+    }
+}
@@ -0,0 +1,84 @@
+package com.datarest.demo.web;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.rest.core.event.RepositoryEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Publishes the {@link RepositoryEvent}s of writes through {@link CustomRepositoryRestController}. Events nobody
+ * listens to are not published at all, as told by the {@link RepositoryEventMulticaster}. The events published after
+ * writes go through the {@link RepositoryEventOutbox} if it is enabled, and are published right away otherwise.
+ */
+@Component
+public class RepositoryEvents {
+
+    private final ApplicationEventPublisher publisher;
+    private final RepositoryEventMulticaster multicaster;
+    private final RepositoryEventOutbox outbox;
+    private final TransactionTemplate transactionTemplate;
+
+    public RepositoryEvents(ApplicationEventPublisher publisher, RepositoryEventMulticaster multicaster,
+                            RepositoryEventOutbox outbox, PlatformTransactionManager transactionManager) {
+
+        Assert.notNull(publisher, "ApplicationEventPublisher must not be null!");
+        Assert.notNull(multicaster, "RepositoryEventMulticaster must not be null!");
+        Assert.notNull(outbox, "RepositoryEventOutbox must not be null!");
+        Assert.notNull(transactionManager, "PlatformTransactionManager must not be null!");
+
+        this.publisher = publisher;
+        this.multicaster = multicaster;
+        this.outbox = outbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Publishes the given {@link RepositoryEvent} right away if anyone listens to it.
+     *
+     * @param event must not be {@literal null}.
+     */
+    public void publish(RepositoryEvent event) {
+
+        Assert.notNull(event, "RepositoryEvent must not be null!");
+
+        if (multicaster.hasListeners(event)) {
+            publisher.publishEvent(event);
+        }
+    }
+
+    /**
+     * Performs the given write and publishes the events derived from its result. With the outbox enabled, the write runs
+     * in a transaction the events are stored in, otherwise they are published once the write returned.
+     *
+     * @param write  must not be {@literal null}.
+     * @param events must not be {@literal null}.
+     * @return the result of the write.
+     */
+    public <T> T write(Supplier<T> write, Function<T, Stream<? extends RepositoryEvent>> events) {
+
+        Assert.notNull(write, "Write must not be null!");
+        Assert.notNull(events, "Events must not be null!");
+
+        if (!outbox.isEnabled()) {
+
+            T result = write.get();
+            events.apply(result).forEach(this::publish);
+
+            return result;
+        }
+
+        return transactionTemplate.execute(status -> {
+
+            T result = write.get();
+            events.apply(result).filter(multicaster::hasListeners).forEach(outbox::add);
+
+            return result;
+        });
+    }
+}
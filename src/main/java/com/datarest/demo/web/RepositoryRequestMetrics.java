@@ -0,0 +1,199 @@
+package com.datarest.demo.web;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the requests handled by {@link CustomRepositoryRestController} tagged by repository, HTTP method and resource
+ * type, i.e. {@code collection} or {@code item}, as all of them are handled by the same handler methods. The time until
+ * the handler returns, invoking the repository, is recorded apart from the time it takes to write the response body.
+ * Streamed collections are read while they are written and are recorded as invocation only. {@code 304 Not Modified},
+ * {@code 404 Not Found} and {@code 412 Precondition Failed}, i.e. {@code ETag} mismatches, are counted on their own.
+ * <p>
+ * Registered as interceptor of the {@link CustomRepositoryRestHandlerMapping} to see the start and end of a request, and
+ * as {@link ResponseBodyAdvice} to see the handler return.
+ */
+@ControllerAdvice(assignableTypes = CustomRepositoryRestController.class)
+class RepositoryRequestMetrics implements HandlerInterceptor, ResponseBodyAdvice<Object> {
+
+    static final String REQUESTS = "demo.rest.requests";
+    static final String INVOCATIONS = "demo.rest.invocations";
+    static final String SERIALIZATIONS = "demo.rest.serializations";
+    static final String NOT_MODIFIED = "demo.rest.not.modified";
+    static final String NOT_FOUND = "demo.rest.not.found";
+    static final String PRECONDITION_FAILED = "demo.rest.precondition.failed";
+
+    private static final String START_ATTRIBUTE = RepositoryRequestMetrics.class.getName() + ".START";
+    private static final String INVOKED_ATTRIBUTE = RepositoryRequestMetrics.class.getName() + ".INVOKED";
+    private static final String COLLECTION_PATTERN_SUFFIX = "/{repository}";
+
+    private final MeterRegistry registry;
+    private final Clock clock;
+
+    /**
+     * Creates a new {@link RepositoryRequestMetrics} recording to the given {@link MeterRegistry}.
+     *
+     * @param registry must not be {@literal null}.
+     */
+    RepositoryRequestMetrics(MeterRegistry registry) {
+
+        Assert.notNull(registry, "MeterRegistry must not be null!");
+
+        this.registry = registry;
+        this.clock = registry.config().clock();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.web.servlet.HandlerInterceptor#preHandle(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse, java.lang.Object)
+     */
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+
+        // Async dispatches of streamed responses keep the start of the initial one
+        if (isRepositoryRequest(handler) && request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, clock.monotonicTime());
+        }
+
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice#supports(org.springframework.core.MethodParameter, java.lang.Class)
+     */
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice#beforeBodyWrite(java.lang.Object, org.springframework.core.MethodParameter, org.springframework.http.MediaType, java.lang.Class, org.springframework.http.server.ServerHttpRequest, org.springframework.http.server.ServerHttpResponse)
+     */
+    @Override
+    public Object beforeBodyWrite(@Nullable Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+                                  ServerHttpResponse response) {
+
+        if (request instanceof ServletServerHttpRequest) {
+
+            HttpServletRequest servletRequest = ((ServletServerHttpRequest) request).getServletRequest();
+
+            if (servletRequest.getAttribute(START_ATTRIBUTE) != null) {
+                servletRequest.setAttribute(INVOKED_ATTRIBUTE, clock.monotonicTime());
+            }
+        }
+
+        return body;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.web.servlet.HandlerInterceptor#afterCompletion(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse, java.lang.Object, java.lang.Exception)
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                @Nullable Exception ex) {
+
+        Object start = request.getAttribute(START_ATTRIBUTE);
+
+        if (start == null || request.isAsyncStarted()) {
+            return;
+        }
+
+        long end = clock.monotonicTime();
+        Object invoked = request.getAttribute(INVOKED_ATTRIBUTE);
+        long invocationEnd = invoked == null ? end : (Long) invoked;
+        int status = ex == null ? response.getStatus() : HttpStatus.INTERNAL_SERVER_ERROR.value();
+
+        Tags tags = getTags(request);
+
+        Timer.builder(REQUESTS) //
+                .description("Requests handled for repository resources") //
+                .tags(tags) //
+                .tag("status", String.valueOf(status)) //
+                .register(registry) //
+                .record(end - (Long) start, TimeUnit.NANOSECONDS);
+
+        Timer.builder(INVOCATIONS) //
+                .description("Time until the handler returned, invoking the repository") //
+                .tags(tags) //
+                .register(registry) //
+                .record(invocationEnd - (Long) start, TimeUnit.NANOSECONDS);
+
+        if (invoked != null) {
+            Timer.builder(SERIALIZATIONS) //
+                    .description("Time spent writing the response body") //
+                    .tags(tags) //
+                    .register(registry) //
+                    .record(end - invocationEnd, TimeUnit.NANOSECONDS);
+        }
+
+        String counter = getCounter(status);
+
+        if (counter != null) {
+            Counter.builder(counter).tags(tags).register(registry).increment();
+        }
+    }
+
+    private static boolean isRepositoryRequest(Object handler) {
+
+        return handler instanceof HandlerMethod //
+                && CustomRepositoryRestController.class.isAssignableFrom(((HandlerMethod) handler).getBeanType());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Tags getTags(HttpServletRequest request) {
+
+        Map<String, String> variables = (Map<String, String>) request
+                .getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+
+        String repository = variables == null ? null : variables.get("repository");
+        String resource = pattern != null && pattern.toString().endsWith(COLLECTION_PATTERN_SUFFIX) //
+                ? "collection" //
+                : "item";
+
+        return Tags.of("repository", repository == null ? "none" : repository, //
+                "method", request.getMethod(), //
+                "resource", resource);
+    }
+
+    @Nullable
+    private static String getCounter(int status) {
+
+        switch (status) {
+            case 304:
+                return NOT_MODIFIED;
+            case 404:
+                return NOT_FOUND;
+            case 412:
+                return PRECONDITION_FAILED;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.datarest.demo.web;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * The time a request for a repository resource spent in each {@link Phase} of its handling, recorded if tracing is
+ * enabled with {@code demo.rest.tracing.enabled}. The breakdown is rendered as {@code Server-Timing} header and
+ * committed as {@link RepositoryRequestEvent} to Flight Recorder.
+ */
+class RequestTrace {
+
+    static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private static final String ATTRIBUTE = RequestTrace.class.getName();
+
+    /**
+     * The phases of a request. {@link #INVOKE} is the time the handler spent apart from resolving its arguments and
+     * applying fetch plans, mostly invoking the repository.
+     */
+    enum Phase {
+
+        LOOKUP("Dispatch and handler lookup"), //
+        RESOLVE("Resolving handler arguments"), //
+        INVOKE("Repository invocation"), //
+        FETCH("Fetch plan initialization"), //
+        SERIALIZE("Writing the response body");
+
+        private final String description;
+
+        Phase(String description) {
+            this.description = description;
+        }
+    }
+
+    private final RepositoryRequestEvent event = new RepositoryRequestEvent();
+    private final long[] durations = new long[Phase.values().length];
+    private final long start;
+
+    private long handlerStart;
+    private long handlerEnd;
+    private volatile boolean streamed;
+
+    private RequestTrace() {
+
+        this.event.begin();
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * Starts a {@link RequestTrace} for the given request.
+     *
+     * @param request must not be {@literal null}.
+     * @return
+     */
+    static RequestTrace start(HttpServletRequest request) {
+
+        Assert.notNull(request, "HttpServletRequest must not be null!");
+
+        RequestTrace trace = new RequestTrace();
+        request.setAttribute(ATTRIBUTE, trace);
+
+        return trace;
+    }
+
+    /**
+     * Returns the {@link RequestTrace} of the given request.
+     *
+     * @param request must not be {@literal null}.
+     * @return the trace or {@literal null} if the request isn't traced.
+     */
+    @Nullable
+    static RequestTrace of(HttpServletRequest request) {
+        return (RequestTrace) request.getAttribute(ATTRIBUTE);
+    }
+
+    /**
+     * Returns the {@link RequestTrace} of the request bound to the current thread.
+     *
+     * @return the trace or {@literal null} if the current request isn't traced.
+     */
+    @Nullable
+    static RequestTrace current() {
+
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+
+        return attributes == null //
+                ? null //
+                : (RequestTrace) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    /**
+     * Runs the given {@link Supplier} and adds the time it took to the given {@link Phase} of the request bound to the
+     * current thread, if it is traced.
+     *
+     * @param phase    must not be {@literal null}.
+     * @param supplier must not be {@literal null}.
+     * @return the result of the {@link Supplier}.
+     */
+    static <T> T time(Phase phase, Supplier<T> supplier) {
+
+        RequestTrace trace = current();
+
+        if (trace == null) {
+            return supplier.get();
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            return supplier.get();
+        } finally {
+            trace.add(phase, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Marks the response body of the request bound to the current thread, if it is traced, as written while it is
+     * produced, so it is not buffered.
+     */
+    static void streaming() {
+
+        RequestTrace trace = current();
+
+        if (trace != null) {
+            trace.streamed();
+        }
+    }
+
+    /**
+     * Marks the response body as written while it is produced, e.g. rows streamed from a cursor or Server-Sent Events,
+     * so it must not be buffered to add the {@code Server-Timing} header.
+     */
+    void streamed() {
+        streamed = true;
+    }
+
+    boolean isStreamed() {
+        return streamed;
+    }
+
+    /**
+     * Adds the given duration to the given {@link Phase}.
+     *
+     * @param phase    must not be {@literal null}.
+     * @param duration in nanoseconds.
+     */
+    void add(Phase phase, long duration) {
+        durations[phase.ordinal()] += duration;
+    }
+
+    /**
+     * Marks the start of the handler, i.e. the end of the handler lookup. Repeated calls, e.g. for async dispatches,
+     * keep the first one.
+     */
+    void handlerStarted() {
+
+        if (handlerStart == 0) {
+            handlerStart = System.nanoTime();
+        }
+    }
+
+    /**
+     * Marks the return of the handler, i.e. the start of writing the response body.
+     */
+    void handlerReturned() {
+
+        if (handlerEnd == 0) {
+            handlerEnd = System.nanoTime();
+        }
+    }
+
+    /**
+     * Completes the trace with the response written, commits its {@link RepositoryRequestEvent} and returns the value
+     * of the {@code Server-Timing} header.
+     *
+     * @param request must not be {@literal null}.
+     * @param status  the status of the response.
+     * @return
+     */
+    String complete(HttpServletRequest request, int status) {
+
+        long end = System.nanoTime();
+        long handlerStart = this.handlerStart == 0 ? end : this.handlerStart;
+        long handlerEnd = this.handlerEnd == 0 ? end : this.handlerEnd;
+
+        durations[Phase.LOOKUP.ordinal()] = handlerStart - start;
+        durations[Phase.INVOKE.ordinal()] = Math.max(0, handlerEnd - handlerStart //
+                - durations[Phase.RESOLVE.ordinal()] //
+                - durations[Phase.FETCH.ordinal()]);
+        durations[Phase.SERIALIZE.ordinal()] = end - handlerEnd;
+
+        commit(request, status);
+
+        StringBuilder builder = new StringBuilder();
+
+        for (Phase phase : Phase.values()) {
+
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+
+            builder.append(phase.name().toLowerCase(Locale.ROOT)) //
+                    .append(";dur=").append(String.format(Locale.ROOT, "%.3f", durations[phase.ordinal()] / 1_000_000d)) //
+                    .append(";desc=\"").append(phase.description).append('"');
+        }
+
+        return builder.toString();
+    }
+
+    long getDuration(Phase phase) {
+        return durations[phase.ordinal()];
+    }
+
+    private void commit(HttpServletRequest request, int status) {
+
+        event.end();
+
+        if (!event.shouldCommit()) {
+            return;
+        }
+
+        event.method = request.getMethod();
+        event.uri = request.getRequestURI();
+        event.status = status;
+        event.lookup = getDuration(Phase.LOOKUP);
+        event.resolve = getDuration(Phase.RESOLVE);
+        event.invoke = getDuration(Phase.INVOKE);
+        event.fetch = getDuration(Phase.FETCH);
+        event.serialize = getDuration(Phase.SERIALIZE);
+        event.commit();
+    }
+
+    /**
+     * Flight Recorder event carrying the phases of a request for a repository resource.
+     */
+    @Name("com.datarest.demo.RepositoryRequest")
+    @Label("Repository Request")
+    @Category({"Demo", "REST"})
+    @Description("Breakdown of a request for a repository resource")
+    static class RepositoryRequestEvent extends Event {
+
+        @Label("Method")
+        String method;
+
+        @Label("URI")
+        String uri;
+
+        @Label("Status")
+        int status;
+
+        @Label("Lookup")
+        @Timespan(Timespan.NANOSECONDS)
+        long lookup;
+
+        @Label("Resolve")
+        @Timespan(Timespan.NANOSECONDS)
+        long resolve;
+
+        @Label("Invoke")
+        @Timespan(Timespan.NANOSECONDS)
+        long invoke;
+
+        @Label("Fetch")
+        @Timespan(Timespan.NANOSECONDS)
+        long fetch;
+
+        @Label("Serialize")
+        @Timespan(Timespan.NANOSECONDS)
+        long serialize;
+    }
+}
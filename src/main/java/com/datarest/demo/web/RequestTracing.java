@@ -0,0 +1,259 @@
+package com.datarest.demo.web;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Records the {@link RequestTrace} of requests handled by {@link CustomRepositoryRestController} if tracing is enabled
+ * with {@code demo.rest.tracing.enabled}. None of its parts is registered otherwise, so untraced requests don't pass
+ * through any of them.
+ * <p>
+ * Registered as interceptor of the {@link CustomRepositoryRestHandlerMapping} to see the start of the handler, and as
+ * {@link ResponseBodyAdvice} to see it return. The {@link Filter} starts the trace and buffers the response, so the
+ * {@code Server-Timing} header can carry the time it took to write the body. Bodies written while they are produced,
+ * by handlers returning a {@link ResponseBodyEmitter} or marked with {@link RequestTrace#streaming()}, are not buffered
+ * and are traced without the header.
+ */
+@ControllerAdvice(assignableTypes = CustomRepositoryRestController.class)
+class RequestTracing implements HandlerInterceptor, ResponseBodyAdvice<Object> {
+
+    static final String ENABLED_PROPERTY = "demo.rest.tracing.enabled";
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.web.servlet.HandlerInterceptor#preHandle(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse, java.lang.Object)
+     */
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+
+        RequestTrace trace = RequestTrace.of(request);
+
+        if (trace != null) {
+
+            trace.handlerStarted();
+
+            if (isStreaming(handler)) {
+                trace.streamed();
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice#supports(org.springframework.core.MethodParameter, java.lang.Class)
+     */
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice#beforeBodyWrite(java.lang.Object, org.springframework.core.MethodParameter, org.springframework.http.MediaType, java.lang.Class, org.springframework.http.server.ServerHttpRequest, org.springframework.http.server.ServerHttpResponse)
+     */
+    @Override
+    public Object beforeBodyWrite(@Nullable Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+                                  ServerHttpResponse response) {
+
+        RequestTrace trace = request instanceof ServletServerHttpRequest //
+                ? RequestTrace.of(((ServletServerHttpRequest) request).getServletRequest()) //
+                : null;
+
+        if (trace != null) {
+            trace.handlerReturned();
+        }
+
+        return body;
+    }
+
+    private static boolean isStreaming(Object handler) {
+
+        if (!(handler instanceof HandlerMethod)) {
+            return false;
+        }
+
+        Class<?> returnType = ((HandlerMethod) handler).getReturnType().getParameterType();
+
+        return ResponseBodyEmitter.class.isAssignableFrom(returnType)
+                || StreamingResponseBody.class.isAssignableFrom(returnType);
+    }
+
+    /**
+     * Starts the {@link RequestTrace} of a request and renders it as {@code Server-Timing} header once the response
+     * body was written to the buffer it is held in until then. Streamed bodies bypass the buffer.
+     */
+    static class Filter extends OncePerRequestFilter {
+
+        /*
+         * (non-Javadoc)
+         * @see org.springframework.web.filter.OncePerRequestFilter#shouldNotFilterAsyncDispatch()
+         */
+        @Override
+        protected boolean shouldNotFilterAsyncDispatch() {
+            return false;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.springframework.web.filter.OncePerRequestFilter#doFilterInternal(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse, javax.servlet.FilterChain)
+         */
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                throws ServletException, IOException {
+
+            RequestTrace trace = isAsyncDispatch(request) ? RequestTrace.of(request) : RequestTrace.start(request);
+            Buffer wrapper = WebUtils.getNativeResponse(response, Buffer.class);
+            Buffer buffer = wrapper != null ? wrapper : new Buffer(response, trace);
+
+            try {
+                chain.doFilter(request, buffer);
+            } finally {
+
+                if (!isAsyncStarted(request)) {
+
+                    if (trace != null) {
+
+                        String serverTiming = trace.complete(request, buffer.getStatus());
+
+                        // The headers of streamed responses were sent with the first chunk of the body
+                        if (!trace.isStreamed()) {
+                            buffer.setHeader(RequestTrace.SERVER_TIMING_HEADER, serverTiming);
+                        }
+                    }
+
+                    buffer.copyBodyToResponse();
+                }
+            }
+        }
+    }
+
+    /**
+     * {@link ContentCachingResponseWrapper} writing to the wrapped response directly once the {@link RequestTrace} was
+     * marked as streamed.
+     */
+    private static class Buffer extends ContentCachingResponseWrapper {
+
+        private final @Nullable RequestTrace trace;
+
+        Buffer(HttpServletResponse response, @Nullable RequestTrace trace) {
+
+            super(response);
+
+            this.trace = trace;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.springframework.web.util.ContentCachingResponseWrapper#getOutputStream()
+         */
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            return isStreamed() ? getResponse().getOutputStream() : super.getOutputStream();
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.springframework.web.util.ContentCachingResponseWrapper#getWriter()
+         */
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            return isStreamed() ? getResponse().getWriter() : super.getWriter();
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.springframework.web.util.ContentCachingResponseWrapper#flushBuffer()
+         */
+        @Override
+        public void flushBuffer() throws IOException {
+
+            if (isStreamed()) {
+                getResponse().flushBuffer();
+            } else {
+                super.flushBuffer();
+            }
+        }
+
+        private boolean isStreamed() {
+            return trace != null && trace.isStreamed();
+        }
+    }
+
+    /**
+     * {@link HandlerMethodArgumentResolver} adding the time the given one takes to {@link RequestTrace.Phase#RESOLVE}.
+     */
+    static class ArgumentResolver implements HandlerMethodArgumentResolver {
+
+        private final HandlerMethodArgumentResolver delegate;
+
+        ArgumentResolver(HandlerMethodArgumentResolver delegate) {
+
+            Assert.notNull(delegate, "HandlerMethodArgumentResolver must not be null!");
+
+            this.delegate = delegate;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.springframework.web.method.support.HandlerMethodArgumentResolver#supportsParameter(org.springframework.core.MethodParameter)
+         */
+        @Override
+        public boolean supportsParameter(MethodParameter parameter) {
+            return delegate.supportsParameter(parameter);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.springframework.web.method.support.HandlerMethodArgumentResolver#resolveArgument(org.springframework.core.MethodParameter, org.springframework.web.method.support.ModelAndViewContainer, org.springframework.web.context.request.NativeWebRequest, org.springframework.web.bind.support.WebDataBinderFactory)
+         */
+        @Override
+        public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                      NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
+
+            HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+            RequestTrace trace = request == null ? null : RequestTrace.of(request);
+
+            if (trace == null) {
+                return delegate.resolveArgument(parameter, mavContainer, webRequest, binderFactory);
+            }
+
+            long start = System.nanoTime();
+
+            try {
+                return delegate.resolveArgument(parameter, mavContainer, webRequest, binderFactory);
+            } finally {
+                trace.add(RequestTrace.Phase.RESOLVE, System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,992 @@
+package com.datarest.demo.web;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessor;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.persistence.Cacheable;
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Member;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+/**
+ * {@link SimpleJpaRepository} used by {@link JpaRepositoryInvoker} to run collection queries for exported repositories
+ * regardless of the repository interface they extend.
+ *
+ * @param <T>  the domain type.
+ * @param <ID> the identifier type.
+ */
+class ResourceJpaRepository<T, ID> extends SimpleJpaRepository<T, ID> {
+
+    private static final String BATCH_SIZE_PROPERTY = "hibernate.jdbc.batch_size";
+    private static final int DEFAULT_BATCH_SIZE = 50;
+    private static final String DEFAULT_FETCH_PLAN = "default";
+    private static final String ID_PARAMETER = "id";
+
+    private final JpaEntityInformation<T, ?> entityInformation;
+    private final EntityManager entityManager;
+    private final boolean cacheable;
+
+    private volatile List<SingularAttribute<? super T, ?>> validatorAttributes;
+
+    /**
+     * Creates a new {@link ResourceJpaRepository} for the given domain type.
+     *
+     * @param domainClass   must not be {@literal null}.
+     * @param entityManager must not be {@literal null}.
+     */
+    ResourceJpaRepository(Class<T> domainClass, EntityManager entityManager) {
+
+        super(domainClass, entityManager);
+
+        this.entityInformation = JpaEntityInformationSupport.getEntityInformation(domainClass, entityManager);
+        this.entityManager = entityManager;
+        this.cacheable = isCacheable(domainClass);
+    }
+
+    /**
+     * Marks queries for entities kept in the second-level cache as cacheable, so repeated reads of the same page only
+     * resolve the cached identifiers against the cached entities. Queries run in a read-only transaction load their
+     * entities read-only, so Hibernate keeps no snapshots of them for dirty checking.
+     *
+     * @see org.springframework.data.jpa.repository.support.SimpleJpaRepository#getQuery(org.springframework.data.jpa.domain.Specification, java.lang.Class, org.springframework.data.domain.Sort)
+     */
+    @Override
+    protected <S extends T> TypedQuery<S> getQuery(@Nullable Specification<S> spec, Class<S> domainClass, Sort sort) {
+
+        TypedQuery<S> query = super.getQuery(spec, domainClass, sort);
+
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            query.setHint(HINT_READONLY, true);
+        }
+
+        return cacheable ? query.setHint(HINT_CACHEABLE, true) : query;
+    }
+
+    /**
+     * Returns the requested page without counting all rows. One row more than requested is read to tell whether
+     * another slice follows.
+     *
+     * @param pageable must not be {@literal null}.
+     * @return
+     */
+    Slice<T> findSlice(Pageable pageable) {
+
+        Assert.isTrue(pageable.isPaged(), "Pageable must be paged!");
+
+        TypedQuery<T> query = getQuery(null, pageable);
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize() + 1);
+
+        List<T> rows = query.getResultList();
+        boolean hasNext = rows.size() > pageable.getPageSize();
+
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    /**
+     * Returns the requested page like {@link #findAll(Pageable)} but obtains the total number of rows from the given
+     * {@link LongSupplier} instead of a count query, if it is needed at all.
+     *
+     * @param pageable must not be {@literal null}.
+     * @param total    must not be {@literal null}.
+     * @return
+     */
+    Page<T> findAll(Pageable pageable, LongSupplier total) {
+
+        Assert.isTrue(pageable.isPaged(), "Pageable must be paged!");
+        Assert.notNull(total, "Total supplier must not be null!");
+
+        TypedQuery<T> query = getQuery(null, pageable);
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize());
+
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable, total);
+    }
+
+    /**
+     * Returns all entities sorted by the given {@link Sort} as a single-use {@link Iterable} that reads from a
+     * forward-only cursor while it is being iterated. Rows are read in chunks of {@code clearInterval} entities, the
+     * given {@link FetchPlan} is applied to each chunk and the persistence context is cleared before the next one is
+     * read, so only a bounded number of entities is managed at any time. Falls back to {@link #findAll(Sort)} if no
+     * {@link EntityManager} is bound to the current thread, as the cursor could not outlive the handler method then.
+     *
+     * @param sort          must not be {@literal null}.
+     * @param fetchPlan     must not be {@literal null}.
+     * @param fetchSize     the JDBC fetch size to use for the cursor.
+     * @param clearInterval the number of rows after which the persistence context is cleared.
+     * @return
+     */
+    Iterable<T> streamAll(Sort sort, FetchPlan fetchPlan, int fetchSize, int clearInterval) {
+
+        Assert.notNull(sort, "Sort must not be null!");
+        Assert.notNull(fetchPlan, "FetchPlan must not be null!");
+        Assert.isTrue(clearInterval > 0, "Clear interval must be greater than zero!");
+
+        if (EntityManagerFactoryUtils.getTransactionalEntityManager(entityManager.getEntityManagerFactory()) == null) {
+
+            List<T> all = findAll(sort);
+            fetchPlan.apply(all);
+
+            return all;
+        }
+
+        return new StreamingIterable<>(() -> {
+
+            TypedQuery<T> query = getQuery(null, sort);
+            query.setHint(HINT_FETCH_SIZE, fetchSize);
+
+            return query.getResultStream();
+
+        }, fetchPlan, entityManager, clearInterval);
+    }
+
+    /**
+     * Returns the page of at most {@code size} entities following the given {@link KeysetCursor} in the given
+     * {@link Sort} order. Rather than skipping rows with an offset, the query continues right after the position of the
+     * cursor, i.e. {@code WHERE id > ? ORDER BY id LIMIT ?} for the default sort, so every page costs the same no matter
+     * how deep it is. The identifier is appended to the sort as tie-breaker to make the order total. {@literal null}
+     * values sort last unless the {@link Sort.Order} asks for {@link Sort.NullHandling#NULLS_FIRST}.
+     *
+     * @param cursor the position to continue from, {@literal null} to read the first page.
+     * @param sort   must not be {@literal null}.
+     * @param size   the maximum number of entities to return.
+     * @return
+     */
+    KeysetSlice<T> findAllAfter(@Nullable String cursor, Sort sort, int size) {
+
+        Assert.notNull(sort, "Sort must not be null!");
+        Assert.isTrue(size > 0, "Size must be greater than zero!");
+
+        Sort keyset = withIdentifier(sort);
+        KeysetCursor position = KeysetCursor.decode(cursor, keyset);
+
+        TypedQuery<T> query = getQuery(inKeysetOrder(position, keyset), Sort.unsorted());
+        query.setMaxResults(size + 1);
+
+        List<T> rows = query.getResultList();
+
+        if (rows.size() <= size) {
+            return new KeysetSlice<>(rows, size, null);
+        }
+
+        List<T> content = rows.subList(0, size);
+
+        BeanWrapper last = PropertyAccessorFactory.forBeanPropertyAccess(content.get(size - 1));
+
+        return new KeysetSlice<>(content, size, positionOf(last::getPropertyValue, keyset).encode());
+    }
+
+    /**
+     * Returns the given {@link SparseFieldset} of the rows {@link #findSlice(Pageable)} would return.
+     *
+     * @param fields   must not be {@literal null}.
+     * @param pageable must not be {@literal null}.
+     * @return
+     */
+    Slice<Map<String, Object>> findSlice(SparseFieldset fields, Pageable pageable) {
+
+        Assert.isTrue(pageable.isPaged(), "Pageable must be paged!");
+
+        TypedQuery<Tuple> query = getProjectionQuery(fields, Collections.emptyList(), null, pageable.getSort());
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize() + 1);
+
+        List<Map<String, Object>> rows = toMaps(fields, query.getResultList());
+        boolean hasNext = rows.size() > pageable.getPageSize();
+
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    /**
+     * Returns the given {@link SparseFieldset} of the rows {@link #findAll(Pageable, LongSupplier)} would return.
+     *
+     * @param fields   must not be {@literal null}.
+     * @param pageable must not be {@literal null}.
+     * @param total    must not be {@literal null}.
+     * @return
+     */
+    Page<Map<String, Object>> findAll(SparseFieldset fields, Pageable pageable, LongSupplier total) {
+
+        Assert.isTrue(pageable.isPaged(), "Pageable must be paged!");
+        Assert.notNull(total, "Total supplier must not be null!");
+
+        TypedQuery<Tuple> query = getProjectionQuery(fields, Collections.emptyList(), null, pageable.getSort());
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize());
+
+        return PageableExecutionUtils.getPage(toMaps(fields, query.getResultList()), pageable, total);
+    }
+
+    /**
+     * Returns the given {@link SparseFieldset} of all rows sorted by the given {@link Sort}.
+     *
+     * @param fields must not be {@literal null}.
+     * @param sort   must not be {@literal null}.
+     * @return
+     */
+    List<Map<String, Object>> findAll(SparseFieldset fields, Sort sort) {
+        return toMaps(fields, getProjectionQuery(fields, Collections.emptyList(), null, sort).getResultList());
+    }
+
+    /**
+     * Returns the given {@link SparseFieldset} of all rows like {@link #streamAll(Sort, FetchPlan, int, int)}, read from
+     * a forward-only cursor while the result is iterated.
+     *
+     * @param fields        must not be {@literal null}.
+     * @param sort          must not be {@literal null}.
+     * @param fetchSize     the JDBC fetch size to use for the cursor.
+     * @param clearInterval the number of rows read at once.
+     * @return
+     */
+    Iterable<Map<String, Object>> streamAll(SparseFieldset fields, Sort sort, int fetchSize, int clearInterval) {
+
+        Assert.notNull(sort, "Sort must not be null!");
+        Assert.isTrue(clearInterval > 0, "Clear interval must be greater than zero!");
+
+        if (EntityManagerFactoryUtils.getTransactionalEntityManager(entityManager.getEntityManagerFactory()) == null) {
+            return findAll(fields, sort);
+        }
+
+        return new StreamingIterable<>(() -> {
+
+            TypedQuery<Tuple> query = getProjectionQuery(fields, Collections.emptyList(), null, sort);
+            query.setHint(HINT_FETCH_SIZE, fetchSize);
+
+            return query.getResultStream().map(fields::toMap);
+
+        }, FetchPlan.NONE, entityManager, clearInterval);
+    }
+
+    /**
+     * Returns the given {@link SparseFieldset} of the rows {@link #findAllAfter(String, Sort, int)} would return. The
+     * sort properties are selected in addition to the requested fields to compute the cursor of the next page.
+     *
+     * @param fields must not be {@literal null}.
+     * @param cursor the position to continue from, {@literal null} to read the first page.
+     * @param sort   must not be {@literal null}.
+     * @param size   the maximum number of rows to return.
+     * @return
+     */
+    KeysetSlice<Map<String, Object>> findAllAfter(SparseFieldset fields, @Nullable String cursor, Sort sort, int size) {
+
+        Assert.notNull(sort, "Sort must not be null!");
+        Assert.isTrue(size > 0, "Size must be greater than zero!");
+
+        Sort keyset = withIdentifier(sort);
+        KeysetCursor position = KeysetCursor.decode(cursor, keyset);
+        List<String> properties = keyset.stream().map(Sort.Order::getProperty).collect(Collectors.toList());
+
+        TypedQuery<Tuple> query = getProjectionQuery(fields, properties, inKeysetOrder(position, keyset),
+                Sort.unsorted());
+        query.setMaxResults(size + 1);
+
+        List<Tuple> rows = query.getResultList();
+
+        if (rows.size() <= size) {
+            return new KeysetSlice<>(toMaps(fields, rows), size, null);
+        }
+
+        List<Tuple> content = rows.subList(0, size);
+        Tuple last = content.get(size - 1);
+
+        return new KeysetSlice<>(toMaps(fields, content), size,
+                positionOf(it -> last.get(fields.size() + properties.indexOf(it)), keyset).encode());
+    }
+
+    /**
+     * Returns the given {@link SparseFieldset} of the entity with the given identifier.
+     *
+     * @param fields must not be {@literal null}.
+     * @param id     must not be {@literal null}.
+     * @return
+     */
+    Optional<Map<String, Object>> findById(SparseFieldset fields, ID id) {
+
+        Assert.notNull(id, "Id must not be null!");
+
+        Specification<T> byId = (root, query, builder) -> builder.equal(
+                root.get(entityInformation.getRequiredIdAttribute()), builder.parameter(Object.class, ID_PARAMETER));
+
+        return getProjectionQuery(fields, Collections.emptyList(), byId, Sort.unsorted()) //
+                .setParameter(ID_PARAMETER, id) //
+                .getResultStream() //
+                .findFirst() //
+                .map(fields::toMap);
+    }
+
+    /**
+     * Returns the {@link SparseFieldset} of the domain type for the given comma separated list of attribute names.
+     *
+     * @param fields must not be {@literal null}.
+     * @return
+     * @throws ResponseStatusException if the list contains an attribute that cannot be selected.
+     */
+    SparseFieldset getFieldset(String fields) {
+        return SparseFieldset.parse(fields, entityManager.getMetamodel().entity(getDomainClass()));
+    }
+
+    private TypedQuery<Tuple> getProjectionQuery(SparseFieldset fields, List<String> additionalProperties,
+                                                 @Nullable Specification<T> spec, Sort sort) {
+
+        Assert.notNull(fields, "Fields must not be null!");
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<T> root = query.from(getDomainClass());
+
+        List<Selection<?>> selections = new ArrayList<>(fields.select(root));
+        additionalProperties.forEach(it -> selections.add(getPath(root, it)));
+        query.multiselect(selections);
+
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, builder);
+
+        if (predicate != null) {
+            query.where(predicate);
+        }
+
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, builder));
+        }
+
+        return entityManager.createQuery(query);
+    }
+
+    private static List<Map<String, Object>> toMaps(SparseFieldset fields, List<Tuple> tuples) {
+        return tuples.stream().map(fields::toMap).collect(Collectors.toList());
+    }
+
+    /**
+     * Saves all given entities, flushing and clearing the persistence context after every JDBC batch so the inserts are
+     * sent as batched statements and the context doesn't grow with the number of entities. Must be called within a
+     * transaction.
+     *
+     * @param entities must not be {@literal null}.
+     * @return the saved entities in the given order.
+     */
+    List<T> saveAllBatched(List<T> entities) {
+
+        Assert.notNull(entities, "Entities must not be null!");
+
+        int batchSize = getBatchSize();
+        List<T> result = new ArrayList<>(entities.size());
+
+        for (T entity : entities) {
+
+            if (entityInformation.isNew(entity)) {
+                entityManager.persist(entity);
+                result.add(entity);
+            } else {
+                result.add(entityManager.merge(entity));
+            }
+
+            if (result.size() % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+
+        entityManager.flush();
+
+        return result;
+    }
+
+    /**
+     * Deletes the given entity and the entities of its cascaded collections with bulk statements instead of loading
+     * and removing them one by one, unless remove callbacks have to be invoked for them. Pending changes are flushed
+     * before and the persistence context is cleared afterwards, as it might still hold the deleted entities. Must be
+     * called within a transaction.
+     *
+     * @param entity must not be {@literal null}.
+     * @return whether the entity existed.
+     * @throws org.springframework.orm.ObjectOptimisticLockingFailureException if the entity was modified concurrently.
+     * @see CascadingBulkDelete
+     */
+    boolean deleteInBulk(T entity) {
+
+        Assert.notNull(entity, "Entity must not be null!");
+
+        CascadingBulkDelete bulkDelete = new CascadingBulkDelete(entityManager);
+
+        if (!bulkDelete.isApplicable(getDomainClass())) {
+
+            delete(entity);
+
+            return true;
+        }
+
+        entityManager.flush();
+
+        int deleted = bulkDelete.delete(entity);
+
+        entityManager.clear();
+
+        return deleted > 0;
+    }
+
+    /**
+     * Returns a new, transient instance of the domain type that only carries the identifier, the version and the
+     * {@link LastModifiedDate} of the entity with the given identifier. These are read with a projection query, so
+     * neither the entity nor any of its associations are loaded. The instance is meant to compute {@code ETag} and
+     * {@code Last-Modified} headers and must never be saved.
+     *
+     * @param id must not be {@literal null}.
+     * @return
+     */
+    Optional<T> findValidatorsById(ID id) {
+
+        Assert.notNull(id, "Id must not be null!");
+
+        List<SingularAttribute<? super T, ?>> attributes = getValidatorAttributes();
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<T> root = query.from(getDomainClass());
+
+        query.multiselect(attributes.stream().map(it -> root.get(it).alias(it.getName())).collect(Collectors.toList()));
+        ParameterExpression<Object> parameter = builder.parameter(Object.class);
+        query.where(builder.equal(root.get(entityInformation.getRequiredIdAttribute()), parameter));
+
+        return entityManager.createQuery(query).setParameter(parameter, id).getResultStream().findFirst().map(tuple -> {
+
+            T validators = BeanUtils.instantiateClass(getDomainClass());
+            PropertyAccessor accessor = PropertyAccessorFactory.forDirectFieldAccess(validators);
+
+            attributes.forEach(it -> accessor.setPropertyValue(it.getName(), tuple.get(it.getName())));
+
+            return validators;
+        });
+    }
+
+    /**
+     * Returns the {@link EmbeddedVersions} of the entities the given {@link FetchPlan} embeds into the entity with the
+     * given identifier. They are read level by level with a projection query per association of the plan, joining it
+     * from the entities reached so far, so no entity is loaded and the number of queries depends on the plan only.
+     *
+     * @param id        must not be {@literal null}.
+     * @param fetchPlan must not be {@literal null}.
+     * @return
+     */
+    EmbeddedVersions findEmbeddedVersionsById(ID id, FetchPlan fetchPlan) {
+
+        Assert.notNull(id, "Id must not be null!");
+        Assert.notNull(fetchPlan, "FetchPlan must not be null!");
+
+        EmbeddedVersions.Builder builder = EmbeddedVersions.builder();
+        readVersions(entityManager.getMetamodel().entity(getDomainClass()), Collections.singleton(id), fetchPlan,
+                builder);
+
+        return builder.build();
+    }
+
+    /**
+     * Returns the {@link EmbeddedVersions} of the entities the given {@link FetchPlan} embeds into the given entity,
+     * taken from the embedded entities themselves, so they match the rendered ones. The plan must have been applied to
+     * the entity.
+     *
+     * @param entity    must not be {@literal null}.
+     * @param fetchPlan must not be {@literal null}.
+     * @return
+     */
+    EmbeddedVersions getEmbeddedVersions(T entity, FetchPlan fetchPlan) {
+
+        Assert.notNull(entity, "Entity must not be null!");
+        Assert.notNull(fetchPlan, "FetchPlan must not be null!");
+
+        EmbeddedVersions.Builder builder = EmbeddedVersions.builder();
+        collectVersions(entityManager.getMetamodel().entity(getDomainClass()), Collections.singletonList(entity),
+                fetchPlan, builder);
+
+        return builder.build();
+    }
+
+    private void readVersions(EntityType<?> type, Collection<?> ids, FetchPlan fetchPlan,
+                              EmbeddedVersions.Builder builder) {
+
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        String idAttribute = getIdAttribute(type).getName();
+
+        fetchPlan.getAttributes().forEach((name, plan) -> {
+
+            EntityType<?> target = getTargetType(type.getAttribute(name));
+
+            if (target == null) {
+                return;
+            }
+
+            List<SingularAttribute<?, ?>> attributes = getValidatorAttributes(target);
+
+            CriteriaQuery<Tuple> query = entityManager.getCriteriaBuilder().createTupleQuery();
+            Root<?> root = query.from(type);
+            Join<?, ?> join = root.join(name);
+
+            query.multiselect(attributes.stream().map(it -> join.get(it.getName()).alias(it.getName()))
+                    .collect(Collectors.toList()));
+            query.where(root.get(idAttribute).in(ids));
+
+            Set<Object> targetIds = new LinkedHashSet<>();
+
+            for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+                targetIds.add(addVersion(builder, target, attributes, tuple::get));
+            }
+
+            readVersions(target, targetIds, plan, builder);
+        });
+    }
+
+    private void collectVersions(EntityType<?> type, List<?> entities, FetchPlan fetchPlan,
+                                 EmbeddedVersions.Builder builder) {
+
+        if (entities.isEmpty()) {
+            return;
+        }
+
+        fetchPlan.getAttributes().forEach((name, plan) -> {
+
+            EntityType<?> target = getTargetType(type.getAttribute(name));
+
+            if (target == null) {
+                return;
+            }
+
+            List<SingularAttribute<?, ?>> attributes = getValidatorAttributes(target);
+            List<Object> targets = new ArrayList<>();
+
+            for (Object entity : entities) {
+
+                Object value = PropertyAccessorFactory.forBeanPropertyAccess(entity).getPropertyValue(name);
+
+                if (value instanceof Collection) {
+                    ((Collection<?>) value).forEach(it -> targets.add(Hibernate.unproxy(it)));
+                } else if (value != null) {
+                    targets.add(Hibernate.unproxy(value));
+                }
+            }
+
+            for (Object it : targets) {
+                addVersion(builder, target, attributes,
+                        PropertyAccessorFactory.forDirectFieldAccess(it)::getPropertyValue);
+            }
+
+            collectVersions(target, targets, plan, builder);
+        });
+    }
+
+    /**
+     * Adds the version of an embedded entity of the given type, whose validator attributes are read from the given
+     * function, and returns its identifier.
+     */
+    private static Object addVersion(EmbeddedVersions.Builder builder, EntityType<?> type,
+                                     List<SingularAttribute<?, ?>> attributes, Function<String, Object> values) {
+
+        Object id = null;
+        Object version = null;
+        Object lastModified = null;
+
+        for (SingularAttribute<?, ?> attribute : attributes) {
+
+            Object value = values.apply(attribute.getName());
+
+            if (attribute.isId()) {
+                id = value;
+            } else if (attribute.isVersion()) {
+                version = value;
+            } else {
+                lastModified = value;
+            }
+        }
+
+        builder.add(type.getName(), id, version, lastModified);
+
+        return id;
+    }
+
+    /**
+     * Returns the entity type an association points to, or {@literal null} if the attribute is no association.
+     */
+    @Nullable
+    private EntityType<?> getTargetType(Attribute<?, ?> attribute) {
+
+        if (!attribute.isAssociation()) {
+            return null;
+        }
+
+        Class<?> type = attribute instanceof PluralAttribute //
+                ? ((PluralAttribute<?, ?, ?>) attribute).getElementType().getJavaType() //
+                : attribute.getJavaType();
+
+        return entityManager.getMetamodel().entity(type);
+    }
+
+    private List<SingularAttribute<? super T, ?>> getValidatorAttributes() {
+
+        List<SingularAttribute<? super T, ?>> attributes = validatorAttributes;
+
+        if (attributes == null) {
+
+            attributes = entityManager.getMetamodel().entity(getDomainClass()).getSingularAttributes().stream() //
+                    .filter(it -> it.isId() || it.isVersion() || isLastModifiedDate(it)) //
+                    .collect(Collectors.toList());
+
+            validatorAttributes = attributes;
+        }
+
+        return attributes;
+    }
+
+    private static List<SingularAttribute<?, ?>> getValidatorAttributes(EntityType<?> type) {
+
+        return type.getSingularAttributes().stream() //
+                .filter(it -> it.isId() || it.isVersion() || isLastModifiedDate(it)) //
+                .collect(Collectors.toList());
+    }
+
+    private static SingularAttribute<?, ?> getIdAttribute(EntityType<?> type) {
+
+        return type.getSingularAttributes().stream() //
+                .filter(SingularAttribute::isId) //
+                .findFirst() //
+                .orElseThrow(() -> new IllegalStateException(String.format("No id attribute in %s!", type.getName())));
+    }
+
+    private static boolean isLastModifiedDate(SingularAttribute<?, ?> attribute) {
+
+        Member member = attribute.getJavaMember();
+
+        return member instanceof AnnotatedElement
+                && ((AnnotatedElement) member).isAnnotationPresent(LastModifiedDate.class);
+    }
+
+    /**
+     * Returns the identifier type of the domain type.
+     *
+     * @return
+     */
+    Class<?> getIdType() {
+        return entityInformation.getIdType();
+    }
+
+    /**
+     * Returns the {@link FetchPlan} of the named entity graph {@code <entity name>.<name>} of the domain type. Without a
+     * name, the plan of the graph {@code <entity name>.default} is returned if the domain type declares one, and
+     * {@link FetchPlan#NONE} otherwise.
+     *
+     * @param name the name of the plan, may be {@literal null}.
+     * @return
+     * @throws ResponseStatusException if no graph with the given name is declared.
+     */
+    FetchPlan getFetchPlan(@Nullable String name) {
+
+        String graphName = entityInformation.getEntityName() + "." + (name == null ? DEFAULT_FETCH_PLAN : name);
+
+        Optional<FetchPlan> fetchPlan = entityManager.getEntityGraphs(getDomainClass()).stream() //
+                .filter(it -> graphName.equals(it.getName())) //
+                .findFirst() //
+                .map(FetchPlan::of);
+
+        if (name == null) {
+            return fetchPlan.orElse(FetchPlan.NONE);
+        }
+
+        return fetchPlan.orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                String.format("Unknown fetch plan %s!", name)));
+    }
+
+    private int getBatchSize() {
+
+        Object batchSize = entityManager.getEntityManagerFactory().getProperties().get(BATCH_SIZE_PROPERTY);
+
+        return batchSize == null ? DEFAULT_BATCH_SIZE : Math.max(1, Integer.parseInt(batchSize.toString()));
+    }
+
+    private Sort withIdentifier(Sort sort) {
+
+        String idAttribute = entityInformation.getRequiredIdAttribute().getName();
+
+        return sort.getOrderFor(idAttribute) != null ? sort : sort.and(Sort.by(idAttribute));
+    }
+
+    private static KeysetCursor positionOf(Function<String, Object> accessor, Sort keyset) {
+
+        Map<String, Object> values = new LinkedHashMap<>();
+
+        for (Sort.Order order : keyset) {
+            values.put(order.getProperty(), accessor.apply(order.getProperty()));
+        }
+
+        return KeysetCursor.of(values);
+    }
+
+    /**
+     * Returns a {@link Specification} ordering the rows by the given keyset and, if a position is given, selecting the
+     * ones sorting after it. The order is applied here rather than through the query's {@link Sort}, as that cannot
+     * say where {@literal null} values go.
+     *
+     * @param position can be {@literal null}.
+     * @param keyset   must not be {@literal null}.
+     * @return
+     */
+    private static <T> Specification<T> inKeysetOrder(@Nullable KeysetCursor position, Sort keyset) {
+
+        return (root, query, builder) -> {
+
+            List<javax.persistence.criteria.Order> orders = new ArrayList<>();
+
+            for (Sort.Order order : keyset) {
+
+                Path<?> path = getPath(root, order.getProperty());
+
+                if (isNullable(path)) {
+
+                    // Rank nulls by a leading expression, as not every database supports NULLS FIRST / LAST
+                    Expression<Integer> rank = builder.<Integer> selectCase() //
+                            .when(builder.isNull(path), nullsFirst(order) ? 0 : 1) //
+                            .otherwise(nullsFirst(order) ? 1 : 0);
+
+                    orders.add(builder.asc(rank));
+                }
+
+                orders.add(order.isAscending() ? builder.asc(path) : builder.desc(path));
+            }
+
+            query.orderBy(orders);
+
+            return position == null ? null //
+                    : ResourceJpaRepository.<T> after(position, keyset).toPredicate(root, query, builder);
+        };
+    }
+
+    /**
+     * Returns a {@link Specification} selecting all rows sorting after the given position, i.e. for properties
+     * {@code a, b} in ascending order {@code a > :a or (a = :a and b > :b)}. Rows with a {@literal null} value sort
+     * after all others unless the {@link Sort.Order} asks for {@link Sort.NullHandling#NULLS_FIRST}, so
+     * {@code a > :a} reads {@code a > :a or a is null} for a non-null {@code :a}, and matches no row for a
+     * {@literal null} one.
+     *
+     * @param position must not be {@literal null}.
+     * @param keyset   must not be {@literal null}.
+     * @return
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static <T> Specification<T> after(KeysetCursor position, Sort keyset) {
+
+        return (root, query, builder) -> {
+
+            List<Predicate> alternatives = new ArrayList<>();
+            List<Predicate> equalities = new ArrayList<>();
+
+            for (Sort.Order order : keyset) {
+
+                Expression<Comparable> path = (Expression<Comparable>) getPath(root, order.getProperty());
+                Comparable value = position.getValue(order.getProperty(), path.getJavaType());
+                Predicate following = null;
+
+                if (value != null) {
+
+                    following = order.isAscending() ? builder.greaterThan(path, value) : builder.lessThan(path, value);
+
+                    if (!nullsFirst(order)) {
+                        following = builder.or(following, builder.isNull(path));
+                    }
+
+                } else if (nullsFirst(order)) {
+                    following = builder.isNotNull(path);
+                }
+
+                if (following != null) {
+
+                    List<Predicate> alternative = new ArrayList<>(equalities);
+                    alternative.add(following);
+
+                    alternatives.add(and(builder, alternative));
+                }
+
+                equalities.add(value == null ? builder.isNull(path) : builder.equal(path, value));
+            }
+
+            return alternatives.isEmpty() ? builder.disjunction() : builder.or(alternatives.toArray(new Predicate[0]));
+        };
+    }
+
+    private static boolean nullsFirst(Sort.Order order) {
+        return order.getNullHandling() == Sort.NullHandling.NULLS_FIRST;
+    }
+
+    private static boolean isNullable(Path<?> path) {
+
+        return !(path.getModel() instanceof SingularAttribute) //
+                || ((SingularAttribute<?, ?>) path.getModel()).isOptional();
+    }
+
+    private static Path<?> getPath(Root<?> root, String property) {
+
+        Path<?> path = root;
+
+        for (String segment : property.split("\\.")) {
+            path = path.get(segment);
+        }
+
+        return path;
+    }
+
+    private static boolean isCacheable(Class<?> domainClass) {
+
+        Cacheable cacheable = domainClass.getAnnotation(Cacheable.class);
+
+        return cacheable != null && cacheable.value();
+    }
+
+    private static Predicate and(CriteriaBuilder builder, List<Predicate> predicates) {
+        return predicates.size() == 1 ? predicates.get(0) : builder.and(predicates.toArray(new Predicate[0]));
+    }
+
+    /**
+     * {@link Iterable} opening the underlying {@link Stream} lazily on {@link #iterator()}, reading it in chunks and
+     * closing it once it is exhausted.
+     *
+     * @param <T>
+     */
+    private static class StreamingIterable<T> implements Iterable<T> {
+
+        private final Supplier<Stream<T>> stream;
+        private final FetchPlan fetchPlan;
+        private final EntityManager entityManager;
+        private final int clearInterval;
+        private boolean consumed;
+
+        StreamingIterable(Supplier<Stream<T>> stream, FetchPlan fetchPlan, EntityManager entityManager,
+                          int clearInterval) {
+
+            this.stream = stream;
+            this.fetchPlan = fetchPlan;
+            this.entityManager = entityManager;
+            this.clearInterval = clearInterval;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Iterable#iterator()
+         */
+        @Override
+        public Iterator<T> iterator() {
+
+            Assert.state(!consumed, "Streaming results can only be iterated once!");
+
+            consumed = true;
+
+            Stream<T> source = stream.get();
+            Iterator<T> delegate = source.iterator();
+
+            return new Iterator<T>() {
+
+                private Iterator<T> chunk = Collections.emptyIterator();
+                private boolean started;
+                private boolean closed;
+
+                @Override
+                public boolean hasNext() {
+
+                    if (chunk.hasNext()) {
+                        return true;
+                    }
+
+                    if (closed) {
+                        return false;
+                    }
+
+                    // Advancing the cursor hydrates the next row, so previous rows have to be detached first
+                    if (started) {
+                        entityManager.clear();
+                    }
+
+                    started = true;
+
+                    List<T> rows = new ArrayList<>(clearInterval);
+
+                    while (rows.size() < clearInterval && delegate.hasNext()) {
+                        rows.add(delegate.next());
+                    }
+
+                    if (rows.isEmpty()) {
+                        source.close();
+                        closed = true;
+                        return false;
+                    }
+
+                    fetchPlan.apply(rows);
+                    chunk = rows.iterator();
+
+                    return true;
+                }
+
+                @Override
+                public T next() {
+
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    return chunk.next();
+                }
+            };
+        }
+    }
+}
@@ -34,10 +34,26 @@ public class ResourceStatus {
 
     public StatusAndHeaders getStatusAndHeaders(HttpHeaders requestHeaders, Object domainObject,
                                                 PersistentEntity<?, ?> entity) {
+        return getStatusAndHeaders(requestHeaders, domainObject, entity, EmbeddedVersions.NONE);
+    }
+
+    /**
+     * Returns the status and headers for a body embedding entities of the given {@link EmbeddedVersions} along with the
+     * given domain object, so it's only considered unmodified if none of these entities was modified either.
+     *
+     * @param requestHeaders must not be {@literal null}.
+     * @param domainObject   must not be {@literal null}.
+     * @param entity         must not be {@literal null}.
+     * @param embedded       must not be {@literal null}.
+     * @return
+     */
+    StatusAndHeaders getStatusAndHeaders(HttpHeaders requestHeaders, Object domainObject,
+                                         PersistentEntity<?, ?> entity, EmbeddedVersions embedded) {
 
         Assert.notNull(requestHeaders, "Request headers must not be null!");
         Assert.notNull(domainObject, "Domain object must not be null!");
         Assert.notNull(entity, "PersistentEntity must not be null!");
+        Assert.notNull(embedded, "EmbeddedVersions must not be null!");
         Assert.isTrue(entity.getType().isInstance(domainObject),
                 () -> String.format(INVALID_DOMAIN_OBJECT, domainObject, entity.getType()));
 
@@ -45,15 +61,29 @@ public class ResourceStatus {
 
         List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
         ETag eTag = ifNoneMatch.isEmpty() ? ETag.NO_ETAG : ETag.from(ifNoneMatch.get(0));
-        HttpHeaders responseHeaders = preparer.prepareHeaders(entity, domainObject);
+        HttpHeaders responseHeaders = embedded.addTo(preparer.prepareHeaders(entity, domainObject));
 
         // Check last modification for If-Modified-Since
 
-        return eTag.matches(entity, domainObject) || preparer.isObjectStillValid(domainObject, requestHeaders)
+        return matches(eTag, responseHeaders) || isStillValid(responseHeaders, requestHeaders)
                 ? StatusAndHeaders.notModified(responseHeaders)
                 : StatusAndHeaders.modified(responseHeaders);
     }
 
+    private static boolean matches(ETag eTag, HttpHeaders responseHeaders) {
+
+        String current = responseHeaders.getETag();
+
+        return !ETag.NO_ETAG.equals(eTag) && current != null && eTag.equals(ETag.from(current));
+    }
+
+    private static boolean isStillValid(HttpHeaders responseHeaders, HttpHeaders requestHeaders) {
+
+        long lastModified = responseHeaders.getLastModified();
+
+        return lastModified != -1 && lastModified <= requestHeaders.getIfModifiedSince();
+    }
+
     public static class StatusAndHeaders {
 
         private final HttpHeaders headers;
@@ -71,6 +101,10 @@ public class ResourceStatus {
             return this.modified;
         }
 
+        HttpHeaders getHeaders() {
+            return this.headers;
+        }
+
         private static StatusAndHeaders notModified(HttpHeaders headers) {
             return new StatusAndHeaders(headers, false);
         }
@@ -0,0 +1,143 @@
+package com.datarest.demo.web;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.persistence.Tuple;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.Attribute.PersistentAttributeType;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The attributes of a domain type requested with the {@code fields} parameter. They are selected with a tuple query, so
+ * only their columns are read, and every row is rendered as a map of the requested attributes in the requested order.
+ * Basic and embedded attributes are selected as they are, many-to-one associations as their identifier, which is read
+ * from the foreign key column without joining the associated table. Collections cannot be part of a single row and are
+ * rejected, just like attributes the domain type doesn't declare.
+ */
+class SparseFieldset {
+
+    private final List<SingularAttribute<?, ?>> attributes;
+
+    private SparseFieldset(List<SingularAttribute<?, ?>> attributes) {
+        this.attributes = attributes;
+    }
+
+    /**
+     * Parses the given comma separated list of attribute names against the given {@link EntityType}.
+     *
+     * @param fields must not be {@literal null}.
+     * @param type   must not be {@literal null}.
+     * @return
+     * @throws ResponseStatusException if the list is empty or contains an attribute that cannot be selected.
+     */
+    static SparseFieldset parse(String fields, EntityType<?> type) {
+
+        Assert.notNull(fields, "Fields must not be null!");
+        Assert.notNull(type, "EntityType must not be null!");
+
+        Map<String, SingularAttribute<?, ?>> attributes = new LinkedHashMap<>();
+
+        for (String field : StringUtils.commaDelimitedListToStringArray(fields)) {
+
+            String name = field.trim();
+            SingularAttribute<?, ?> attribute = type.getSingularAttributes().stream() //
+                    .filter(it -> it.getName().equals(name)) //
+                    .findFirst() //
+                    .filter(SparseFieldset::isSelectable) //
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                            String.format("Unknown field %s of %s!", name, type.getName())));
+
+            attributes.putIfAbsent(name, attribute);
+        }
+
+        if (attributes.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No fields given!");
+        }
+
+        return new SparseFieldset(new ArrayList<>(attributes.values()));
+    }
+
+    /**
+     * Returns the selections of the requested attributes, in the order they were requested.
+     *
+     * @param root must not be {@literal null}.
+     * @return
+     */
+    List<Selection<?>> select(Root<?> root) {
+
+        List<Selection<?>> selections = new ArrayList<>(attributes.size());
+
+        for (SingularAttribute<?, ?> attribute : attributes) {
+
+            Path<?> path = root.get(attribute.getName());
+
+            selections.add(isAssociation(attribute) ? path.get(getIdAttribute(attribute).getName()) : path);
+        }
+
+        return selections;
+    }
+
+    /**
+     * Returns the requested attributes of the given {@link Tuple}, selected with {@link #select(Root)} as its first
+     * elements, as a map. Associations are rendered as a map carrying the identifier only.
+     *
+     * @param tuple must not be {@literal null}.
+     * @return
+     */
+    Map<String, Object> toMap(Tuple tuple) {
+
+        Map<String, Object> row = new LinkedHashMap<>();
+
+        for (int i = 0; i < attributes.size(); i++) {
+
+            SingularAttribute<?, ?> attribute = attributes.get(i);
+            Object value = tuple.get(i);
+
+            row.put(attribute.getName(), isAssociation(attribute) && value != null //
+                    ? Collections.singletonMap(getIdAttribute(attribute).getName(), value) //
+                    : value);
+        }
+
+        return row;
+    }
+
+    /**
+     * Returns the number of selections made by {@link #select(Root)}.
+     *
+     * @return
+     */
+    int size() {
+        return attributes.size();
+    }
+
+    private static boolean isSelectable(SingularAttribute<?, ?> attribute) {
+
+        PersistentAttributeType type = attribute.getPersistentAttributeType();
+
+        return type == PersistentAttributeType.BASIC
+                || type == PersistentAttributeType.EMBEDDED
+                || type == PersistentAttributeType.MANY_TO_ONE;
+    }
+
+    private static boolean isAssociation(SingularAttribute<?, ?> attribute) {
+        return attribute.getPersistentAttributeType() == PersistentAttributeType.MANY_TO_ONE;
+    }
+
+    private static SingularAttribute<?, ?> getIdAttribute(SingularAttribute<?, ?> association) {
+
+        EntityType<?> target = (EntityType<?>) association.getType();
+
+        return target.getId(target.getIdType().getJavaType());
+    }
+}
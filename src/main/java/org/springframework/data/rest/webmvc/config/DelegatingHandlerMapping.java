@@ -13,14 +13,31 @@ import org.springframework.web.servlet.handler.MatchableHandlerMapping;
 import org.springframework.web.servlet.handler.RequestMatchResult;
 import org.springframework.web.util.pattern.PathPatternParser;
 
+import org.springframework.web.util.ServletRequestPathUtils;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.DispatcherType;
 import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
+/**
+ * {@link HandlerMapping} selecting the handler of a request from a list of delegates. Requests whose first path segment
+ * is indexed, e.g. {@code /api/…}, are dispatched to the delegate registered for it directly. All others, and indexed
+ * ones the indexed delegate doesn't handle, are offered to the delegates in order. The selection is kept as request
+ * attribute, so {@link #match(HttpServletRequest, String)} reuses it rather than selecting the handler again.
+ */
 public class DelegatingHandlerMapping implements MatchableHandlerMapping, Iterable<HandlerMapping>, Ordered {
 
+    private static final String SELECTION_ATTRIBUTE = DelegatingHandlerMapping.class.getName() + ".SELECTION";
+
     private final List<HandlerMapping> delegates;
+    private final Map<String, DispatchRoute> index;
     private final @Nullable
     PathPatternParser parser;
 
@@ -30,11 +47,37 @@ public class DelegatingHandlerMapping implements MatchableHandlerMapping, Iterab
      * @param delegates must not be {@literal null}.
      */
     public DelegatingHandlerMapping(List<HandlerMapping> delegates, @Nullable PathPatternParser parser) {
+        this(delegates, Collections.emptyMap(), parser);
+    }
+
+    /**
+     * Creates a new {@link DelegatingHandlerMapping} for the given delegates, dispatching requests below the given path
+     * prefixes, e.g. {@code /api}, to the delegate registered for them first.
+     *
+     * @param delegates must not be {@literal null}.
+     * @param index     must not be {@literal null}, its delegates must be contained in the given delegates.
+     */
+    public DelegatingHandlerMapping(List<HandlerMapping> delegates, Map<String, HandlerMapping> index,
+                                    @Nullable PathPatternParser parser) {
 
         Assert.notNull(delegates, "Delegates must not be null!");
+        Assert.notNull(index, "Index must not be null!");
 
         this.delegates = delegates;
+        this.index = new HashMap<>(index.size());
         this.parser = parser;
+
+        index.forEach((prefix, delegate) -> {
+
+            Assert.isTrue(delegates.contains(delegate), () -> String.format("Unknown delegate for %s!", prefix));
+            Assert.isTrue(prefix.startsWith("/") && prefix.indexOf('/', 1) == -1,
+                    () -> String.format("Prefix %s is not a single path segment!", prefix));
+
+            List<HandlerMapping> fallback = new ArrayList<>(delegates);
+            fallback.remove(delegate);
+
+            this.index.put(prefix, new DispatchRoute(delegate, fallback));
+        });
     }
 
     /*
@@ -89,7 +132,12 @@ public class DelegatingHandlerMapping implements MatchableHandlerMapping, Iterab
      */
     @Override
     public HandlerExecutionChain getHandler(HttpServletRequest request) throws Exception {
-        return HandlerSelectionResult.from(request, delegates).resultOrException();
+
+        HandlerSelectionResult selection = select(request, getLookupPath(request));
+
+        request.setAttribute(SELECTION_ATTRIBUTE, selection);
+
+        return selection.resultOrException();
     }
 
     /*
@@ -99,25 +147,88 @@ public class DelegatingHandlerMapping implements MatchableHandlerMapping, Iterab
     @Override
     public RequestMatchResult match(HttpServletRequest request, String pattern) {
 
+        String lookupPath = getLookupPath(request);
+        Object attribute = request.getAttribute(SELECTION_ATTRIBUTE);
+
+        if (attribute instanceof HandlerSelectionResult
+                && ((HandlerSelectionResult) attribute).isSelectionFor(request, lookupPath)) {
+            return ((HandlerSelectionResult) attribute).match(request, pattern);
+        }
+
         try {
-            return HandlerSelectionResult.from(request, delegates).match(pattern);
+            return select(request, lookupPath).match(request, pattern);
         } catch (Exception o_O) {
             return null;
         }
     }
 
+    private HandlerSelectionResult select(HttpServletRequest request, String lookupPath) throws Exception {
+
+        DispatchRoute route = index.isEmpty() ? null : index.get(getFirstSegment(lookupPath));
+
+        if (route == null) {
+            return HandlerSelectionResult.from(request, lookupPath, delegates, null);
+        }
+
+        HandlerSelectionResult selection = HandlerSelectionResult.from(request, lookupPath,
+                Collections.singletonList(route.delegate), null);
+
+        return selection.hasResult() //
+                ? selection //
+                : HandlerSelectionResult.from(request, lookupPath, route.fallback, selection.ignoredException);
+    }
+
+    /**
+     * Returns the first segment of the given lookup path, including its leading slash, or {@literal null} if the path
+     * doesn't continue beyond it, as only the root resources of a prefix would be addressed then.
+     *
+     * @param lookupPath must not be {@literal null}.
+     * @return
+     */
+    @Nullable
+    private static String getFirstSegment(String lookupPath) {
+
+        int end = lookupPath.indexOf('/', 1);
+
+        return end == -1 ? null : lookupPath.substring(0, end);
+    }
+
+    private static String getLookupPath(HttpServletRequest request) {
+
+        return ServletRequestPathUtils.hasParsedRequestPath(request) //
+                ? ServletRequestPathUtils.getParsedRequestPath(request).pathWithinApplication().value() //
+                : UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+    }
+
+    /**
+     * The delegate requests below an indexed prefix are dispatched to and the remaining delegates, in order, consulted
+     * if it doesn't handle them.
+     */
+    private static class DispatchRoute {
+
+        private final HandlerMapping delegate;
+        private final List<HandlerMapping> fallback;
+
+        DispatchRoute(HandlerMapping delegate, List<HandlerMapping> fallback) {
+
+            this.delegate = delegate;
+            this.fallback = fallback;
+        }
+    }
+
     private static class HandlerSelectionResult {
 
         private final HttpServletRequest request;
+        private final String lookupPath;
+        private final DispatcherType dispatcherType;
         private final HandlerMapping mapping;
         private final HandlerExecutionChain result;
         private final Exception ignoredException;
 
-        public static HandlerSelectionResult from(HttpServletRequest request, Iterable<HandlerMapping> delegates)
+        public static HandlerSelectionResult from(HttpServletRequest request, String lookupPath,
+                                                  Iterable<HandlerMapping> delegates, @Nullable Exception ignoredException)
                 throws Exception {
 
-            Exception ignoredException = null;
-
             for (HandlerMapping delegate : delegates) {
 
                 try {
@@ -125,7 +236,7 @@ public class DelegatingHandlerMapping implements MatchableHandlerMapping, Iterab
                     HandlerExecutionChain result = delegate.getHandler(request);
 
                     if (result != null) {
-                        return HandlerSelectionResult.forResult(request, delegate, result);
+                        return HandlerSelectionResult.forResult(request, lookupPath, delegate, result);
                     }
 
                 } catch (HttpMediaTypeNotSupportedException o_O) {
@@ -139,16 +250,33 @@ public class DelegatingHandlerMapping implements MatchableHandlerMapping, Iterab
                 }
             }
 
-            return HandlerSelectionResult.withoutResult(request, ignoredException);
+            return HandlerSelectionResult.withoutResult(request, lookupPath, ignoredException);
+        }
+
+        private static HandlerSelectionResult forResult(HttpServletRequest request, String lookupPath,
+                                                        HandlerMapping delegate, HandlerExecutionChain result) {
+            return new HandlerSelectionResult(request, lookupPath, delegate, result, null);
         }
 
-        private static HandlerSelectionResult forResult(HttpServletRequest request, HandlerMapping delegate,
-                                                        HandlerExecutionChain result) {
-            return new HandlerSelectionResult(request, delegate, result, null);
+        private static HandlerSelectionResult withoutResult(HttpServletRequest request, String lookupPath,
+                                                            Exception exception) {
+            return new HandlerSelectionResult(request, lookupPath, null, null, exception);
         }
 
-        private static HandlerSelectionResult withoutResult(HttpServletRequest request, Exception exception) {
-            return new HandlerSelectionResult(request, null, null, exception);
+        public boolean hasResult() {
+            return result != null;
+        }
+
+        /**
+         * Returns whether the selection was made for the given request in its current dispatch, as request attributes
+         * outlive forwards and error dispatches to other paths.
+         *
+         * @param request    must not be {@literal null}.
+         * @param lookupPath must not be {@literal null}.
+         * @return
+         */
+        public boolean isSelectionFor(HttpServletRequest request, String lookupPath) {
+            return dispatcherType == request.getDispatcherType() && this.lookupPath.equals(lookupPath);
         }
 
         public HandlerExecutionChain resultOrException() throws Exception {
@@ -160,19 +288,22 @@ public class DelegatingHandlerMapping implements MatchableHandlerMapping, Iterab
             return result;
         }
 
-        public RequestMatchResult match(String pattern) {
+        public RequestMatchResult match(HttpServletRequest request, String pattern) {
 
             return MatchableHandlerMapping.class.isInstance(mapping) //
                     ? ((MatchableHandlerMapping) mapping).match(request, pattern) //
                     : null;
         }
 
-        public HandlerSelectionResult(HttpServletRequest request, HandlerMapping mapping, HandlerExecutionChain result,
-                                      Exception ignoredException) {
+        public HandlerSelectionResult(HttpServletRequest request, String lookupPath, HandlerMapping mapping,
+                                      HandlerExecutionChain result, Exception ignoredException) {
 
             Assert.notNull(request, "HttpServletRequest must not be null!");
+            Assert.notNull(lookupPath, "Lookup path must not be null!");
 
             this.request = request;
+            this.lookupPath = lookupPath;
+            this.dispatcherType = request.getDispatcherType();
             this.mapping = mapping;
             this.result = result;
             this.ignoredException = ignoredException;
@@ -192,6 +323,7 @@ public class DelegatingHandlerMapping implements MatchableHandlerMapping, Iterab
             HandlerSelectionResult other = (HandlerSelectionResult) o;
 
             return Objects.equals(request, other.request) //
+                    && Objects.equals(lookupPath, other.lookupPath) //
                     && Objects.equals(mapping, other.mapping) //
                     && Objects.equals(result, other.result) //
                     && Objects.equals(ignoredException, other.ignoredException);
@@ -203,7 +335,7 @@ public class DelegatingHandlerMapping implements MatchableHandlerMapping, Iterab
          */
         @Override
         public int hashCode() {
-            return Objects.hash(request, mapping, result, ignoredException);
+            return Objects.hash(request, lookupPath, mapping, result, ignoredException);
         }
 
         /*
@@ -212,7 +344,8 @@ public class DelegatingHandlerMapping implements MatchableHandlerMapping, Iterab
          */
         @Override
         public java.lang.String toString() {
-            return "DelegatingHandlerMapping.HandlerSelectionResult(request=" + request + ", mapping=" + mapping + ", result="
+            return "DelegatingHandlerMapping.HandlerSelectionResult(request=" + request + ", lookupPath=" + lookupPath
+                    + ", mapping=" + mapping + ", result="
                     + result + ", ignoredException=" + ignoredException + ")";
         }
     }
@@ -0,0 +1,70 @@
+package com.datarest.demo.dal;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ids",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.demo.id.block_size=20",
+        "spring.jpa.properties.demo.id.block_size.Customer=5"})
+class IdAllocationTests {
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void createsSequencePerEntityWithConfiguredIncrement() {
+
+        assertThat(increment("ORDER_SEQ")).isEqualTo(20);
+        assertThat(increment("CUSTOMER_SEQ")).isEqualTo(5);
+    }
+
+    @Test
+    void allocatesIdentifiersInBlocks() {
+
+        List<Order> orders = IntStream.range(0, 40) //
+                .mapToObj(it -> Order.builder().deliverDate(LocalDate.now()).orderStatus(OrderStatus.DRAFT).build()) //
+                .collect(Collectors.toList());
+
+        Iterable<Order> saved = orderRepository.saveAll(orders);
+
+        assertThat(saved).extracting(Order::getId).doesNotHaveDuplicates().hasSize(40);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(40);
+        // two or three sequence calls for blocks of 20 plus a single insert batch
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(4);
+    }
+
+    private long increment(String sequence) {
+        return jdbcTemplate.queryForObject(
+                "select increment from information_schema.sequences where sequence_name = ?", Long.class, sequence);
+    }
+}
@@ -0,0 +1,108 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.OrderRepository;
+import com.datarest.demo.dal.Product;
+import com.datarest.demo.dal.ProductRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulk",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=2",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+@AutoConfigureMockMvc
+class BulkCreateTests {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void createsAllElementsOfArray() throws Exception {
+
+        mvc.perform(post("/api/orders").contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON)
+                        .content("[{\"deliverDate\":\"2030-01-01\",\"orderStatus\":\"DRAFT\"},"
+                                + "{\"deliverDate\":\"2030-01-02\",\"orderStatus\":\"DRAFT\"},"
+                                + "{\"deliverDate\":\"2030-01-03\",\"orderStatus\":\"DRAFT\"}]"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[2].deliverDate").value("2030-01-03"));
+
+        assertThat(orderRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void insertsElementsInJdbcBatches() throws Exception {
+
+        mvc.perform(post("/api/orders").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"deliverDate\":\"2030-01-01\",\"orderStatus\":\"DRAFT\"},"
+                                + "{\"deliverDate\":\"2030-01-02\",\"orderStatus\":\"DRAFT\"},"
+                                + "{\"deliverDate\":\"2030-01-03\",\"orderStatus\":\"DRAFT\"},"
+                                + "{\"deliverDate\":\"2030-01-04\",\"orderStatus\":\"DRAFT\"}]"))
+                .andExpect(status().isCreated());
+
+        // Four inserts in batches of two, plus the sequence allocating their identifiers
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(4);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void keepsDecimalPrecisionOfElements() throws Exception {
+
+        mvc.perform(post("/api/products").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"title\":\"First\",\"price\":12345678901234567.89},"
+                                + "{\"title\":\"Second\",\"price\":15.00}]"))
+                .andExpect(status().isCreated());
+
+        assertThat(productRepository.findAll()).extracting(Product::getPrice)
+                .containsExactlyInAnyOrder(new BigDecimal("12345678901234567.89"), new BigDecimal("15.00"));
+    }
+
+    @Test
+    void createsSingleObjectAsBefore() throws Exception {
+
+        mvc.perform(post("/api/orders").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"deliverDate\":\"2030-01-01\",\"orderStatus\":\"DRAFT\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(header().exists("Location"));
+
+        assertThat(orderRepository.count()).isEqualTo(1);
+    }
+}
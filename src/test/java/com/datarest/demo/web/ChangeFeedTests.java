@@ -0,0 +1,292 @@
+package com.datarest.demo.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "demo.rest.changes.enabled=true",
+        "demo.rest.changes.threads=1",
+        "demo.rest.changes.queue-capacity=2",
+        "demo.rest.changes.write-timeout=200ms"})
+@AutoConfigureMockMvc
+class ChangeFeedTests {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Test
+    void streamsChangesOfRepository() throws Exception {
+
+        MockHttpServletResponse stream = subscribe(get("/api/customers/changes"));
+
+        String id = create("Streamed");
+
+        mvc.perform(patch("/api/customers/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Restreamed\"}"))
+                .andExpect(status().is2xxSuccessful());
+
+        mvc.perform(delete("/api/customers/{id}", id))
+                .andExpect(status().isNoContent());
+
+        List<Map<String, String>> events = await(stream, 3);
+
+        assertThat(MediaType.parseMediaType(stream.getContentType()).isCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .isTrue();
+        assertThat(events).extracting(it -> it.get("event")).containsExactly("created", "updated", "deleted");
+        assertThat(events).extracting(it -> it.get("data")).containsExactly(
+                "{\"type\":\"created\",\"id\":" + id + ",\"version\":0}",
+                "{\"type\":\"updated\",\"id\":" + id + ",\"version\":1}",
+                "{\"type\":\"deleted\",\"id\":" + id + ",\"version\":null}");
+    }
+
+    @Test
+    void streamsChangesOfGivenEntitiesOnly() throws Exception {
+
+        String watched = create("Watched");
+        String ignored = create("Ignored");
+
+        MockHttpServletResponse stream = subscribe(get("/api/customers/changes").param("id", watched));
+
+        for (String id : new String[] { ignored, watched }) {
+            mvc.perform(patch("/api/customers/{id}", id)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"name\":\"Changed\"}"))
+                    .andExpect(status().is2xxSuccessful());
+        }
+
+        List<Map<String, String>> events = await(stream, 1);
+
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).get("data")).contains("\"id\":" + watched + ",");
+    }
+
+    @Test
+    void resumesAfterLastEventId() throws Exception {
+
+        MockHttpServletResponse stream = subscribe(get("/api/customers/changes"));
+
+        create("First");
+
+        String lastEventId = await(stream, 1).get(0).get("id");
+
+        String second = create("Second");
+        String third = create("Third");
+
+        MockHttpServletResponse resumed = subscribe(get("/api/customers/changes")
+                .header("Last-Event-ID", lastEventId));
+
+        List<Map<String, String>> events = await(resumed, 2);
+
+        assertThat(events).extracting(it -> it.get("event")).containsExactly("created", "created");
+        assertThat(events.get(0).get("data")).contains("\"id\":" + second + ",");
+        assertThat(events.get(1).get("data")).contains("\"id\":" + third + ",");
+    }
+
+    @Test
+    void resetsClientsResumingFromUnknownEvent() throws Exception {
+
+        MockHttpServletResponse stream = subscribe(get("/api/customers/changes")
+                .header("Last-Event-ID", "unknown-42"));
+
+        assertThat(await(stream, 1).get(0).get("event")).isEqualTo("reset");
+    }
+
+    @Test
+    void dropsClientsNotReadingWithoutHoldingUpOthers() throws Exception {
+
+        CountDownLatch reading = new CountDownLatch(1);
+
+        try {
+
+            MockHttpServletResponse unread = subscribe(get("/api/customers/changes")
+                    .requestAttr(NonReadingClient.READING, reading));
+            MockHttpServletResponse stream = subscribe(get("/api/customers/changes"));
+
+            // The first blocks the only writer thread on the connection not read, the others overflow its queue
+            for (int i = 1; i <= 4; i++) {
+
+                create("Unread");
+
+                assertThat(await(stream, i)).hasSize(i);
+            }
+
+            reading.countDown();
+            create("Read");
+
+            assertThat(await(stream, 5)).hasSize(5);
+            assertThat(parse(unread.getContentAsString())).hasSizeLessThanOrEqualTo(1);
+
+        } finally {
+            reading.countDown();
+        }
+    }
+
+    private MockHttpServletResponse subscribe(MockHttpServletRequestBuilder request) throws Exception {
+
+        return mvc.perform(request.accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+    }
+
+    private String create(String name) throws Exception {
+
+        String location = mvc.perform(post("/api/customers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"" + name + "\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader("Location");
+
+        return location.substring(location.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Waits for the given number of events to arrive on the given stream, ignoring comments.
+     */
+    private static List<Map<String, String>> await(MockHttpServletResponse stream, int count) throws Exception {
+
+        List<Map<String, String>> events = new ArrayList<>();
+
+        for (int i = 0; i < 50; i++) {
+
+            events = parse(stream.getContentAsString());
+
+            if (events.size() >= count) {
+                return events;
+            }
+
+            Thread.sleep(100);
+        }
+
+        throw new AssertionError(String.format("Expected %s events but got %s!", count, events));
+    }
+
+    private static List<Map<String, String>> parse(String content) {
+
+        List<Map<String, String>> events = new ArrayList<>();
+
+        for (String block : content.split("\n\n")) {
+
+            Map<String, String> event = new LinkedHashMap<>();
+
+            for (String line : block.split("\n")) {
+
+                int separator = line.indexOf(':');
+
+                if (separator > 0) {
+                    event.put(line.substring(0, separator), line.substring(separator + 1));
+                }
+            }
+
+            if (!event.isEmpty()) {
+                events.add(event);
+            }
+        }
+
+        return events;
+    }
+
+    /**
+     * Blocks writes to the responses of requests carrying a {@link CountDownLatch} in {@link #READING} until it is
+     * counted down, as if their client stopped reading.
+     */
+    @TestConfiguration(proxyBeanMethods = false)
+    static class NonReadingClient extends OncePerRequestFilter {
+
+        static final String READING = NonReadingClient.class.getName() + ".READING";
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                throws ServletException, IOException {
+
+            Object reading = request.getAttribute(READING);
+
+            chain.doFilter(request, reading instanceof CountDownLatch //
+                    ? new NotRead(response, (CountDownLatch) reading) //
+                    : response);
+        }
+    }
+
+    static class NotRead extends HttpServletResponseWrapper {
+
+        private final ServletOutputStream body;
+
+        NotRead(HttpServletResponse response, CountDownLatch reading) {
+
+            super(response);
+
+            this.body = new ServletOutputStream() {
+
+                @Override
+                public void write(int b) throws IOException {
+
+                    await();
+                    response.getOutputStream().write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+
+                    await();
+                    response.getOutputStream().write(b, off, len);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return reading.getCount() == 0;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                private void await() throws InterruptedIOException {
+
+                    try {
+                        reading.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException o_O) {
+                        throw new InterruptedIOException();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Product;
+import com.datarest.demo.dal.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:coalesced",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=250",
+        "demo.rest.coalescing.repositories=products",
+        "demo.rest.coalescing.max-wait=10s"})
+@AutoConfigureMockMvc
+class CoalescedItemTests {
+
+    static final int FOLLOWERS = 4;
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @SpyBean
+    JsonRenderer renderer;
+
+    @Test
+    void waitsForReadInFlightWithoutHoldingConnection() throws Exception {
+
+        Product product = productRepository.save(Product.builder().title("Coalesced").price(BigDecimal.ONE).build());
+
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger renders = new AtomicInteger();
+
+        // The leader renders within its transaction, holding one of the two connections until released
+        doAnswer(invocation -> {
+
+            if (renders.incrementAndGet() == 1) {
+                rendering.countDown();
+                release.await(10, TimeUnit.SECONDS);
+            }
+
+            return invocation.callRealMethod();
+
+        }).when(renderer).render(any());
+
+        List<Integer> statuses = new ArrayList<>();
+        Thread leader = read(product, statuses);
+
+        assertThat(rendering.await(10, TimeUnit.SECONDS)).isTrue();
+
+        List<Thread> followers = new ArrayList<>();
+
+        for (int i = 0; i < FOLLOWERS; i++) {
+            followers.add(read(product, statuses));
+        }
+
+        for (Thread follower : followers) {
+            while (follower.getState() != Thread.State.TIMED_WAITING) {
+                Thread.sleep(1);
+            }
+        }
+
+        // Followers holding a connection while they wait would make the others time out acquiring one meanwhile
+        Thread.sleep(500);
+        release.countDown();
+
+        leader.join(10_000);
+
+        for (Thread follower : followers) {
+            follower.join(10_000);
+        }
+
+        assertThat(statuses).hasSize(FOLLOWERS + 1).containsOnly(200);
+        assertThat(renders).hasValue(1);
+    }
+
+    private Thread read(Product product, List<Integer> statuses) {
+
+        Thread thread = new Thread(() -> {
+
+            int status;
+
+            try {
+                status = mvc.perform(get("/api/products/{id}", product.getId()).accept(MediaType.APPLICATION_JSON))
+                        .andReturn().getResponse().getStatus();
+            } catch (Exception o_O) {
+                status = 500;
+            }
+
+            synchronized (statuses) {
+                statuses.add(status);
+            }
+        });
+
+        thread.start();
+
+        return thread;
+    }
+}
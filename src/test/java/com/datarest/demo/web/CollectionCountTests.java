@@ -0,0 +1,92 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Order;
+import com.datarest.demo.dal.OrderRepository;
+import com.datarest.demo.dal.OrderStatus;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:count",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "demo.rest.totals.repositories=orders"})
+@AutoConfigureMockMvc
+class CollectionCountTests {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+
+        orderRepository.deleteAll();
+
+        for (int i = 0; i < 5; i++) {
+            orderRepository.save(Order.builder().deliverDate(LocalDate.now()).orderStatus(OrderStatus.DRAFT).build());
+        }
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void preferCountNoneReturnsSliceWithoutCounting() throws Exception {
+
+        mvc.perform(get("/api/products").param("page", "0").param("size", "1").header("Prefer", "count=none"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Preference-Applied", "count=none"))
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.totalElements").doesNotExist())
+                .andExpect(jsonPath("$.last").value(true));
+
+        assertThat(countQueries()).isZero();
+    }
+
+    @Test
+    void cachedTotalIsKeptCurrentFromCreateEvents() throws Exception {
+
+        mvc.perform(get("/api/orders").param("page", "0").param("size", "2"))
+                .andExpect(header().doesNotExist("Preference-Applied"))
+                .andExpect(jsonPath("$.totalElements").value(5));
+
+        mvc.perform(post("/api/orders").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"deliverDate\":\"2030-01-01\",\"orderStatus\":\"DRAFT\"}"))
+                .andExpect(status().isCreated());
+
+        mvc.perform(get("/api/orders").param("page", "0").param("size", "2"))
+                .andExpect(jsonPath("$.totalElements").value(6));
+
+        assertThat(countQueries()).isLessThanOrEqualTo(1);
+    }
+
+    private long countQueries() {
+        return Arrays.stream(statistics.getQueries()).filter(it -> it.contains("count(")).count();
+    }
+}
@@ -0,0 +1,90 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Customer;
+import com.datarest.demo.dal.CustomerRepository;
+import com.datarest.demo.dal.Order;
+import com.datarest.demo.dal.OrderRepository;
+import com.datarest.demo.dal.OrderStatus;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:paging",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+@AutoConfigureMockMvc
+class CollectionPagingTests {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+
+        Customer customer = customerRepository.save(Customer.builder().name("Paging").build());
+
+        for (int i = 0; i < 10; i++) {
+            orderRepository.save(Order.builder()
+                    .customer(customer)
+                    .deliverDate(LocalDate.now().plusDays(i))
+                    .orderStatus(OrderStatus.DRAFT)
+                    .build());
+        }
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void pagedRequestOnlyLoadsTheRowsItReturns() throws Exception {
+
+        mvc.perform(get("/api/orders").param("page", "1").param("size", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(3)));
+
+        assertThat(statistics.getEntityStatistics(Order.class.getName()).getLoadCount()).isEqualTo(3);
+    }
+
+    @Test
+    void unpagedRequestReturnsWholeCollection() throws Exception {
+
+        mvc.perform(get("/api/orders"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize((int) orderRepository.count())));
+    }
+
+    @Test
+    void sortIsAppliedByTheDatabase() throws Exception {
+
+        mvc.perform(get("/api/orders").param("page", "0").param("size", "2").param("sort", "deliverDate,desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].deliverDate").value(LocalDate.now().plusDays(9).toString()));
+
+        assertThat(statistics.getEntityStatistics(Order.class.getName()).getLoadCount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,89 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Customer;
+import com.datarest.demo.dal.CustomerRepository;
+import com.datarest.demo.dal.Order;
+import com.datarest.demo.dal.OrderRepository;
+import com.datarest.demo.dal.OrderStatus;
+import com.datarest.demo.dal.Orderline;
+import com.datarest.demo.dal.Product;
+import com.datarest.demo.dal.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:streaming",
+        "demo.rest.streaming.enabled=true",
+        "demo.rest.streaming.clear-interval=2"})
+@AutoConfigureMockMvc
+class CollectionStreamingTests {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+
+        orderRepository.deleteAll();
+
+        Customer customer = customerRepository.save(Customer.builder().name("Streaming").build());
+        Product product = productRepository.save(Product.builder().title("Streamed").price(BigDecimal.ONE).build());
+
+        for (int i = 0; i < 7; i++) {
+            orderRepository.save(Order.builder()
+                    .customer(customer)
+                    .deliverDate(LocalDate.now().plusDays(i))
+                    .orderStatus(OrderStatus.DRAFT)
+                    .build()
+                    .add(Orderline.builder().product(product).amount(i + 1).build()));
+        }
+    }
+
+    @Test
+    void unpagedRequestStreamsAllRowsAcrossPersistenceContextClears() throws Exception {
+
+        mvc.perform(get("/api/orders"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(7)))
+                .andExpect(jsonPath("$[*].orderlines", everyItem(hasSize(1))));
+    }
+
+    @Test
+    void streamedRowsFollowTheRequestedSort() throws Exception {
+
+        mvc.perform(get("/api/orders").param("sort", "deliverDate,desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].deliverDate").value(LocalDate.now().plusDays(6).toString()));
+    }
+
+    @Test
+    void readsOtherRepresentationsAsList() throws Exception {
+
+        mvc.perform(get("/api/orders").accept(MediaTypes.HAL_FORMS_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(7)));
+    }
+}
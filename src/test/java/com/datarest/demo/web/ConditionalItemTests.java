@@ -0,0 +1,182 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Customer;
+import com.datarest.demo.dal.CustomerRepository;
+import com.datarest.demo.dal.Order;
+import com.datarest.demo.dal.OrderRepository;
+import com.datarest.demo.dal.OrderStatus;
+import com.datarest.demo.dal.Product;
+import com.datarest.demo.dal.ProductRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:conditional",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+@AutoConfigureMockMvc
+class ConditionalItemTests {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    Product product;
+
+    @BeforeEach
+    void setUp() {
+
+        product = productRepository.save(Product.builder().title("Title").price(BigDecimal.ONE).build());
+        entityManagerFactory.getCache().evictAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void answersNotModifiedForMatchingETagWithoutLoadingEntity() throws Exception {
+
+        mvc.perform(get("/api/products/{id}", product.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void answersNotModifiedIfUnmodifiedSinceWithoutLoadingEntity() throws Exception {
+
+        mvc.perform(get("/api/products/{id}", product.getId())
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, httpDate(product.getModifiedDate().plusSeconds(1))))
+                .andExpect(status().isNotModified())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED));
+
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void loadsEntityOnlyIfModified() throws Exception {
+
+        mvc.perform(get("/api/products/{id}", product.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"5\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(jsonPath("$.title").value("Title"));
+
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+    }
+
+    @Test
+    void answersHeadWithoutLoadingEntity() throws Exception {
+
+        mvc.perform(head("/api/products/{id}", product.getId()))
+                .andExpect(status().isNoContent())
+                .andExpect(header().exists(HttpHeaders.LINK))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED));
+
+        mvc.perform(head("/api/products/{id}", product.getId() + 1000)).andExpect(status().isNotFound());
+
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void updatesOnlyWithCurrentETag() throws Exception {
+
+        mvc.perform(patch("/api/products/{id}", product.getId()).header(HttpHeaders.IF_MATCH, "\"5\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"Stale\"}"))
+                .andExpect(status().isPreconditionFailed());
+
+        mvc.perform(patch("/api/products/{id}", product.getId()).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"Current\"}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+    }
+
+    @Test
+    void revalidatesEmbeddedEntities() throws Exception {
+
+        Customer customer = customerRepository.save(Customer.builder().name("Name").build());
+        Order order = orderRepository.save(Order.builder().customer(customer).deliverDate(LocalDate.now())
+                .orderStatus(OrderStatus.DRAFT).build());
+
+        String eTag = mvc.perform(get("/api/orders/{id}", order.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertThat(eTag).startsWith("\"0-");
+
+        mvc.perform(head("/api/orders/{id}", order.getId()))
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+
+        mvc.perform(get("/api/orders/{id}", order.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        mvc.perform(put("/api/customers/{id}", customer.getId())
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"Renamed\"}"))
+                .andExpect(status().is2xxSuccessful());
+
+        mvc.perform(get("/api/orders/{id}", order.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.customer.name").value("Renamed"));
+    }
+
+    @Test
+    void updatesEmbeddingEntityWithItsETag() throws Exception {
+
+        Customer customer = customerRepository.save(Customer.builder().name("Name").build());
+        Order order = orderRepository.save(Order.builder().customer(customer).deliverDate(LocalDate.now())
+                .orderStatus(OrderStatus.DRAFT).build());
+
+        String eTag = mvc.perform(get("/api/orders/{id}", order.getId()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(patch("/api/orders/{id}", order.getId()).header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"orderStatus\":\"READY_FOR_DISTRIBUTOR\"}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+
+        mvc.perform(patch("/api/orders/{id}", order.getId()).header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"orderStatus\":\"DRAFT\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    private static String httpDate(Instant instant) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(instant.atZone(ZoneOffset.UTC));
+    }
+}
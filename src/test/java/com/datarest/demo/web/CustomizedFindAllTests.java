@@ -0,0 +1,64 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.repository.support.RepositoryInvokerFactory;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs against orders as if their repository customized its find-all method, which queries of the
+ * {@link ResourceJpaRepository} must not bypass.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:customized")
+@AutoConfigureMockMvc
+class CustomizedFindAllTests {
+
+    @Autowired
+    MockMvc mvc;
+
+    @SpyBean
+    RepositoryInvokerFactory invokerFactory;
+
+    @BeforeEach
+    void setUp() {
+
+        JpaRepositoryInvoker invoker = spy((JpaRepositoryInvoker) invokerFactory.getInvokerFor(Order.class));
+
+        doReturn(true).when(invoker).customizesFindAll();
+        doReturn(invoker).when(invokerFactory).getInvokerFor(Order.class);
+    }
+
+    @Test
+    void pagesThroughRepository() throws Exception {
+
+        mvc.perform(get("/api/orders").param("page", "0").param("size", "2"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void rejectsCursor() throws Exception {
+
+        mvc.perform(get("/api/orders").param("cursor", ""))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void rejectsFields() throws Exception {
+
+        mvc.perform(get("/api/orders").param("fields", "deliverDate"))
+                .andExpect(status().isBadRequest());
+
+        mvc.perform(get("/api/orders").param("fields", "deliverDate").param("page", "0").param("size", "2"))
+                .andExpect(status().isBadRequest());
+    }
+}
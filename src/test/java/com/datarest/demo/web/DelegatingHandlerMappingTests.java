@@ -0,0 +1,123 @@
+package com.datarest.demo.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.rest.webmvc.config.DelegatingHandlerMapping;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.HttpRequestMethodNotSupportedException;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.MatchableHandlerMapping;
+import org.springframework.web.servlet.handler.RequestMatchResult;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DelegatingHandlerMappingTests {
+
+    MatchableHandlerMapping basePathMapping;
+    MatchableHandlerMapping repositoryMapping;
+    DelegatingHandlerMapping mapping;
+
+    HandlerExecutionChain basePathChain = new HandlerExecutionChain(new Object());
+    HandlerExecutionChain repositoryChain = new HandlerExecutionChain(new Object());
+
+    @BeforeEach
+    void setUp() {
+
+        basePathMapping = mock(MatchableHandlerMapping.class);
+        repositoryMapping = mock(MatchableHandlerMapping.class);
+
+        mapping = new DelegatingHandlerMapping(Arrays.asList(basePathMapping, repositoryMapping),
+                Collections.singletonMap("/api", repositoryMapping), null);
+    }
+
+    @Test
+    void dispatchesIndexedPrefixToItsDelegateOnly() throws Exception {
+
+        when(repositoryMapping.getHandler(any())).thenReturn(repositoryChain);
+
+        assertThat(mapping.getHandler(new MockHttpServletRequest("GET", "/api/orders"))).isSameAs(repositoryChain);
+
+        verify(basePathMapping, never()).getHandler(any());
+    }
+
+    @Test
+    void offersOtherRequestsToDelegatesInOrder() throws Exception {
+
+        when(basePathMapping.getHandler(any())).thenThrow(new HttpRequestMethodNotSupportedException("POST"));
+        when(repositoryMapping.getHandler(any())).thenReturn(repositoryChain);
+
+        assertThat(mapping.getHandler(new MockHttpServletRequest("GET", "/orders"))).isSameAs(repositoryChain);
+        assertThat(mapping.getHandler(new MockHttpServletRequest("GET", "/api"))).isSameAs(repositoryChain);
+    }
+
+    @Test
+    void fallsBackToOtherDelegatesIfIndexedDelegateMisses() throws Exception {
+
+        when(basePathMapping.getHandler(any())).thenReturn(basePathChain);
+
+        assertThat(mapping.getHandler(new MockHttpServletRequest("GET", "/api/unknown/search"))).isSameAs(basePathChain);
+        verify(repositoryMapping, times(1)).getHandler(any());
+    }
+
+    @Test
+    void rethrowsIgnoredExceptionIfNoDelegateHandlesRequest() throws Exception {
+
+        when(basePathMapping.getHandler(any())).thenThrow(new HttpRequestMethodNotSupportedException("POST"));
+
+        assertThatExceptionOfType(HttpRequestMethodNotSupportedException.class)
+                .isThrownBy(() -> mapping.getHandler(new MockHttpServletRequest("POST", "/profile")));
+    }
+
+    @Test
+    void matchReusesSelectionOfRequest() throws Exception {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/orders");
+        RequestMatchResult result = mock(RequestMatchResult.class);
+
+        when(repositoryMapping.getHandler(any())).thenReturn(repositoryChain);
+        when(repositoryMapping.match(request, "/api/{repository}")).thenReturn(result);
+
+        mapping.getHandler(request);
+
+        assertThat(mapping.match(request, "/api/{repository}")).isSameAs(result);
+        verify(repositoryMapping, times(1)).getHandler(any());
+    }
+
+    @Test
+    void matchSelectsAgainForOtherPath() throws Exception {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/orders");
+
+        when(repositoryMapping.getHandler(any())).thenReturn(repositoryChain);
+        when(basePathMapping.getHandler(any())).thenReturn(basePathChain);
+
+        mapping.getHandler(request);
+        request.setRequestURI("/error");
+
+        mapping.match(request, "/error");
+
+        verify(basePathMapping).match(request, "/error");
+        verify(repositoryMapping, never()).match(any(), any());
+    }
+
+    @Test
+    void rejectsIndexedDelegateNotContainedInDelegates() {
+
+        HandlerMapping unknown = mock(HandlerMapping.class);
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new DelegatingHandlerMapping(Collections.singletonList(basePathMapping),
+                        Collections.singletonMap("/api", unknown), null));
+    }
+}
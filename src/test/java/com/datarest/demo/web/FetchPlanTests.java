@@ -0,0 +1,186 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Author;
+import com.datarest.demo.dal.AuthorRepository;
+import com.datarest.demo.dal.Customer;
+import com.datarest.demo.dal.CustomerRepository;
+import com.datarest.demo.dal.Order;
+import com.datarest.demo.dal.OrderRepository;
+import com.datarest.demo.dal.OrderStatus;
+import com.datarest.demo.dal.Orderline;
+import com.datarest.demo.dal.Product;
+import com.datarest.demo.dal.ProductRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:fetchplan",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+@AutoConfigureMockMvc
+class FetchPlanTests {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    AuthorRepository authorRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Order order;
+
+    @BeforeEach
+    void setUp() {
+
+        orderRepository.deleteAll();
+
+        for (int i = 0; i < 20; i++) {
+
+            Customer customer = customerRepository.save(Customer.builder().name("Customer " + i).build());
+            Author author = authorRepository.save(Author.builder().lastName("Author " + i).build());
+            Product product = productRepository.save(Product.builder().title("Product " + i).price(BigDecimal.ONE)
+                    .author(author).build());
+
+            order = orderRepository.save(Order.builder()
+                    .customer(customer)
+                    .deliverDate(LocalDate.now().plusDays(i))
+                    .orderStatus(OrderStatus.DRAFT)
+                    .build()
+                    .add(Orderline.builder().product(product).amount(1).build())
+                    .add(Orderline.builder().product(product).amount(2).build()));
+        }
+    }
+
+    @Test
+    void pageOfOrdersIsRenderedWithConstantNumberOfQueries() throws Exception {
+
+        long small = countStatements("5");
+        long large = countStatements("20");
+
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void defaultPlanRendersOrderWithAllAssociations() throws Exception {
+
+        mvc.perform(get("/api/orders").param("size", "20").param("sort", "deliverDate"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].customer.name").value("Customer 0"))
+                .andExpect(jsonPath("$.content[0].orderlines", hasSize(2)))
+                .andExpect(jsonPath("$.content[0].orderlines[1].cost").value(2))
+                .andExpect(jsonPath("$.content[0].orderlines[0].product.author.lastName").value("Author 0"));
+    }
+
+    @Test
+    void defaultPlanRendersWrittenOrderWithAllAssociations() throws Exception {
+
+        mvc.perform(patch("/api/orders/{id}", order.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content("{\"orderStatus\":\"READY_FOR_DISTRIBUTOR\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orderStatus").value("READY_FOR_DISTRIBUTOR"))
+                .andExpect(jsonPath("$.customer.name").isString())
+                .andExpect(jsonPath("$.orderlines", hasSize(2)))
+                .andExpect(jsonPath("$.orderlines[1].cost").value(2))
+                .andExpect(jsonPath("$.orderlines[0].product.author.lastName").isString());
+
+        mvc.perform(put("/api/orders/{id}", order.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content("{\"orderStatus\":\"DRAFT\",\"deliverDate\":\"2030-01-01\","
+                                + "\"customer\":\"/api/customers/" + order.getCustomer().getId() + "\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orderStatus").value("DRAFT"))
+                .andExpect(jsonPath("$.customer.name").isString());
+    }
+
+    @Test
+    void defaultPlanRendersWrittenOrderlineWithAllAssociations() throws Exception {
+
+        Orderline orderline = order.getOrderlines().get(0);
+
+        mvc.perform(patch("/api/orderlines/{id}", orderline.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":3}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cost").value(3))
+                .andExpect(jsonPath("$.product.author.lastName").isString());
+
+        mvc.perform(put("/api/orderlines/{id}", orderline.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":4,\"product\":\"/api/products/" + orderline.getProduct().getId()
+                                + "\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cost").value(4))
+                .andExpect(jsonPath("$.product.title").isString());
+    }
+
+    @Test
+    void namedPlanRendersAssociationsOutsideOfItAsIdentifiers() throws Exception {
+
+        mvc.perform(get("/api/orders").param("size", "20").param("expand", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].customer.id").isNumber())
+                .andExpect(jsonPath("$.content[0].customer.name").doesNotExist())
+                .andExpect(jsonPath("$.content[0].orderlines").value(nullValue()));
+
+        Order order = orderRepository.findAll().iterator().next();
+
+        mvc.perform(get("/api/orders/{id}", order.getId()).param("expand", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.customer.name").doesNotExist())
+                .andExpect(jsonPath("$.orderlines").value(nullValue()));
+    }
+
+    @Test
+    void rejectsUnknownPlan() throws Exception {
+
+        mvc.perform(get("/api/orders").param("expand", "unknown"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private long countStatements(String size) throws Exception {
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mvc.perform(get("/api/orders").param("size", size))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(Integer.parseInt(size))));
+
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,141 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Order;
+import com.datarest.demo.dal.OrderRepository;
+import com.datarest.demo.dal.OrderStatus;
+import com.datarest.demo.dal.Orderline;
+import com.datarest.demo.dal.OrderlineRepository;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.repository.support.RepositoryInvokerFactory;
+import org.springframework.data.rest.core.event.AfterDeleteEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:delete",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+@AutoConfigureMockMvc
+class ItemDeleteTests {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    OrderlineRepository orderlineRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    RepositoryInvokerFactory invokerFactory;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    DeleteListener listener;
+
+    Statistics statistics;
+
+    Order order;
+
+    @BeforeEach
+    void setUp() {
+
+        orderRepository.deleteAll();
+        orderlineRepository.deleteAll();
+
+        order = orderRepository.save(Order.builder().deliverDate(LocalDate.now()).orderStatus(OrderStatus.DRAFT).build()
+                .add(Orderline.builder().amount(1).build())
+                .add(Orderline.builder().amount(2).build()));
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        listener.deleted.clear();
+    }
+
+    @Test
+    void deletesItemAndCascadedChildrenWithoutLoadingChildren() throws Exception {
+
+        mvc.perform(delete("/api/orders/{id}", order.getId())).andExpect(status().isNoContent());
+
+        assertThat(statistics.getEntityLoadCount()).isOne();
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+        assertThat(orderRepository.count()).isZero();
+        assertThat(orderlineRepository.count()).isZero();
+    }
+
+    @Test
+    void publishesLoadedEntityAfterDelete() throws Exception {
+
+        mvc.perform(delete("/api/orders/{id}", order.getId())).andExpect(status().isNoContent());
+
+        assertThat(listener.deleted).singleElement().satisfies(it -> {
+            assertThat(Hibernate.isInitialized(it)).isTrue();
+            assertThat(((Order) it).getDeliverDate()).isEqualTo(order.getDeliverDate());
+        });
+    }
+
+    @Test
+    void rejectsDeleteOfConcurrentlyModifiedItem() {
+
+        JpaRepositoryInvoker invoker = (JpaRepositoryInvoker) invokerFactory.getInvokerFor(Order.class);
+
+        assertThatExceptionOfType(ObjectOptimisticLockingFailureException.class)
+                .isThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+
+                    Order loaded = orderRepository.findById(order.getId()).orElseThrow();
+
+                    jdbcTemplate.update("update order_table set version = version + 1 where id = ?", order.getId());
+
+                    invoker.invokeDeleteInBulk(loaded);
+                }));
+
+        assertThat(orderRepository.existsById(order.getId())).isTrue();
+        assertThat(orderlineRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void returnsNotFoundForUnknownItem() throws Exception {
+        mvc.perform(delete("/api/orders/{id}", order.getId() + 1000)).andExpect(status().isNotFound());
+    }
+
+    @TestConfiguration
+    static class DeleteListener {
+
+        final List<Object> deleted = new CopyOnWriteArrayList<>();
+
+        @EventListener
+        void on(AfterDeleteEvent event) {
+            deleted.add(event.getSource());
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Customer;
+import com.datarest.demo.dal.CustomerRepository;
+import com.datarest.demo.dal.Order;
+import com.datarest.demo.dal.OrderRepository;
+import com.datarest.demo.dal.OrderStatus;
+import com.datarest.demo.dal.Orderline;
+import com.datarest.demo.dal.Product;
+import com.datarest.demo.dal.ProductRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:responses",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "demo.rest.responses.enabled=true"})
+@AutoConfigureMockMvc
+class ItemResponseCacheTests {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    Product product;
+    Order order;
+
+    @BeforeEach
+    void setUp() {
+
+        product = productRepository.save(Product.builder().title("Title").price(BigDecimal.ONE).build());
+        Customer customer = customerRepository.save(Customer.builder().name("Customer").build());
+        order = orderRepository.save(Order.builder()
+                .customer(customer)
+                .deliverDate(LocalDate.now())
+                .orderStatus(OrderStatus.DRAFT)
+                .build()
+                .add(Orderline.builder().product(product).amount(1).build()));
+
+        entityManagerFactory.getCache().evictAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void answersFromCachedBodyWithoutLoadingEntity() throws Exception {
+
+        MockHttpServletResponse response = mvc.perform(get("/api/orders/{id}", order.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orderlines[0].product.title").value("Title"))
+                .andReturn().getResponse();
+
+        statistics.clear();
+
+        mvc.perform(get("/api/orders/{id}", order.getId()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, response.getHeader(HttpHeaders.ETAG)))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().string(response.getContentAsString()));
+
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void answersNotModifiedForMatchingETag() throws Exception {
+
+        mvc.perform(get("/api/products/{id}", product.getId())).andExpect(status().isOk());
+
+        mvc.perform(get("/api/products/{id}", product.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void rendersUpdatedEntityAfterWrite() throws Exception {
+
+        mvc.perform(get("/api/products/{id}", product.getId()))
+                .andExpect(jsonPath("$.title").value("Title"));
+
+        mvc.perform(patch("/api/products/{id}", product.getId())
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"Updated\"}"))
+                .andExpect(status().isNoContent());
+
+        mvc.perform(get("/api/products/{id}", product.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.title").value("Updated"));
+    }
+
+    @Test
+    void rendersUpdatedAssociationsAfterWrite() throws Exception {
+
+        String eTag = mvc.perform(get("/api/orders/{id}", order.getId()))
+                .andExpect(jsonPath("$.orderlines[0].product.title").value("Title"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(patch("/api/products/{id}", product.getId())
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"Updated\"}"))
+                .andExpect(status().isNoContent());
+
+        mvc.perform(get("/api/orders/{id}", order.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, allOf(startsWith("\"0-"), not(eTag))))
+                .andExpect(jsonPath("$.orderlines[0].product.title").value("Updated"));
+    }
+
+    @Test
+    void rendersAssociationsWrittenBypassingApi() throws Exception {
+
+        mvc.perform(get("/api/orders/{id}", order.getId()))
+                .andExpect(jsonPath("$.orderlines[0].product.title").value("Title"));
+
+        product.setTitle("Bypassed");
+        productRepository.save(product);
+
+        mvc.perform(get("/api/orders/{id}", order.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orderlines[0].product.title").value("Bypassed"));
+    }
+
+    @Test
+    void answersNotFoundAfterDelete() throws Exception {
+
+        Product unordered = productRepository.save(Product.builder().title("Unordered").price(BigDecimal.ONE).build());
+
+        mvc.perform(get("/api/products/{id}", unordered.getId())).andExpect(status().isOk());
+
+        mvc.perform(delete("/api/products/{id}", unordered.getId())).andExpect(status().isNoContent());
+
+        mvc.perform(get("/api/products/{id}", unordered.getId())).andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,124 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.core.CrudMethods;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.data.repository.support.RepositoryInvoker;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class JpaRepositoryInvokerTests {
+
+    RepositoryInvoker delegate;
+    ResourceJpaRepository<?, ?> jpaRepository;
+    RepositoryInformation information;
+    Repositories repositories;
+    Method findAll;
+    Method deleteById;
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        findAll = QueryingRepository.class.getMethod("findAll");
+        deleteById = QueryingRepository.class.getMethod("deleteById", Long.class);
+
+        delegate = mock(RepositoryInvoker.class);
+        when(delegate.hasFindAllMethod()).thenReturn(true);
+        when(delegate.invokeFindAll(any(Pageable.class))).thenReturn(Collections.emptyList());
+        when(delegate.invokeFindAll(any(Sort.class))).thenReturn(Collections.emptyList());
+
+        CrudMethods crudMethods = mock(CrudMethods.class);
+        when(crudMethods.getFindAllMethod()).thenReturn(Optional.of(findAll));
+        when(crudMethods.getDeleteMethod()).thenReturn(Optional.of(deleteById));
+
+        information = mock(RepositoryInformation.class);
+        when(information.getCrudMethods()).thenReturn(crudMethods);
+
+        repositories = mock(Repositories.class);
+        when(repositories.getRepositoryInformationFor(Order.class)).thenReturn(Optional.of(information));
+
+        jpaRepository = mock(ResourceJpaRepository.class);
+    }
+
+    @Test
+    void pagesInDatabaseIfRepositoryInheritsFindAll() {
+
+        invoker().invokeFindAll(PageRequest.of(0, 2));
+
+        verify(jpaRepository).findAll(PageRequest.of(0, 2));
+        verify(delegate, never()).invokeFindAll(any(Pageable.class));
+    }
+
+    @Test
+    void invokesCustomizedFindAllThroughRepository() {
+
+        when(information.isQueryMethod(findAll)).thenReturn(true);
+
+        JpaRepositoryInvoker invoker = invoker();
+
+        invoker.invokeFindAll(PageRequest.of(0, 2));
+        invoker.invokeFindAll(Sort.by("id"));
+
+        assertThat(invoker.customizesFindAll()).isTrue();
+        verify(delegate).invokeFindAll(PageRequest.of(0, 2));
+        verify(delegate).invokeFindAll(Sort.by("id"));
+        verifyNoInteractions(jpaRepository);
+    }
+
+    @Test
+    void deletesInBulkIfRepositoryInheritsDelete() {
+        assertThat(invoker().customizesDelete()).isFalse();
+    }
+
+    @Test
+    void invokesCustomizedDeleteThroughRepository() {
+
+        when(information.isQueryMethod(deleteById)).thenReturn(true);
+
+        JpaRepositoryInvoker invoker = invoker();
+
+        invoker.invokeDeleteById(1L);
+
+        assertThat(invoker.customizesDelete()).isTrue();
+        verify(delegate).invokeDeleteById(1L);
+        verifyNoInteractions(jpaRepository);
+    }
+
+    private JpaRepositoryInvoker invoker() {
+        return new JpaRepositoryInvoker(delegate, repositories, Order.class, jpaRepository,
+                DefaultConversionService.getSharedInstance());
+    }
+
+    interface QueryingRepository extends CrudRepository<Order, Long> {
+
+        @Override
+        @Query("select o from Order o")
+        Iterable<Order> findAll();
+
+        @Override
+        @Modifying
+        @Query("update Order o set o.orderStatus = null where o.id = ?1")
+        void deleteById(Long id);
+    }
+
+}
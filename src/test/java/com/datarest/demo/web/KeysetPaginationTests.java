@@ -0,0 +1,165 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Customer;
+import com.datarest.demo.dal.CustomerRepository;
+import com.datarest.demo.dal.Order;
+import com.datarest.demo.dal.OrderRepository;
+import com.datarest.demo.dal.OrderStatus;
+import com.datarest.demo.dal.Product;
+import com.datarest.demo.dal.ProductRepository;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:keyset")
+@AutoConfigureMockMvc
+class KeysetPaginationTests {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+
+        Customer customer = customerRepository.save(Customer.builder().name("Keyset").build());
+
+        for (int i = 0; i < 8; i++) {
+            orderRepository.save(Order.builder()
+                    .customer(customer)
+                    .deliverDate(LocalDate.now().plusDays(i / 3))
+                    .orderStatus(OrderStatus.DRAFT)
+                    .build());
+        }
+    }
+
+    @Test
+    void walksAllRowsInIdOrder() throws Exception {
+
+        List<Integer> ids = walk("id,asc");
+
+        assertThat(ids).hasSize(8).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void usesIdentifierAsTieBreakerForDuplicateSortKeys() throws Exception {
+
+        List<Integer> ids = walk("deliverDate,desc");
+        List<Integer> expected = new ArrayList<>();
+
+        StreamSupport.stream(orderRepository.findAll().spliterator(), false)
+                .sorted(Comparator.comparing(Order::getDeliverDate).reversed().thenComparing(Order::getId))
+                .forEach(it -> expected.add(it.getId().intValue()));
+
+        assertThat(ids).isEqualTo(expected);
+    }
+
+    @Test
+    void walksDecimalKeysWithoutLosingPrecision() throws Exception {
+
+        List<Long> expected = saveProducts("12345678901234567.89", "12345678901234567.88", "12345678901234567.87",
+                "12345678901234567.86");
+
+        List<Integer> ids = walk("/api/products", "price,desc");
+
+        assertThat(ids).containsExactly(expected.get(0).intValue(), expected.get(1).intValue(),
+                expected.get(2).intValue(), expected.get(3).intValue());
+    }
+
+    @Test
+    void sortsNullKeysLast() throws Exception {
+
+        List<Long> expected = saveProducts(null, "2.50", null, "1.00", "2.50", null, "3.00");
+
+        List<Integer> descending = walk("/api/products", "price,desc");
+        List<Integer> ascending = walk("/api/products", "price,asc");
+
+        // Nulls last in both directions, ties broken by identifier
+        assertThat(descending).containsExactly(expected.get(6).intValue(), expected.get(1).intValue(),
+                expected.get(4).intValue(), expected.get(3).intValue(), expected.get(0).intValue(),
+                expected.get(2).intValue(), expected.get(5).intValue());
+        assertThat(ascending).containsExactly(expected.get(3).intValue(), expected.get(1).intValue(),
+                expected.get(4).intValue(), expected.get(6).intValue(), expected.get(0).intValue(),
+                expected.get(2).intValue(), expected.get(5).intValue());
+    }
+
+    @Test
+    void rejectsMalformedCursor() throws Exception {
+
+        mvc.perform(get("/api/orders").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void rejectsCursorCreatedForDifferentSort() throws Exception {
+
+        String body = mvc.perform(get("/api/orders").param("cursor", "").param("size", "3"))
+                .andReturn().getResponse().getContentAsString();
+        String cursor = JsonPath.read(body, "$.nextCursor");
+
+        mvc.perform(get("/api/orders").param("cursor", cursor).param("sort", "deliverDate"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private List<Integer> walk(String sort) throws Exception {
+        return walk("/api/orders", sort);
+    }
+
+    private List<Integer> walk(String uri, String sort) throws Exception {
+
+        List<Integer> ids = new ArrayList<>();
+        String cursor = "";
+
+        do {
+
+            String body = mvc.perform(get(uri).param("cursor", cursor).param("size", "3").param("sort", sort))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+
+            ids.addAll(JsonPath.read(body, "$.content[*].id"));
+            cursor = JsonPath.read(body, "$.nextCursor");
+
+        } while (cursor != null);
+
+        return ids;
+    }
+
+    private List<Long> saveProducts(String... prices) {
+
+        List<Long> ids = new ArrayList<>();
+
+        Arrays.stream(prices).forEach(it -> ids.add(productRepository.save(Product.builder()
+                .title("Keyset")
+                .price(it == null ? null : new BigDecimal(it))
+                .build()).getId()));
+
+        return ids;
+    }
+}
@@ -0,0 +1,154 @@
+package com.datarest.demo.web;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.rest.core.Path;
+import org.springframework.data.rest.core.mapping.ResourceMetadata;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReadCoalescingTests {
+
+    MeterRegistry registry;
+    ResourceMetadata metadata;
+    ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+
+        registry = new SimpleMeterRegistry();
+        metadata = mock(ResourceMetadata.class);
+        when(metadata.getPath()).thenReturn(new Path("/products"));
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void sharesReadInFlight() throws Exception {
+
+        ReadCoalescing coalescing = coalescing(Duration.ofSeconds(10));
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger reads = new AtomicInteger();
+        ResponseEntity<byte[]> response = ResponseEntity.ok(new byte[]{1});
+
+        Future<ResponseEntity<byte[]>> leader = executor.submit(() -> coalescing.coalesce(metadata, "item", "key",
+                () -> {
+                    reads.incrementAndGet();
+                    reading.countDown();
+                    await(release);
+                    return response;
+                }));
+
+        reading.await(10, TimeUnit.SECONDS);
+
+        Thread follower = new Thread(() -> coalescing.coalesce(metadata, "item", "key", () -> {
+            reads.incrementAndGet();
+            return ResponseEntity.ok(new byte[]{2});
+        }));
+        follower.start();
+
+        while (follower.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+
+        release.countDown();
+        follower.join(10_000);
+
+        assertThat(leader.get()).isSameAs(response);
+        assertThat(reads).hasValue(1);
+        assertThat(count("leader")).isEqualTo(1);
+        assertThat(count("collapsed")).isEqualTo(1);
+    }
+
+    @Test
+    void readsOnItsOwnAfterMaximumWait() throws Exception {
+
+        ReadCoalescing coalescing = coalescing(Duration.ofMillis(10));
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ResponseEntity<byte[]> own = ResponseEntity.ok(new byte[]{2});
+
+        executor.submit(() -> coalescing.coalesce(metadata, "item", "key", () -> {
+            reading.countDown();
+            await(release);
+            return ResponseEntity.ok(new byte[]{1});
+        }));
+
+        reading.await(10, TimeUnit.SECONDS);
+
+        assertThat(coalescing.coalesce(metadata, "item", "key", () -> own)).isSameAs(own);
+        assertThat(count("timeout")).isEqualTo(1);
+
+        release.countDown();
+    }
+
+    @Test
+    void propagatesFailureAndForgetsRead() {
+
+        ReadCoalescing coalescing = coalescing(Duration.ofSeconds(1));
+
+        assertThatThrownBy(() -> coalescing.coalesce(metadata, "item", "key", () -> {
+            throw new IllegalStateException("failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        ResponseEntity<byte[]> response = ResponseEntity.ok(new byte[0]);
+
+        assertThat(coalescing.coalesce(metadata, "item", "key", () -> response)).isSameAs(response);
+        assertThat(count("leader")).isEqualTo(2);
+    }
+
+    @Test
+    void coalescesConfiguredRepositoriesOnly() {
+
+        ResourceMetadata orders = mock(ResourceMetadata.class);
+        when(orders.getPath()).thenReturn(new Path("/orders"));
+
+        ReadCoalescing coalescing = coalescing(Duration.ofSeconds(1));
+
+        assertThat(coalescing.isCoalesced(metadata)).isTrue();
+        assertThat(coalescing.isCoalesced(orders)).isFalse();
+    }
+
+    private ReadCoalescing coalescing(Duration maxWait) {
+
+        CustomRepositoryRestProperties properties = new CustomRepositoryRestProperties();
+        properties.getCoalescing().setRepositories(Collections.singleton("products"));
+        properties.getCoalescing().setMaxWait(maxWait);
+
+        return new ReadCoalescing(properties, registry);
+    }
+
+    private double count(String outcome) {
+        return registry.get(ReadCoalescing.COALESCED).tag("outcome", outcome).counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException o_O) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
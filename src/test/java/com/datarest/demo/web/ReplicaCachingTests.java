@@ -0,0 +1,119 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Customer;
+import com.datarest.demo.dal.CustomerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.http.Cookie;
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs against a lagging replica as {@link ReplicaRoutingTests} do, with the second-level cache and the
+ * {@link ItemResponseCache} enabled.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replica-caching",
+        "demo.rest.replica.url=jdbc:h2:mem:replica-caching-replica;DB_CLOSE_DELAY=-1",
+        "demo.rest.replica.username=sa",
+        "demo.rest.responses.enabled=true",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=true"})
+@AutoConfigureMockMvc
+class ReplicaCachingTests {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    DataSource primary;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    DataSource replica;
+
+    Cache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = entityManagerFactory.getCache();
+    }
+
+    @Test
+    void doesNotCacheWhatIsReadFromReplica() throws Exception {
+
+        Customer customer = customerRepository.save(Customer.builder().name("Replicated").build());
+
+        replicate();
+        cache.evictAll();
+
+        Cookie pin = mvc.perform(patch("/api/customers/{id}", customer.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Written\"}"))
+                .andExpect(status().is2xxSuccessful())
+                .andReturn().getResponse().getCookie(ReplicaRouting.COOKIE);
+
+        mvc.perform(get("/api/customers/{id}", customer.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Replicated"));
+
+        mvc.perform(get("/api/customers"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", hasItem("Replicated")));
+
+        assertThat(cache.contains(Customer.class, customer.getId())).isFalse();
+
+        mvc.perform(get("/api/customers/{id}", customer.getId()).cookie(pin))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Written"));
+    }
+
+    @Test
+    void cachesWhatIsReadFromPrimary() throws Exception {
+
+        Customer customer = customerRepository.save(Customer.builder().name("Pinned").build());
+        Cookie pin = new Cookie(ReplicaRouting.COOKIE, String.valueOf(System.currentTimeMillis() + 1000));
+
+        cache.evictAll();
+
+        mvc.perform(get("/api/customers/{id}", customer.getId()).cookie(pin))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Pinned"));
+
+        assertThat(cache.contains(Customer.class, customer.getId())).isTrue();
+    }
+
+    /**
+     * Replaces the contents of the replica with a snapshot of the primary.
+     */
+    private void replicate() {
+
+        JdbcTemplate target = new JdbcTemplate(replica);
+        target.execute("DROP ALL OBJECTS");
+
+        new JdbcTemplate(primary).queryForList("SCRIPT", String.class).forEach(target::execute);
+    }
+}
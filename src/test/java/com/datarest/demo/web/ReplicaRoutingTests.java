@@ -0,0 +1,191 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Customer;
+import com.datarest.demo.dal.CustomerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.servlet.http.Cookie;
+import javax.sql.DataSource;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs against two H2 databases, the replica being brought up to date with the primary explicitly, so every write in
+ * between stands for replication lag.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing",
+        "demo.rest.replica.url=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+        "demo.rest.replica.username=sa",
+        "demo.rest.responses.enabled=false",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false"})
+@AutoConfigureMockMvc
+class ReplicaRoutingTests {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    DataSource primary;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    DataSource replica;
+
+    @BeforeEach
+    void setUp() {
+        replicate();
+    }
+
+    @Test
+    void readsAreServedByReplica() throws Exception {
+
+        Customer customer = customerRepository.save(Customer.builder().name("Lagging").build());
+
+        mvc.perform(get("/api/customers/{id}", customer.getId()))
+                .andExpect(status().isNotFound());
+
+        mvc.perform(get("/api/customers"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", not(hasItem("Lagging"))));
+
+        replicate();
+
+        mvc.perform(get("/api/customers/{id}", customer.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Lagging"));
+    }
+
+    @Test
+    void clientReadsOwnWritesFromPrimary() throws Exception {
+
+        MvcResult result = mvc.perform(post("/api/customers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Written\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(cookie().exists(ReplicaRouting.COOKIE))
+                .andReturn();
+
+        String location = result.getResponse().getHeader("Location");
+        String id = location.substring(location.lastIndexOf('/') + 1);
+        Cookie pin = result.getResponse().getCookie(ReplicaRouting.COOKIE);
+
+        assertThat(new JdbcTemplate(primary).queryForObject(
+                "select count(*) from customer_table where name = 'Written'", Integer.class)).isOne();
+
+        mvc.perform(get("/api/customers/{id}", id).cookie(pin))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Written"));
+
+        mvc.perform(get("/api/customers").cookie(pin))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", hasItem("Written")));
+
+        mvc.perform(get("/api/customers/{id}", id))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void writesReadWhatTheyUpdateFromPrimary() throws Exception {
+
+        Customer customer = customerRepository.save(Customer.builder().name("Lagging").build());
+
+        mvc.perform(put("/api/customers/{id}", customer.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("If-Match", "\"0\"")
+                        .content("{\"name\":\"Put\"}"))
+                .andExpect(status().isNoContent());
+
+        mvc.perform(patch("/api/customers/{id}", customer.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("If-Match", "\"1\"")
+                        .content("{\"name\":\"Patched\"}"))
+                .andExpect(status().isNoContent());
+
+        assertThat(new JdbcTemplate(primary).queryForMap("select name, version from customer_table where id = ?",
+                customer.getId())).containsEntry("NAME", "Patched").containsEntry("VERSION", 2L);
+
+        mvc.perform(delete("/api/customers/{id}", customer.getId())
+                        .header("If-Match", "\"2\""))
+                .andExpect(status().isNoContent());
+
+        assertThat(new JdbcTemplate(primary).queryForObject("select count(*) from customer_table where id = ?",
+                Integer.class, customer.getId())).isZero();
+    }
+
+    @Test
+    void writesDoNotSeeStaleVersionsOfReplica() throws Exception {
+
+        Customer customer = customerRepository.save(Customer.builder().name("Replicated").build());
+
+        replicate();
+
+        customer.setName("Updated");
+        customerRepository.save(customer);
+
+        mvc.perform(patch("/api/customers/{id}", customer.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("If-Match", "\"1\"")
+                        .content("{\"name\":\"Patched\"}"))
+                .andExpect(status().isNoContent());
+
+        assertThat(new JdbcTemplate(primary).queryForObject("select name from customer_table where id = ?",
+                String.class, customer.getId())).isEqualTo("Patched");
+    }
+
+    @Test
+    void ignoresExpiredAndExcessivePins() throws Exception {
+
+        Customer customer = customerRepository.save(Customer.builder().name("Pinned").build());
+        long now = System.currentTimeMillis();
+
+        mvc.perform(get("/api/customers/{id}", customer.getId()).cookie(pin(now - 1)))
+                .andExpect(status().isNotFound());
+
+        mvc.perform(get("/api/customers/{id}", customer.getId()).cookie(pin(now + Duration.ofHours(1).toMillis())))
+                .andExpect(status().isNotFound());
+
+        mvc.perform(get("/api/customers/{id}", customer.getId()).cookie(pin(now + 1000)))
+                .andExpect(status().isOk());
+    }
+
+    private static Cookie pin(long until) {
+        return new Cookie(ReplicaRouting.COOKIE, String.valueOf(until));
+    }
+
+    /**
+     * Replaces the contents of the replica with a snapshot of the primary.
+     */
+    private void replicate() {
+
+        JdbcTemplate target = new JdbcTemplate(replica);
+        target.execute("DROP ALL OBJECTS");
+
+        new JdbcTemplate(primary).queryForList("SCRIPT", String.class).forEach(target::execute);
+    }
+}
@@ -0,0 +1,89 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.data.rest.core.Path;
+import org.springframework.data.rest.core.mapping.ResourceMappings;
+import org.springframework.data.rest.core.mapping.ResourceMetadata;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.cors.CorsConfiguration;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RepositoryCorsConfigurationTests {
+
+    ResourceMappings mappings;
+    Repositories repositories;
+
+    @BeforeEach
+    void setUp() {
+
+        ResourceMetadata metadata = mock(ResourceMetadata.class);
+        when(metadata.isExported()).thenReturn(true);
+        when(metadata.getPath()).thenReturn(new Path("/orders"));
+        doReturn(Order.class).when(metadata).getDomainType();
+
+        mappings = mock(ResourceMappings.class);
+        when(mappings.iterator()).thenAnswer(it -> Collections.singletonList(metadata).iterator());
+
+        RepositoryInformation information = mock(RepositoryInformation.class);
+        doReturn(CrossOriginRepository.class).when(information).getRepositoryInterface();
+
+        repositories = mock(Repositories.class);
+        when(repositories.getRepositoryInformationFor(any())).thenReturn(Optional.of(information));
+    }
+
+    @Test
+    void resolvesRepositoryConfigurationOnce() {
+
+        CustomRepositoryRestHandlerMapping.RepositoryCorsConfigurationAccessor accessor = accessor();
+
+        CorsConfiguration configuration = accessor.getCorsConfiguration("orders", null);
+
+        assertThat(configuration.getAllowedOrigins()).containsExactly("https://example.org");
+        assertThat(accessor.getCorsConfiguration("orders", null)).isSameAs(configuration);
+        verify(repositories, times(1)).getRepositoryInformationFor(any());
+    }
+
+    @Test
+    void reusesCombinationWithHandlerConfiguration() {
+
+        CustomRepositoryRestHandlerMapping.RepositoryCorsConfigurationAccessor accessor = accessor();
+        CorsConfiguration handlerConfiguration = new CorsConfiguration();
+        handlerConfiguration.addAllowedOrigin("https://example.com");
+
+        CorsConfiguration combined = accessor.getCorsConfiguration("orders", handlerConfiguration);
+
+        assertThat(combined.getAllowedOrigins()).containsExactly("https://example.org", "https://example.com");
+        assertThat(accessor.getCorsConfiguration("orders", handlerConfiguration)).isSameAs(combined);
+    }
+
+    @Test
+    void returnsHandlerConfigurationForRepositoriesWithoutConfiguration() {
+
+        CorsConfiguration handlerConfiguration = new CorsConfiguration();
+
+        assertThat(accessor().getCorsConfiguration("customers", handlerConfiguration)).isSameAs(handlerConfiguration);
+    }
+
+    private CustomRepositoryRestHandlerMapping.RepositoryCorsConfigurationAccessor accessor() {
+        return new CustomRepositoryRestHandlerMapping.RepositoryCorsConfigurationAccessor(mappings,
+                CustomRepositoryRestHandlerMapping.NoOpStringValueResolver.INSTANCE, Optional.of(repositories));
+    }
+
+    @CrossOrigin(origins = "https://example.org")
+    interface CrossOriginRepository {
+    }
+}
@@ -0,0 +1,274 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Customer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.data.rest.core.event.AfterCreateEvent;
+import org.springframework.data.rest.core.event.AfterDeleteEvent;
+import org.springframework.data.rest.core.event.AfterSaveEvent;
+import org.springframework.data.rest.core.event.BeforeCreateEvent;
+import org.springframework.data.rest.core.event.RepositoryEvent;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox",
+        "demo.rest.outbox.enabled=true",
+        "demo.rest.outbox.retry-interval=200ms"})
+@AutoConfigureMockMvc
+class RepositoryEventOutboxTests {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    Recorder recorder;
+
+    @Autowired
+    RepositoryEventMulticaster multicaster;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    RepositoryEventOutbox outbox;
+
+    @Autowired
+    ApplicationContext context;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+
+        recorder.events.clear();
+        recorder.failures.set(0);
+        recorder.hold = null;
+    }
+
+    @Test
+    void dispatchesEventsInBackgroundAfterCommit() throws Exception {
+
+        String id = create("Outboxed");
+
+        Recorded recorded = recorder.next();
+
+        assertThat(recorded.event).isInstanceOf(AfterCreateEvent.class);
+        assertThat(recorded.thread).startsWith("outbox-");
+        assertThat(recorded.event.getSource()).isInstanceOfSatisfying(Customer.class, it -> {
+            assertThat(it.getId()).hasToString(id);
+            assertThat(it.getName()).isEqualTo("Outboxed");
+        });
+
+        awaitEmptyOutbox();
+    }
+
+    @Test
+    void dispatchesEventsOfRepositoryInOrder() throws Exception {
+
+        String id = create("First");
+
+        for (String name : new String[] { "Second", "Third" }) {
+            mvc.perform(patch("/api/customers/{id}", id)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"name\":\"" + name + "\"}"))
+                    .andExpect(status().is2xxSuccessful());
+        }
+
+        mvc.perform(delete("/api/customers/{id}", id))
+                .andExpect(status().isNoContent());
+
+        List<Class<?>> types = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+
+        for (int i = 0; i < 4; i++) {
+
+            Recorded recorded = recorder.next();
+            Customer customer = (Customer) recorded.event.getSource();
+
+            assertThat(customer.getId()).hasToString(id);
+
+            types.add(recorded.event.getClass());
+            names.add(customer.getName());
+        }
+
+        assertThat(types).containsExactly(AfterCreateEvent.class, AfterSaveEvent.class, AfterSaveEvent.class,
+                AfterDeleteEvent.class);
+
+        assertThat(names).containsExactly("First", "Second", "Third", "Third");
+    }
+
+    @Test
+    void dispatchesEventsOfRepositoryInCommitOrder() throws Exception {
+
+        CountDownLatch hold = new CountDownLatch(1);
+        recorder.hold = hold;
+
+        create("Holding");
+
+        assertThat(((Customer) recorder.next().event.getSource()).getName()).isEqualTo("Holding");
+
+        CountDownLatch stored = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        Thread storedFirst = new Thread(() -> transactionTemplate.executeWithoutResult(status -> {
+
+            outbox.add(new AfterSaveEvent(Customer.builder().name("Stored first").build()));
+            stored.countDown();
+
+            await(commit);
+        }));
+        storedFirst.start();
+
+        assertThat(stored.await(5, TimeUnit.SECONDS)).isTrue();
+
+        transactionTemplate.executeWithoutResult(status -> outbox.add(
+                new AfterSaveEvent(Customer.builder().name("Committed first").build())));
+
+        commit.countDown();
+        storedFirst.join(5_000);
+
+        recorder.hold = null;
+        hold.countDown();
+
+        assertThat(((Customer) recorder.next().event.getSource()).getName()).isEqualTo("Committed first");
+        assertThat(((Customer) recorder.next().event.getSource()).getName()).isEqualTo("Stored first");
+
+        awaitEmptyOutbox();
+    }
+
+    @Test
+    void redeliversEventsWhoseListenersFailed() throws Exception {
+
+        recorder.failures.set(1);
+
+        create("Retried");
+
+        Recorded failed = recorder.next();
+        Recorded redelivered = recorder.next();
+
+        assertThat(((Customer) failed.event.getSource()).getName()).isEqualTo("Retried");
+        assertThat(((Customer) redelivered.event.getSource()).getName()).isEqualTo("Retried");
+
+        awaitEmptyOutbox();
+    }
+
+    @Test
+    void knowsEventsWithoutListeners() {
+
+        Customer customer = Customer.builder().name("Unheard").build();
+
+        assertThat(multicaster.hasListeners(new BeforeCreateEvent(customer))).isFalse();
+        assertThat(multicaster.hasListeners(new AfterCreateEvent(customer))).isTrue();
+    }
+
+    @Test
+    void leavesMulticasterOfContextAlone() {
+
+        assertThat(context.getBean(AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME))
+                .isNotInstanceOf(RepositoryEventMulticaster.class);
+    }
+
+    private String create(String name) throws Exception {
+
+        String location = mvc.perform(post("/api/customers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"" + name + "\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader("Location");
+
+        return location.substring(location.lastIndexOf('/') + 1);
+    }
+
+    private void awaitEmptyOutbox() throws InterruptedException {
+
+        for (int i = 0; i < 50; i++) {
+
+            if (jdbcTemplate.queryForObject("select count(*) from outbox_event", Integer.class) == 0) {
+                return;
+            }
+
+            Thread.sleep(100);
+        }
+
+        throw new AssertionError("Outbox not drained!");
+    }
+
+    private static void await(CountDownLatch latch) {
+
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException o_O) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static class Recorded {
+
+        final RepositoryEvent event;
+        final String thread;
+
+        Recorded(RepositoryEvent event, String thread) {
+            this.event = event;
+            this.thread = thread;
+        }
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class Recorder {
+
+        final BlockingQueue<Recorded> events = new LinkedBlockingQueue<>();
+        final AtomicInteger failures = new AtomicInteger();
+        volatile CountDownLatch hold;
+
+        @EventListener({ AfterCreateEvent.class, AfterSaveEvent.class, AfterDeleteEvent.class })
+        void on(RepositoryEvent event) {
+
+            events.add(new Recorded(event, Thread.currentThread().getName()));
+
+            // Holds back the events dispatched after this one
+            CountDownLatch hold = this.hold;
+
+            if (hold != null) {
+                await(hold);
+            }
+
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("Failing as told!");
+            }
+        }
+
+        Recorded next() throws InterruptedException {
+
+            Recorded recorded = events.poll(5, TimeUnit.SECONDS);
+
+            assertThat(recorded).as("Dispatched event").isNotNull();
+
+            return recorded;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Product;
+import com.datarest.demo.dal.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:metrics")
+@AutoConfigureMockMvc
+class RepositoryRequestMetricsTests {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    Product product;
+
+    @BeforeEach
+    void setUp() {
+
+        registry.clear();
+        product = productRepository.save(Product.builder().title("Title").price(BigDecimal.ONE).build());
+    }
+
+    @Test
+    void recordsRequestsPerRepositoryAndResource() throws Exception {
+
+        mvc.perform(get("/api/products")).andExpect(status().isOk());
+        mvc.perform(get("/api/products/{id}", product.getId())).andExpect(status().isOk());
+        mvc.perform(get("/api/products/{id}", product.getId())).andExpect(status().isOk());
+
+        assertThat(timer(RepositoryRequestMetrics.REQUESTS, "collection").count()).isEqualTo(1);
+        assertThat(timer(RepositoryRequestMetrics.REQUESTS, "item").count()).isEqualTo(2);
+        assertThat(registry.get(RepositoryRequestMetrics.REQUESTS).tag("status", "200").timers()).hasSize(2);
+    }
+
+    @Test
+    void recordsInvocationApartFromSerialization() throws Exception {
+
+        mvc.perform(get("/api/products/{id}", product.getId())).andExpect(status().isOk());
+
+        Timer invocations = timer(RepositoryRequestMetrics.INVOCATIONS, "item");
+        Timer serializations = timer(RepositoryRequestMetrics.SERIALIZATIONS, "item");
+        Timer requests = timer(RepositoryRequestMetrics.REQUESTS, "item");
+
+        assertThat(invocations.count()).isEqualTo(1);
+        assertThat(serializations.count()).isEqualTo(1);
+        assertThat(invocations.totalTime(TimeUnit.NANOSECONDS)
+                + serializations.totalTime(TimeUnit.NANOSECONDS))
+                .isLessThanOrEqualTo(requests.totalTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    void countsNotModifiedNotFoundAndETagMismatches() throws Exception {
+
+        mvc.perform(get("/api/products/{id}", product.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isNotModified());
+        mvc.perform(get("/api/products/{id}", -1)).andExpect(status().isNotFound());
+        mvc.perform(put("/api/products/{id}", product.getId()).header(HttpHeaders.IF_MATCH, "\"42\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"Other\",\"price\":2}"))
+                .andExpect(status().isPreconditionFailed());
+
+        assertThat(count(RepositoryRequestMetrics.NOT_MODIFIED, "GET")).isEqualTo(1);
+        assertThat(count(RepositoryRequestMetrics.NOT_FOUND, "GET")).isEqualTo(1);
+        assertThat(count(RepositoryRequestMetrics.PRECONDITION_FAILED, "PUT")).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotRecordRequestsOutsideRepositoryResources() throws Exception {
+
+        mvc.perform(get("/api/unknown")).andExpect(status().isNotFound());
+
+        assertThat(registry.find(RepositoryRequestMetrics.REQUESTS).timers()).isEmpty();
+    }
+
+    private Timer timer(String name, String resource) {
+        return registry.get(name).tag("repository", "products").tag("resource", resource).timer();
+    }
+
+    private double count(String name, String method) {
+        return registry.get(name).tag("repository", "products").tag("method", method).counter().count();
+    }
+}
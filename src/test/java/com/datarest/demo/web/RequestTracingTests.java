@@ -0,0 +1,126 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Order;
+import com.datarest.demo.dal.OrderRepository;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:tracing",
+        "demo.rest.tracing.enabled=true",
+        "demo.rest.streaming.enabled=true",
+        "demo.rest.changes.enabled=true"})
+@AutoConfigureMockMvc
+class RequestTracingTests {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Test
+    void rendersPhasesAsServerTimingHeader() throws Exception {
+
+        Order order = orderRepository.findAll().iterator().next();
+
+        mvc.perform(get("/api/orders/{id}", order.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(order.getId()))
+                .andExpect(header().string(RequestTrace.SERVER_TIMING_HEADER, allOf( //
+                        containsString("lookup;dur="), //
+                        containsString("resolve;dur="), //
+                        containsString("invoke;dur="), //
+                        containsString("fetch;dur="), //
+                        containsString("serialize;dur="))));
+    }
+
+    @Test
+    void tracesNotFoundResponses() throws Exception {
+
+        mvc.perform(get("/api/orders/{id}", -1))
+                .andExpect(status().isNotFound())
+                .andExpect(header().exists(RequestTrace.SERVER_TIMING_HEADER));
+    }
+
+    @Test
+    void writesStreamedCollectionsUnbuffered() throws Exception {
+
+        mvc.perform(get("/api/orders").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isArray())
+                .andExpect(header().doesNotExist(RequestTrace.SERVER_TIMING_HEADER));
+    }
+
+    @Test
+    void writesEventStreamsUnbufferedWhateverMediaRangeTheyAccept() throws Exception {
+
+        MockHttpServletResponse stream = mvc.perform(get("/api/customers/changes").accept("text/*"))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+
+        mvc.perform(post("/api/customers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Traced\"}"))
+                .andExpect(status().isCreated());
+
+        for (int i = 0; i < 50 && !stream.getContentAsString().contains("event:created"); i++) {
+            Thread.sleep(100);
+        }
+
+        assertThat(stream.getContentAsString()).contains("event:created");
+    }
+
+    @Test
+    void commitsFlightRecorderEvent() throws Exception {
+
+        Order order = orderRepository.findAll().iterator().next();
+        Path file = Files.createTempFile("tracing", ".jfr");
+
+        try (Recording recording = new Recording()) {
+
+            recording.enable(RequestTrace.RepositoryRequestEvent.class);
+            recording.start();
+
+            mvc.perform(get("/api/orders/{id}", order.getId())).andExpect(status().isOk());
+
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream() //
+                    .filter(it -> it.getEventType().getName().equals("com.datarest.demo.RepositoryRequest")) //
+                    .collect(Collectors.toList());
+
+            assertThat(events).hasSize(1);
+            assertThat(events.get(0).getString("uri")).isEqualTo("/api/orders/" + order.getId());
+            assertThat(events.get(0).getInt("status")).isEqualTo(200);
+            assertThat(events.get(0).getDuration("serialize")).isPositive();
+
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
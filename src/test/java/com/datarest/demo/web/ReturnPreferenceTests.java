@@ -0,0 +1,114 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Product;
+import com.datarest.demo.dal.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:prefer")
+@AutoConfigureMockMvc
+class ReturnPreferenceTests {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = productRepository.save(Product.builder().title("Title").price(BigDecimal.ONE).build());
+    }
+
+    @Test
+    void createsWithoutBodyIfMinimalIsPreferred() throws Exception {
+
+        mvc.perform(post("/api/products").contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON)
+                        .header("Prefer", "return=minimal")
+                        .content("{\"title\":\"Created\",\"price\":1}"))
+                .andExpect(status().isCreated())
+                .andExpect(header().exists(HttpHeaders.LOCATION))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(header().string("Preference-Applied", "return=minimal"))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void createsAllWithoutBodyIfMinimalIsPreferred() throws Exception {
+
+        mvc.perform(post("/api/products").contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON)
+                        .header("Prefer", "return=minimal")
+                        .content("[{\"title\":\"First\",\"price\":1},{\"title\":\"Second\",\"price\":2}]"))
+                .andExpect(status().isCreated())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void updatesWithoutBodyIfMinimalIsPreferred() throws Exception {
+
+        mvc.perform(put("/api/products/{id}", product.getId()).contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON).header("Prefer", "return=minimal")
+                        .content("{\"title\":\"Updated\",\"price\":2}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().exists(HttpHeaders.LOCATION))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(content().string(""));
+
+        mvc.perform(patch("/api/products/{id}", product.getId()).contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON).header("Prefer", "return=minimal")
+                        .content("{\"title\":\"Patched\"}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void returnsBodyIfRepresentationIsPreferred() throws Exception {
+
+        mvc.perform(patch("/api/products/{id}", product.getId()).contentType(MediaType.APPLICATION_JSON)
+                        .header("Prefer", "return=representation")
+                        .content("{\"title\":\"Patched\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Preference-Applied", "return=representation"))
+                .andExpect(jsonPath("$.title").value("Patched"));
+
+        mvc.perform(post("/api/products").contentType(MediaType.APPLICATION_JSON)
+                        .header("Prefer", "return=representation")
+                        .content("{\"title\":\"Created\",\"price\":1}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.title").value("Created"));
+    }
+
+    @Test
+    void followsConfigurationWithoutPreference() throws Exception {
+
+        mvc.perform(patch("/api/products/{id}", product.getId()).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Patched\"}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().doesNotExist("Preference-Applied"));
+
+        mvc.perform(patch("/api/products/{id}", product.getId()).contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Patched again\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Patched again"));
+    }
+}
@@ -0,0 +1,136 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Author;
+import com.datarest.demo.dal.AuthorRepository;
+import com.datarest.demo.dal.Product;
+import com.datarest.demo.dal.ProductRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cache",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+        "demo.rest.responses.enabled=false"})
+@AutoConfigureMockMvc
+class SecondLevelCacheTests {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    AuthorRepository authorRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+    Cache cache;
+    Product product;
+
+    @BeforeEach
+    void setUp() {
+
+        Author author = authorRepository.save(Author.builder().lastName("Cached").build());
+        product = productRepository.save(Product.builder().title("Title").price(BigDecimal.ONE).author(author).build());
+
+        cache = entityManagerFactory.getCache();
+        cache.evictAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void readsItemFromCacheOnceLoaded() throws Exception {
+
+        mvc.perform(get("/api/products/{id}", product.getId())).andExpect(status().isOk());
+
+        assertThat(cache.contains(Product.class, product.getId())).isTrue();
+
+        statistics.clear();
+
+        mvc.perform(get("/api/products/{id}", product.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.author.lastName").value("Cached"));
+
+        assertThat(statistics.getSecondLevelCacheHitCount()).isPositive();
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void cachesCollectionQueries() throws Exception {
+
+        mvc.perform(get("/api/products").param("size", "10").param("sort", "title")).andExpect(status().isOk());
+
+        statistics.clear();
+
+        mvc.perform(get("/api/products").param("size", "10").param("sort", "title")).andExpect(status().isOk());
+
+        assertThat(statistics.getQueryCacheHitCount()).isPositive();
+    }
+
+    @Test
+    void evictsItemWrittenThroughApi() throws Exception {
+
+        mvc.perform(get("/api/products/{id}", product.getId())).andExpect(status().isOk());
+        mvc.perform(put("/api/products/{id}", product.getId()).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Updated\",\"price\":2}"))
+                .andExpect(status().is2xxSuccessful());
+
+        assertThat(cache.contains(Product.class, product.getId())).isFalse();
+
+        mvc.perform(get("/api/products/{id}", product.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Updated"));
+    }
+
+    @Test
+    void readsItemCreatedThroughApiAsStored() throws Exception {
+
+        String location = mvc.perform(post("/api/products").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Created\",\"price\":9.999}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader("Location");
+
+        mvc.perform(get(location))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.price").value(10.0));
+    }
+
+    @Test
+    void evictsItemDeletedThroughApi() throws Exception {
+
+        mvc.perform(get("/api/products/{id}", product.getId())).andExpect(status().isOk());
+        mvc.perform(get("/api/products")).andExpect(status().isOk());
+
+        mvc.perform(delete("/api/products/{id}", product.getId())).andExpect(status().isNoContent());
+
+        assertThat(cache.contains(Product.class, product.getId())).isFalse();
+
+        mvc.perform(get("/api/products/{id}", product.getId())).andExpect(status().isNotFound());
+    }
+}
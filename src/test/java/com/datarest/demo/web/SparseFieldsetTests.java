@@ -0,0 +1,144 @@
+package com.datarest.demo.web;
+
+import com.datarest.demo.dal.Author;
+import com.datarest.demo.dal.AuthorRepository;
+import com.datarest.demo.dal.OrderRepository;
+import com.datarest.demo.dal.Product;
+import com.datarest.demo.dal.ProductRepository;
+import com.jayway.jsonpath.JsonPath;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:fields",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+@AutoConfigureMockMvc
+class SparseFieldsetTests {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    AuthorRepository authorRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Author author;
+
+    @BeforeEach
+    void setUp() {
+
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+
+        author = authorRepository.save(Author.builder().lastName("Fields").build());
+
+        for (int i = 0; i < 5; i++) {
+            productRepository.save(Product.builder().title("Product " + i).price(BigDecimal.valueOf(i)).author(author)
+                    .build());
+        }
+    }
+
+    @Test
+    void collectionSelectsOnlyRequestedFields() throws Exception {
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mvc.perform(get("/api/products").param("fields", "id,title,price").param("size", "2").param("sort", "title"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(2)))
+                .andExpect(jsonPath("$.content[1].title").value("Product 1"))
+                .andExpect(jsonPath("$.content[1].price").value(1))
+                .andExpect(jsonPath("$.content[1].id").isNumber())
+                .andExpect(jsonPath("$.content[1].author").doesNotExist())
+                .andExpect(jsonPath("$.content[1].version").doesNotExist())
+                .andExpect(jsonPath("$.totalElements").value(5));
+
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void associationsAreSelectedAsIdentifiers() throws Exception {
+
+        mvc.perform(get("/api/products").param("fields", "title,author"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(5)))
+                .andExpect(jsonPath("$[0].author.id").value(author.getId()))
+                .andExpect(jsonPath("$[0].author.lastName").doesNotExist());
+    }
+
+    @Test
+    void itemSelectsOnlyRequestedFields() throws Exception {
+
+        Product product = productRepository.findAll().iterator().next();
+
+        mvc.perform(get("/api/products/{id}", product.getId()).param("fields", "title"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$.title").value(product.getTitle()))
+                .andExpect(jsonPath("$.price").doesNotExist());
+
+        mvc.perform(get("/api/products/{id}", -1).param("fields", "title"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void keysetPagesCarryFieldsOnly() throws Exception {
+
+        List<String> titles = new ArrayList<>();
+        String cursor = "";
+
+        do {
+
+            String body = mvc.perform(get("/api/products").param("fields", "title").param("cursor", cursor)
+                            .param("size", "2").param("sort", "price,desc"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+
+            titles.addAll(JsonPath.read(body, "$.content[*].title"));
+            cursor = JsonPath.read(body, "$.nextCursor");
+
+        } while (cursor != null);
+
+        assertThat(titles).containsExactly("Product 4", "Product 3", "Product 2", "Product 1", "Product 0");
+    }
+
+    @Test
+    void rejectsUnknownFields() throws Exception {
+
+        mvc.perform(get("/api/products").param("fields", "title,publisher"))
+                .andExpect(status().isBadRequest());
+
+        mvc.perform(get("/api/orders").param("fields", "orderlines"))
+                .andExpect(status().isBadRequest());
+
+        mvc.perform(get("/api/products").param("fields", "title").param("expand", "default"))
+                .andExpect(status().isBadRequest());
+    }
+}